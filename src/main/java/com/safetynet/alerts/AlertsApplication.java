@@ -5,8 +5,10 @@ import org.apache.logging.log4j.Logger;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AlertsApplication implements CommandLineRunner {
     private static final Logger logger = LogManager.getLogger(AlertsApplication.class);
 
@@ -10,6 +10,38 @@ import org.springframework.context.annotation.Configuration;
 public class CustomProperties {
     private String dataSource;
 
+    // Number of records handed to a loader worker at once
+    private int loaderBatchSize = 1000;
+
+    // Loader workers : 1 inserts on the parsing thread and keeps the file order
+    private int loaderThreads = 1;
+
+    // Binary snapshot file loaded instead of the data source when valid, disabled when blank
+    private String snapshotFile;
+
+    // Write-ahead log of the changes, replayed at startup, disabled when blank
+    private String walFile;
+
+    // How long the log writer waits for more changes before forcing a batch to disk
+    private long walBatchWindowMicros = 0;
+
+    // Log size from which the background compactor folds the log into the snapshot
+    private long compactionThresholdBytes = 8 * 1024 * 1024;
+
+    // Changes waiting for the repository writer thread before writers block, and changes applied per published version
+    private int writeQueueCapacity = 1024;
+    private int writeBatchSize = 256;
+
+    // Compares each answer the alert queries read from the views with a full computation, logging any difference
+    private boolean validateViews = false;
+
+    // Alert results held by the cache, 0 disabling it, and how long a result is held at most
+    private int alertCacheSize = 1024;
+    private long alertCacheTtlMillis = 60000;
+
+    // Identical alert queries arriving while one is computed wait for its result instead of computing their own
+    private boolean alertCoalescing = true;
+
     public void setDataSource(String dataSource) {
         this.dataSource = dataSource;
     }
@@ -18,10 +50,105 @@ public class CustomProperties {
         return dataSource;
     }
 
+    public int getLoaderBatchSize() {
+        return loaderBatchSize;
+    }
+
+    public void setLoaderBatchSize(int loaderBatchSize) {
+        this.loaderBatchSize = loaderBatchSize;
+    }
+
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    public void setLoaderThreads(int loaderThreads) {
+        this.loaderThreads = loaderThreads;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    public String getWalFile() {
+        return walFile;
+    }
+
+    public void setWalFile(String walFile) {
+        this.walFile = walFile;
+    }
+
+    public long getWalBatchWindowMicros() {
+        return walBatchWindowMicros;
+    }
+
+    public void setWalBatchWindowMicros(long walBatchWindowMicros) {
+        this.walBatchWindowMicros = walBatchWindowMicros;
+    }
+
+    public long getCompactionThresholdBytes() {
+        return compactionThresholdBytes;
+    }
+
+    public void setCompactionThresholdBytes(long compactionThresholdBytes) {
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public void setWriteQueueCapacity(int writeQueueCapacity) {
+        this.writeQueueCapacity = writeQueueCapacity;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public boolean isValidateViews() {
+        return validateViews;
+    }
+
+    public void setValidateViews(boolean validateViews) {
+        this.validateViews = validateViews;
+    }
+
+    public int getAlertCacheSize() {
+        return alertCacheSize;
+    }
+
+    public void setAlertCacheSize(int alertCacheSize) {
+        this.alertCacheSize = alertCacheSize;
+    }
+
+    public long getAlertCacheTtlMillis() {
+        return alertCacheTtlMillis;
+    }
+
+    public void setAlertCacheTtlMillis(long alertCacheTtlMillis) {
+        this.alertCacheTtlMillis = alertCacheTtlMillis;
+    }
+
+    public boolean isAlertCoalescing() {
+        return alertCoalescing;
+    }
+
+    public void setAlertCoalescing(boolean alertCoalescing) {
+        this.alertCoalescing = alertCoalescing;
+    }
+
 
     @Bean
     public InMemoryHttpExchangeRepository createTraceRepository() {
         return new InMemoryHttpExchangeRepository();
     }
 }
-
@@ -1,8 +1,12 @@
 package com.safetynet.alerts.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.cliftonlabs.json_simple.JsonObject;
+import com.safetynet.alerts.dto.AgeStatistics;
+import com.safetynet.alerts.dto.ChildAlert;
+import com.safetynet.alerts.dto.FireReport;
+import com.safetynet.alerts.dto.PersonInfo;
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.dto.StationCoverage;
 import com.safetynet.alerts.service.IAlertService;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,12 +47,12 @@ public class AlertController {
     @GetMapping("/firestation")
     public ResponseEntity<?> firestation(@RequestParam int stationNumber) throws IOException {
         logger.info("GET REQUEST : /firestation?stationNumber=" + stationNumber);
-        Map<String, Object> result = alertService.firestation(stationNumber);
+        StationCoverage result = alertService.firestation(stationNumber);
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Type", "application/json");
 
-        if (((List<?>) result.get("persons")).isEmpty()) {
+        if (result.persons().isEmpty()) {
             JsonObject emptyJson = new JsonObject();
 
             logger.info("RESPONSE : " + emptyJson);
@@ -71,12 +75,12 @@ public class AlertController {
     @GetMapping("/childAlert")
     public ResponseEntity<?> childAlert(@RequestParam String address) {
         logger.info("GET REQUEST : /childAlert?address=" + address);
-        Map<String, Object> result = alertService.childAlert(address);
+        ChildAlert result = alertService.childAlert(address);
 
         HttpHeaders headers = new HttpHeaders();
         headers.add("Content-Type", "application/json");
 
-        if (((List<?>) result.get("children")).isEmpty()) {
+        if (result.children().isEmpty()) {
             JsonObject emptyJson = new JsonObject();
 
             logger.info("RESPONSE : " + emptyJson);
@@ -97,19 +101,19 @@ public class AlertController {
     }
 
     @GetMapping("/fire")
-    public Map<String, Object> fire(@RequestParam String address) {
+    public FireReport fire(@RequestParam String address) {
         logger.info("GET REQUEST : /fire?address=" + address);
-        Map<String, Object> result = alertService.fire(address);
+        FireReport result = alertService.fire(address);
 
         logger.info("RESPONSE : " + result);
         return result;
     }
 
     @GetMapping("/personInfo")
-    public JsonNode personInfo(@RequestParam String lastName,
+    public PersonInfo personInfo(@RequestParam String lastName,
                                @RequestParam String firstName) {
         logger.info("GET REQUEST : /personInfo?lastName=" + lastName + "&firstName=" + firstName);
-        JsonNode result = alertService.personInfo(lastName, firstName);
+        PersonInfo result = alertService.personInfo(lastName, firstName);
 
         logger.info("RESPONSE : " + result);
         return result;
@@ -125,9 +129,47 @@ public class AlertController {
     }
 
     @GetMapping("/flood")
-    public Map<String, List<ObjectNode>> flood(@RequestParam int[] stations) {
+    public Map<String, List<ResidentDetails>> flood(@RequestParam int[] stations) {
         logger.info("GET REQUEST : /flood?stations=" + Arrays.toString(stations));
-        Map<String, List<ObjectNode>> result = alertService.flood(stations);
+        Map<String, List<ResidentDetails>> result = alertService.flood(stations);
+
+        logger.info("RESPONSE : " + result);
+        return result;
+    }
+
+    @GetMapping("/ageStatistics")
+    public AgeStatistics ageStatistics(@RequestParam(required = false) String city) {
+        logger.info("GET REQUEST : /ageStatistics" + (city == null ? "" : "?city=" + city));
+        AgeStatistics result = alertService.ageStatistics(city);
+
+        logger.info("RESPONSE : " + result);
+        return result;
+    }
+
+    @GetMapping("/ageAlert")
+    public Map<String, List<ResidentDetails>> ageAlert(@RequestParam(required = false) Integer station,
+                                                       @RequestParam(required = false) String address,
+                                                       @RequestParam(defaultValue = "0") int minAge,
+                                                       @RequestParam(required = false) Integer maxAge) {
+        logger.info("GET REQUEST : /ageAlert?minAge=" + minAge
+                + (maxAge == null ? "" : "&maxAge=" + maxAge)
+                + (station == null ? "" : "&station=" + station)
+                + (address == null ? "" : "&address=" + address));
+        Map<String, List<ResidentDetails>> result = alertService.ageAlert(station, address, minAge,
+                maxAge == null ? Integer.MAX_VALUE : maxAge);
+
+        logger.info("RESPONSE : " + result);
+        return result;
+    }
+
+    @GetMapping("/medicalAlert")
+    public Map<String, List<ResidentDetails>> medicalAlert(@RequestParam int[] stations,
+                                                           @RequestParam(required = false) String medication,
+                                                           @RequestParam(required = false) String allergy) {
+        logger.info("GET REQUEST : /medicalAlert?stations=" + Arrays.toString(stations)
+                + (medication == null ? "" : "&medication=" + medication)
+                + (allergy == null ? "" : "&allergy=" + allergy));
+        Map<String, List<ResidentDetails>> result = alertService.medicalAlert(stations, medication, allergy);
 
         logger.info("RESPONSE : " + result);
         return result;
@@ -0,0 +1,13 @@
+package com.safetynet.alerts.dto;
+
+import java.util.Map;
+
+/**
+ * Result of /ageStatistics : age distribution of the persons of a city, or of every person
+ */
+public record AgeStatistics(String city,
+                            int persons,
+                            int minors,
+                            int majors,
+                            Map<String, Integer> ageGroups) {
+}
@@ -0,0 +1,10 @@
+package com.safetynet.alerts.dto;
+
+import java.util.List;
+
+/**
+ * Result of /childAlert : children living at an address and the other members of the household
+ */
+public record ChildAlert(List<HouseholdMember> children,
+                         List<HouseholdMember> members) {
+}
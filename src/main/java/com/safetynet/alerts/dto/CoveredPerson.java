@@ -0,0 +1,16 @@
+package com.safetynet.alerts.dto;
+
+import com.safetynet.alerts.model.Person;
+
+/**
+ * Person covered by a station, as listed by /firestation
+ */
+public record CoveredPerson(String firstName,
+                            String lastName,
+                            String address,
+                            String phone) {
+
+    public static CoveredPerson of(Person person) {
+        return new CoveredPerson(person.getFirstName(), person.getLastName(), person.getAddress(), person.getPhone());
+    }
+}
@@ -0,0 +1,12 @@
+package com.safetynet.alerts.dto;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Result of /fire : residents of an address and the stations covering it
+ */
+public record FireReport(String address,
+                         Set<Integer> stationNumber,
+                         List<ResidentDetails> persons) {
+}
@@ -0,0 +1,15 @@
+package com.safetynet.alerts.dto;
+
+import com.safetynet.alerts.model.Person;
+
+/**
+ * Resident of an address, as listed by /childAlert
+ */
+public record HouseholdMember(String firstName,
+                              String lastName,
+                              int age) {
+
+    public static HouseholdMember of(Person person, int age) {
+        return new HouseholdMember(person.getFirstName(), person.getLastName(), age);
+    }
+}
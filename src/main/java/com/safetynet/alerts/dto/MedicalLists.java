@@ -0,0 +1,23 @@
+package com.safetynet.alerts.dto;
+
+import com.safetynet.alerts.model.Medicalrecord;
+
+import java.util.List;
+
+/**
+ * Null-safe access to the medical lists of a possibly missing medicalrecord
+ */
+final class MedicalLists {
+    private MedicalLists() {
+    }
+
+    static List<String> medications(Medicalrecord medicalrecord) {
+        return medicalrecord == null || medicalrecord.getMedications() == null
+                ? List.of() : medicalrecord.getMedications();
+    }
+
+    static List<String> allergies(Medicalrecord medicalrecord) {
+        return medicalrecord == null || medicalrecord.getAllergies() == null
+                ? List.of() : medicalrecord.getAllergies();
+    }
+}
@@ -0,0 +1,23 @@
+package com.safetynet.alerts.dto;
+
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.List;
+
+/**
+ * Full details of a person, as returned by /personInfo
+ */
+public record PersonInfo(String firstName,
+                         String lastName,
+                         String address,
+                         int age,
+                         String email,
+                         List<String> medications,
+                         List<String> allergies) {
+
+    public static PersonInfo of(Person person, int age, Medicalrecord medicalrecord) {
+        return new PersonInfo(person.getFirstName(), person.getLastName(), person.getAddress(), age,
+                person.getEmail(), MedicalLists.medications(medicalrecord), MedicalLists.allergies(medicalrecord));
+    }
+}
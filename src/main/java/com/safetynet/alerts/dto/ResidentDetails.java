@@ -0,0 +1,22 @@
+package com.safetynet.alerts.dto;
+
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.List;
+
+/**
+ * Resident of an address with medical information, as listed by /fire and /flood
+ */
+public record ResidentDetails(String firstName,
+                              String lastName,
+                              String phone,
+                              int age,
+                              List<String> medications,
+                              List<String> allergies) {
+
+    public static ResidentDetails of(Person person, int age, Medicalrecord medicalrecord) {
+        return new ResidentDetails(person.getFirstName(), person.getLastName(), person.getPhone(), age,
+                MedicalLists.medications(medicalrecord), MedicalLists.allergies(medicalrecord));
+    }
+}
@@ -0,0 +1,11 @@
+package com.safetynet.alerts.dto;
+
+import java.util.List;
+
+/**
+ * Result of /firestation : persons covered by a station and their minor / major counts
+ */
+public record StationCoverage(int minors,
+                              int majors,
+                              List<CoveredPerson> persons) {
+}
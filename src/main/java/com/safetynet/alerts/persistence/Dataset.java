@@ -0,0 +1,15 @@
+package com.safetynet.alerts.persistence;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.List;
+
+/**
+ * Full content of the three repositories, as stored in a snapshot file
+ */
+public record Dataset(List<Person> persons,
+                      List<Firestation> firestations,
+                      List<Medicalrecord> medicalrecords) {
+}
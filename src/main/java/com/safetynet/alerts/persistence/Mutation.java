@@ -0,0 +1,28 @@
+package com.safetynet.alerts.persistence;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * A successful change of a repository, as written to the write-ahead log
+ *
+ * @param entity    the repository changed
+ * @param operation the kind of change
+ * @param key       the identity of the changed object : lastname and firstname, or address and station
+ * @param value     the saved or updated object, null for a delete
+ */
+public record Mutation(Entity entity, Operation operation, List<String> key, JsonNode value) {
+
+    public enum Entity {
+        PERSON,
+        FIRESTATION,
+        MEDICALRECORD
+    }
+
+    public enum Operation {
+        SAVE,
+        UPDATE,
+        DELETE
+    }
+}
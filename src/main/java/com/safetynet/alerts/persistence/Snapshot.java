@@ -0,0 +1,11 @@
+package com.safetynet.alerts.persistence;
+
+/**
+ * Content of a snapshot file
+ *
+ * @param dataset      the content of the repositories
+ * @param fingerprint  identifies the data source the content was first loaded from
+ * @param lastSequence the last write-ahead log record included in the content, 0 if none
+ */
+public record Snapshot(Dataset dataset, long fingerprint, long lastSequence) {
+}
@@ -0,0 +1,329 @@
+package com.safetynet.alerts.persistence;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of the repositories
+ * Layout, big endian :
+ * <pre>
+ * header   : magic, version, source fingerprint (long), last write-ahead log sequence (long)
+ * strings  : count, then for each string its UTF-8 length and bytes
+ * persons  : count, then firstName, lastName, address, city (string ids), zip (long), phone, email (string ids)
+ * stations : count, then address (string id), station
+ * records  : count, then firstName, lastName (string ids), birthdate (epoch day, long),
+ *            medications and allergies (count then string ids)
+ * trailer  : CRC32 of everything above (long)
+ * </pre>
+ * Every string is stored once in the table and referenced by its id, -1 standing for null.
+ * The file is read through a read-only memory mapping, and written to a temporary file atomically
+ * moved over the previous snapshot.
+ */
+public final class SnapshotFile {
+    private static final Logger logger = LogManager.getLogger(SnapshotFile.class);
+
+    static final int MAGIC = 0x534E414C; // "SNAL"
+    static final int VERSION = 2;
+
+    private static final int NULL_STRING = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2;
+    private static final int TRAILER_SIZE = Long.BYTES;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot of the data source alone, replacing atomically any previous snapshot at the same path
+     *
+     * @param path        the snapshot file
+     * @param dataset     the content to write
+     * @param fingerprint identifies the data source the content comes from
+     * @return the size of the written file, in bytes
+     * @throws IOException if the file can not be written
+     */
+    public static long write(Path path, Dataset dataset, long fingerprint) throws IOException {
+        return write(path, dataset, fingerprint, 0);
+    }
+
+    /**
+     * Writes a snapshot, replacing atomically any previous snapshot at the same path
+     *
+     * @param path         the snapshot file
+     * @param dataset      the content to write
+     * @param fingerprint  identifies the data source the content was first loaded from
+     * @param lastSequence the last write-ahead log record included in the content
+     * @return the size of the written file, in bytes
+     * @throws IOException if the file can not be written
+     */
+    public static long write(Path path, Dataset dataset, long fingerprint, long lastSequence) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), crc);
+                 DataOutputStream out = new DataOutputStream(checked)) {
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fingerprint);
+                out.writeLong(lastSequence);
+
+                StringTable strings = new StringTable(dataset);
+                strings.writeTo(out);
+
+                out.writeInt(dataset.persons().size());
+                for (Person person : dataset.persons()) {
+                    out.writeInt(strings.id(person.getFirstName()));
+                    out.writeInt(strings.id(person.getLastName()));
+                    out.writeInt(strings.id(person.getAddress()));
+                    out.writeInt(strings.id(person.getCity()));
+                    out.writeLong(person.getZip());
+                    out.writeInt(strings.id(person.getPhone()));
+                    out.writeInt(strings.id(person.getEmail()));
+                }
+
+                out.writeInt(dataset.firestations().size());
+                for (Firestation firestation : dataset.firestations()) {
+                    out.writeInt(strings.id(firestation.getAddress()));
+                    out.writeInt(firestation.getStation());
+                }
+
+                out.writeInt(dataset.medicalrecords().size());
+                for (Medicalrecord medicalrecord : dataset.medicalrecords()) {
+                    out.writeInt(strings.id(medicalrecord.getFirstName()));
+                    out.writeInt(strings.id(medicalrecord.getLastName()));
+                    out.writeLong(medicalrecord.getBirthdate() == null
+                            ? NULL_DATE : medicalrecord.getBirthdate().toEpochDay());
+                    writeStringList(out, strings, medicalrecord.getMedications());
+                    writeStringList(out, strings, medicalrecord.getAllergies());
+                }
+
+                out.flush();
+                // The trailer is written past the checked stream so it is not part of its own checksum
+                new DataOutputStream(file).writeLong(crc.getValue());
+            }
+
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        long size = Files.size(path);
+        logger.info("Snapshot written : " + path + " (" + size + " bytes)");
+        return size;
+    }
+
+    /**
+     * Reads a snapshot through a memory mapping
+     *
+     * @param path the snapshot file
+     * @return the snapshot, or empty if the file is missing, corrupted, or of another version
+     */
+    public static Optional<Snapshot> read(Path path) {
+        if (!Files.isRegularFile(path)) {
+            logger.info("No snapshot found : " + path);
+            return Optional.empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE || size > Integer.MAX_VALUE) {
+                logger.warn("Snapshot ignored, invalid size : " + path);
+                return Optional.empty();
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                logger.warn("Snapshot ignored, unknown format or version : " + path);
+                return Optional.empty();
+            }
+            long fingerprint = buffer.getLong();
+            long lastSequence = buffer.getLong();
+
+            int contentEnd = (int) size - TRAILER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit(contentEnd));
+            if (crc.getValue() != buffer.getLong(contentEnd)) {
+                logger.warn("Snapshot ignored, checksum mismatch : " + path);
+                return Optional.empty();
+            }
+
+            buffer.limit(contentEnd);
+            return Optional.of(new Snapshot(readContent(buffer), fingerprint, lastSequence));
+
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException exception) {
+            logger.warn("Snapshot ignored, unreadable : " + path, exception);
+            return Optional.empty();
+        }
+    }
+
+    private static Dataset readContent(ByteBuffer buffer) {
+        String[] strings = new String[buffer.getInt()];
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < strings.length; i++) {
+            int length = buffer.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int personCount = buffer.getInt();
+        List<Person> persons = new ArrayList<>(personCount);
+        for (int i = 0; i < personCount; i++) {
+            Person person = new Person();
+            person.setFirstName(string(strings, buffer.getInt()));
+            person.setLastName(string(strings, buffer.getInt()));
+            person.setAddress(string(strings, buffer.getInt()));
+            person.setCity(string(strings, buffer.getInt()));
+            person.setZip(buffer.getLong());
+            person.setPhone(string(strings, buffer.getInt()));
+            person.setEmail(string(strings, buffer.getInt()));
+            persons.add(person);
+        }
+
+        int firestationCount = buffer.getInt();
+        List<Firestation> firestations = new ArrayList<>(firestationCount);
+        for (int i = 0; i < firestationCount; i++) {
+            Firestation firestation = new Firestation();
+            firestation.setAddress(string(strings, buffer.getInt()));
+            firestation.setStation(buffer.getInt());
+            firestations.add(firestation);
+        }
+
+        int medicalrecordCount = buffer.getInt();
+        List<Medicalrecord> medicalrecords = new ArrayList<>(medicalrecordCount);
+        for (int i = 0; i < medicalrecordCount; i++) {
+            Medicalrecord medicalrecord = new Medicalrecord();
+            medicalrecord.setFirstName(string(strings, buffer.getInt()));
+            medicalrecord.setLastName(string(strings, buffer.getInt()));
+            long birthdate = buffer.getLong();
+            medicalrecord.setBirthdate(birthdate == NULL_DATE ? null : LocalDate.ofEpochDay(birthdate));
+            medicalrecord.setMedications(readStringList(buffer, strings));
+            medicalrecord.setAllergies(readStringList(buffer, strings));
+            medicalrecords.add(medicalrecord);
+        }
+
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected bytes after the last section");
+        }
+
+        return new Dataset(persons, firestations, medicalrecords);
+    }
+
+    private static String string(String[] strings, int id) {
+        return id == NULL_STRING ? null : strings[id];
+    }
+
+    private static List<String> readStringList(ByteBuffer buffer, String[] strings) {
+        int count = buffer.getInt();
+        if (count < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(string(strings, buffer.getInt()));
+        }
+        return values;
+    }
+
+    private static void writeStringList(DataOutputStream out, StringTable strings, List<String> values)
+            throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeInt(strings.id(value));
+        }
+    }
+
+    /**
+     * Deduplicated table of every string of a dataset
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        StringTable(Dataset dataset) {
+            for (Person person : dataset.persons()) {
+                add(person.getFirstName());
+                add(person.getLastName());
+                add(person.getAddress());
+                add(person.getCity());
+                add(person.getPhone());
+                add(person.getEmail());
+            }
+            for (Firestation firestation : dataset.firestations()) {
+                add(firestation.getAddress());
+            }
+            for (Medicalrecord medicalrecord : dataset.medicalrecords()) {
+                add(medicalrecord.getFirstName());
+                add(medicalrecord.getLastName());
+                addAll(medicalrecord.getMedications());
+                addAll(medicalrecord.getAllergies());
+            }
+        }
+
+        private void add(String value) {
+            if (value != null && !ids.containsKey(value)) {
+                ids.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        private void addAll(List<String> list) {
+            if (list != null) {
+                list.forEach(this::add);
+            }
+        }
+
+        int id(String value) {
+            return value == null ? NULL_STRING : ids.get(value);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+}
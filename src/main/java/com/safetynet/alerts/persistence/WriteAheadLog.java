@@ -0,0 +1,613 @@
+package com.safetynet.alerts.persistence;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records, made durable by group commit
+ * The log is a sequence of segment files next to the configured path, named after it with a segment number :
+ * alerts.wal.000001, alerts.wal.000002... Only the last segment is written, the previous ones are sealed.
+ * Layout of a segment, big endian :
+ * <pre>
+ * header : magic, version, base sequence (long)
+ * frames : payload length, sequence (long), payload, CRC32 of the length, sequence and payload
+ * </pre>
+ * The base sequence is the last sequence written before the segment was created : the sequences go on
+ * from it even once the previous segments are deleted by a compaction. Version 1 segments, without base
+ * sequence, are still read.
+ * Appends are queued and written by a single writer thread : every write collects the records queued
+ * so far, waiting at most the batch window for more, and forces them to disk with a single fsync
+ * before completing their futures. Concurrent writers therefore share the cost of one fsync.
+ * A torn or corrupted tail, left by a crash during a write, is truncated when the log is opened.
+ */
+public final class WriteAheadLog implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WriteAheadLog.class);
+
+    static final int MAGIC = 0x57414C47; // "WALG"
+    static final int VERSION = 2;
+
+    private static final int VERSION_1 = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    private static final int FRAME_OVERHEAD = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final PendingAppend CLOSE = new PendingAppend(null, null, null);
+
+    /**
+     * Receives the records of the log, in sequence order
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long sequence, byte[] payload);
+    }
+
+    /**
+     * Result of a segment rotation
+     *
+     * @param lastSequence the sequence of the last record of the sealed segments
+     * @param segments     the sealed segments, oldest first
+     */
+    public record Rotation(long lastSequence, List<Path> segments) {
+    }
+
+    private record Segment(Path path, long end) {
+    }
+
+    private static final class PendingAppend {
+        final byte[] payload;
+        final CompletableFuture<Long> done;
+        final CompletableFuture<Rotation> rotation;
+        long sequence;
+
+        PendingAppend(byte[] payload, CompletableFuture<Long> done, CompletableFuture<Rotation> rotation) {
+            this.payload = payload;
+            this.done = done;
+            this.rotation = rotation;
+        }
+
+        boolean isControl() {
+            return payload == null;
+        }
+    }
+
+    private final Path path;
+    private final long batchWindowNanos;
+    private final int maxBatch;
+    private final List<Segment> recovered;
+
+    // Active segment, only used by the writer thread once the log is open
+    private FileChannel channel;
+    private int activeNumber;
+
+    private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Object lifecycle = new Object();
+    private boolean closed;
+    private volatile IOException failure;
+
+    // Written by the writer thread only
+    private volatile long lastSequence;
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+
+    /**
+     * Opens the log, creating its first segment if needed, and starts its writer thread
+     *
+     * @param path        the log path, segments are named after it
+     * @param batchWindow how long the writer waits for more records before forcing a batch, 0 not to wait
+     * @param unit        the unit of the batch window
+     * @param maxBatch    the maximum number of records forced at once
+     * @throws IOException if the segments can not be opened, or are not log segments
+     */
+    public WriteAheadLog(Path path, long batchWindow, TimeUnit unit, int maxBatch) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.batchWindowNanos = Math.max(0, unit.toNanos(batchWindow));
+        this.maxBatch = Math.max(1, maxBatch);
+
+        Files.createDirectories(this.path.getParent());
+
+        List<Path> segments = segments(this.path);
+        if (segments.isEmpty()) {
+            segments = List.of(createSegment(this.path, 1, 0));
+        }
+
+        this.recovered = new ArrayList<>(segments.size());
+        long sequence = 0;
+        for (Path segment : segments) {
+            boolean last = segment.equals(segments.get(segments.size() - 1));
+            if (last && isPartialHeader(segment)) {
+                // Left by a crash while an earlier version wrote the header in place : it holds no record
+                logger.warn("Write-ahead log segment without header, recreated : " + segment);
+                Files.delete(segment);
+                segment = createSegment(this.path, segmentNumber(this.path, segment), sequence);
+            }
+            try (FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long[] scanned = scan(segmentChannel, segmentChannel.size(), sequence, Long.MAX_VALUE, null);
+                if (scanned[0] < segmentChannel.size() && !last) {
+                    logger.warn("Write-ahead log segment damaged, its tail is ignored : " + segment);
+                }
+                recovered.add(new Segment(segment, scanned[0]));
+                sequence = scanned[1];
+            }
+        }
+        this.lastSequence = sequence;
+
+        Segment active = recovered.get(recovered.size() - 1);
+        this.activeNumber = segmentNumber(this.path, active.path());
+        this.channel = FileChannel.open(active.path(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (active.end() < channel.size()) {
+                logger.warn("Write-ahead log tail truncated : " + active.path() + " ("
+                        + (channel.size() - active.end()) + " bytes)");
+                channel.truncate(active.end());
+                channel.force(true);
+            }
+            channel.position(active.end());
+        } catch (IOException ioException) {
+            channel.close();
+            throw ioException;
+        }
+
+        this.writer = new Thread(this::writeLoop, "wal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a record
+     *
+     * @param payload the record
+     * @return a future completed with the sequence of the record once it is on disk
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        enqueue(new PendingAppend(payload, done, null), done);
+        return done;
+    }
+
+    /**
+     * Seals the active segment and starts writing a new one
+     * The rotation is queued behind the pending records and made by the writer thread between two
+     * batches : writers are never blocked for longer than the creation of the new segment.
+     *
+     * @return a future completed with the sealed segments once the new segment is active
+     */
+    public CompletableFuture<Rotation> rotate() {
+        CompletableFuture<Rotation> rotation = new CompletableFuture<>();
+        enqueue(new PendingAppend(null, null, rotation), rotation);
+        return rotation;
+    }
+
+    private void enqueue(PendingAppend pending, CompletableFuture<?> future) {
+        synchronized (lifecycle) {
+            IOException ioException = failure;
+            if (ioException != null) {
+                future.completeExceptionally(ioException);
+            } else if (closed) {
+                future.completeExceptionally(new IOException("Write-ahead log closed : " + path));
+            } else {
+                queue.add(pending);
+            }
+        }
+    }
+
+    /**
+     * Reads the records which were in the log when it was opened
+     *
+     * @param afterSequence only the records of a greater sequence are read
+     * @param consumer      receives the records, in sequence order
+     * @return the number of records read
+     * @throws IOException if a segment can not be read
+     */
+    public long replay(long afterSequence, RecordConsumer consumer) throws IOException {
+        long records = 0;
+        long sequence = 0;
+        for (Segment segment : recovered) {
+            try (FileChannel readChannel = FileChannel.open(segment.path(), StandardOpenOption.READ)) {
+                long[] scanned = scan(readChannel, segment.end(), sequence, afterSequence, consumer);
+                sequence = scanned[1];
+                records += scanned[2];
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Reads the records of sealed segments
+     *
+     * @param segments      the segments, oldest first
+     * @param afterSequence only the records of a greater sequence are read
+     * @param consumer      receives the records, in sequence order
+     * @return the number of records read
+     * @throws IOException if a segment can not be read
+     */
+    public static long replay(List<Path> segments, long afterSequence, RecordConsumer consumer) throws IOException {
+        long records = 0;
+        long sequence = 0;
+        for (Path segment : segments) {
+            try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                long[] scanned = scan(readChannel, readChannel.size(), sequence, afterSequence, consumer);
+                sequence = scanned[1];
+                records += scanned[2];
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the sequence of the last record written
+     *
+     * @return the last sequence, 0 if the log is empty
+     */
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Returns the size of the segments on disk
+     *
+     * @return the size in bytes
+     * @throws IOException if the segments can not be listed
+     */
+    public long size() throws IOException {
+        long size = 0;
+        for (Path segment : segments(path)) {
+            size += Files.size(segment);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of records written since the log was opened
+     *
+     * @return the number of records
+     */
+    public long appendCount() {
+        return appends.get();
+    }
+
+    /**
+     * Returns the number of fsync calls since the log was opened
+     * appendCount() / syncCount() is the average group commit size
+     *
+     * @return the number of fsync calls
+     */
+    public long syncCount() {
+        return syncs.get();
+    }
+
+    /**
+     * Writes the queued records, then stops the writer thread and closes the active segment
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lifecycle) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+
+        try {
+            writer.join();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        CRC32 crc = new CRC32();
+
+        while (true) {
+            PendingAppend control = null;
+            try {
+                PendingAppend first = queue.take();
+                if (first.isControl()) {
+                    control = first;
+                } else {
+                    batch.add(first);
+                    control = collect(batch);
+
+                    buffer = write(batch, buffer, crc);
+                    for (PendingAppend pending : batch) {
+                        pending.done.complete(pending.sequence);
+                    }
+                    batch.clear();
+                }
+
+                if (control == CLOSE) {
+                    return;
+                }
+                if (control != null) {
+                    control.rotation.complete(rotateSegment());
+                }
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                fail(batch, control, new IOException("Write-ahead log writer interrupted"));
+                return;
+            } catch (IOException ioException) {
+                logger.error("Write-ahead log write failed : " + path, ioException);
+                fail(batch, control, ioException);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the queued records to the batch, waiting at most the batch window for more
+     *
+     * @return the rotation or close request which ended the batch, null if none
+     */
+    private PendingAppend collect(List<PendingAppend> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + batchWindowNanos;
+
+        while (batch.size() < maxBatch) {
+            PendingAppend next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    return null;
+                }
+            }
+            if (next.isControl()) {
+                return next;
+            }
+            batch.add(next);
+        }
+        return null;
+    }
+
+    /**
+     * Frames the batch, writes it and forces it to disk
+     *
+     * @return the buffer, grown if the batch did not fit
+     */
+    private ByteBuffer write(List<PendingAppend> batch, ByteBuffer buffer, CRC32 crc) throws IOException {
+        int size = 0;
+        for (PendingAppend pending : batch) {
+            size += FRAME_OVERHEAD + pending.payload.length;
+        }
+        if (size > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(Math.max(size, buffer.capacity() * 2));
+        }
+
+        buffer.clear();
+        long sequence = lastSequence;
+        for (PendingAppend pending : batch) {
+            int frameStart = buffer.position();
+            buffer.putInt(pending.payload.length);
+            buffer.putLong(++sequence);
+            buffer.put(pending.payload);
+
+            crc.reset();
+            crc.update(buffer.array(), frameStart, buffer.position() - frameStart);
+            buffer.putInt((int) crc.getValue());
+            pending.sequence = sequence;
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+
+        lastSequence = sequence;
+        appends.addAndGet(batch.size());
+        syncs.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Switches the writes to a new segment, every previous segment being sealed
+     *
+     * @return the sealed segments
+     */
+    private Rotation rotateSegment() throws IOException {
+        Path next = createSegment(path, activeNumber + 1, lastSequence);
+        FileChannel nextChannel = FileChannel.open(next, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        nextChannel.position(HEADER_SIZE);
+
+        FileChannel sealed = channel;
+        channel = nextChannel;
+        activeNumber++;
+        sealed.close();
+
+        List<Path> sealedSegments = new ArrayList<>();
+        for (Path segment : segments(path)) {
+            if (segmentNumber(path, segment) < activeNumber) {
+                sealedSegments.add(segment);
+            }
+        }
+        return new Rotation(lastSequence, sealedSegments);
+    }
+
+    private void fail(List<PendingAppend> batch, PendingAppend control, IOException ioException) {
+        List<PendingAppend> pending = new ArrayList<>(batch);
+        if (control != null) {
+            pending.add(control);
+        }
+        synchronized (lifecycle) {
+            failure = ioException;
+            queue.drainTo(pending);
+        }
+        for (PendingAppend append : pending) {
+            if (append == CLOSE) {
+                continue;
+            }
+            if (append.isControl()) {
+                append.rotation.completeExceptionally(ioException);
+            } else {
+                append.done.completeExceptionally(ioException);
+            }
+        }
+    }
+
+    /**
+     * Creates an empty segment
+     * The header is written to a temporary file moved into place, so that a crash never leaves a segment
+     * without header. The temporary file, whose name has no segment number, is not listed as a segment.
+     *
+     * @param path         the log path
+     * @param number       the segment number
+     * @param baseSequence the last sequence written before the segment
+     * @return the segment
+     * @throws IOException if the segment exists or can not be written
+     */
+    private static Path createSegment(Path path, int number, long baseSequence) throws IOException {
+        Path segment = path.resolveSibling(path.getFileName() + "." + String.format("%06d", number));
+        if (Files.exists(segment)) {
+            throw new FileAlreadyExistsException(segment.toString());
+        }
+
+        Path temporary = Files.createTempFile(path.getParent(), segment.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel segmentChannel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                        .putInt(MAGIC).putInt(VERSION).putLong(baseSequence).flip();
+                while (header.hasRemaining()) {
+                    segmentChannel.write(header);
+                }
+                segmentChannel.force(true);
+            }
+            Files.move(temporary, segment, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return segment;
+    }
+
+    /**
+     * Returns whether a segment is only the beginning of a header, its writing having been interrupted
+     *
+     * @param segment the segment
+     * @return true if the segment is a strict prefix of a header, false if it is complete or not a log segment
+     */
+    private static boolean isPartialHeader(Path segment) throws IOException {
+        if (Files.size(segment) >= HEADER_SIZE) {
+            return false;
+        }
+        byte[] bytes = Files.readAllBytes(segment);
+        byte[] header = ByteBuffer.allocate(Integer.BYTES * 2).putInt(MAGIC).putInt(VERSION).array();
+        int length = Math.min(bytes.length, header.length);
+        return Arrays.equals(bytes, 0, length, header, 0, length);
+    }
+
+    /**
+     * Lists the segments of a log
+     *
+     * @param path the log path
+     * @return the segments, oldest first
+     */
+    private static List<Path> segments(Path path) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path.getParent(),
+                path.getFileName() + ".[0-9]*")) {
+            for (Path file : files) {
+                if (segmentNumber(path, file) > 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(segment -> segmentNumber(path, segment)));
+        return segments;
+    }
+
+    private static int segmentNumber(Path path, Path segment) {
+        String suffix = segment.getFileName().toString().substring(path.getFileName().toString().length() + 1);
+        try {
+            return Integer.parseInt(suffix);
+        } catch (NumberFormatException numberFormatException) {
+            return -1;
+        }
+    }
+
+    /**
+     * Walks the frames of a segment
+     *
+     * @param channel          the segment
+     * @param end              where to stop
+     * @param previousSequence the last sequence of the previous segments, 0 if they are deleted
+     * @param afterSequence    only the records of a greater sequence are given to the consumer
+     * @param consumer         receives the records, or null to only validate them
+     * @return the end of the last valid frame, the last sequence, and the number of records given to the consumer
+     */
+    private static long[] scan(FileChannel channel, long end, long previousSequence, long afterSequence,
+                               RecordConsumer consumer) throws IOException {
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Write-ahead log segment too large");
+        }
+        if (end < Integer.BYTES * 2) {
+            throw new IOException("Not a write-ahead log segment, missing header");
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a write-ahead log segment");
+        }
+        int version = buffer.getInt();
+        long baseSequence;
+        if (version == VERSION && buffer.remaining() >= Long.BYTES) {
+            baseSequence = buffer.getLong();
+        } else if (version == VERSION_1) {
+            baseSequence = 0;
+        } else {
+            throw new IOException("Write-ahead log segment of another version, or missing header");
+        }
+
+        CRC32 crc = new CRC32();
+        long lastSequence = Math.max(previousSequence, baseSequence);
+        long records = 0;
+        int validEnd = buffer.position();
+
+        while (buffer.remaining() >= FRAME_OVERHEAD) {
+            int frameStart = buffer.position();
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining() - Long.BYTES - Integer.BYTES) {
+                break;
+            }
+
+            long sequence = buffer.getLong();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            crc.reset();
+            crc.update(buffer.duplicate().position(frameStart).limit(buffer.position()));
+            if ((int) crc.getValue() != buffer.getInt() || sequence <= lastSequence) {
+                break;
+            }
+
+            if (consumer != null && sequence > afterSequence) {
+                consumer.accept(sequence, payload);
+                records++;
+            }
+            lastSequence = sequence;
+            validEnd = buffer.position();
+        }
+
+        return new long[]{validEnd, lastSequence, records};
+    }
+}
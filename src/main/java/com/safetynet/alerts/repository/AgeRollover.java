@@ -0,0 +1,64 @@
+package com.safetynet.alerts.repository;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Moves the minor / major classification of the station views and households on to the new day
+ * The medicalrecord table keeps its entries ordered by majority day : at midnight, only the persons
+ * coming of age since the previous day are taken from the front of that index and counted as majors,
+ * in one change of the DataStore writer thread. Requests never compute a date to classify a person.
+ */
+@Component
+public class AgeRollover {
+    private static final Logger logger = LogManager.getLogger(AgeRollover.class);
+
+    private final DataStore store;
+
+    private final Clock clock;
+
+    /**
+     * Constructor
+     *
+     * @param store the store whose views are rolled over
+     */
+    @Autowired
+    public AgeRollover(DataStore store) {
+        this(store, store.clock());
+    }
+
+    AgeRollover(DataStore store, Clock clock) {
+        this.store = store;
+        this.clock = clock;
+    }
+
+    /**
+     * Rolls over once the application is ready, in case midnight passed since the store was created
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rollOverAtStartup() {
+        rollOver();
+    }
+
+    /**
+     * Reclassifies the persons who came of age since the day of the current snapshot
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rollOver() {
+        int today = (int) LocalDate.now(clock).toEpochDay();
+        int previous = store.write(snapshot -> new DataStore.Update<>(snapshot.rolledOver(today), snapshot.day()));
+
+        if (previous != today) {
+            logger.info("Station views and households rolled over from " + LocalDate.ofEpochDay(previous)
+                    + " to " + LocalDate.ofEpochDay(today));
+        }
+    }
+}
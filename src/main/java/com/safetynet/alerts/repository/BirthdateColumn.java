@@ -0,0 +1,121 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.Ages;
+import com.safetynet.alerts.util.IntColumns;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Birth days of every person of a snapshot, as a primitive int column of epoch days
+ * The persons are grouped by city, in city index order, so that the population of a city is a contiguous
+ * range of the column. Population-wide age questions are answered by scanning the column, without
+ * touching a Person or Medicalrecord object.
+ * Built on the first request after a change, and immutable afterwards.
+ */
+public final class BirthdateColumn {
+
+    // Birth day of a person without medicalrecord or birthdate : in the future, so that its age is 0
+    static final int UNKNOWN = 1 << 29;
+
+    private record Range(int from, int to) {
+    }
+
+    private final int day;
+    private final int[] birthDays;
+    private final Map<String, Range> cities;
+
+    private BirthdateColumn(int day, int[] birthDays, Map<String, Range> cities) {
+        this.day = day;
+        this.birthDays = birthDays;
+        this.cities = cities;
+    }
+
+    /**
+     * Builds the column of a snapshot
+     *
+     * @param snapshot the snapshot
+     * @return the column, for the day of the snapshot
+     */
+    static BirthdateColumn build(DataSnapshot snapshot) {
+        int[] size = {0};
+        snapshot.persons().byCity().forEach((city, persons) -> size[0] += persons.size());
+        int[] birthDays = new int[size[0]];
+        Map<String, Range> cities = new HashMap<>();
+
+        size[0] = 0;
+        snapshot.persons().byCity().forEach((city, persons) -> {
+            int from = size[0];
+            for (Person person : persons) {
+                birthDays[size[0]++] = birthDayOf(snapshot, person);
+            }
+            cities.put(city, new Range(from, size[0]));
+        });
+        return new BirthdateColumn(snapshot.day(), birthDays, cities);
+    }
+
+    private static int birthDayOf(DataSnapshot snapshot, Person person) {
+        MedicalrecordRepository.Entry entry = snapshot.medicalrecords().byName()
+                .get(new NameKey(person.getLastName(), person.getFirstName()));
+        return entry == null || entry.birthDay() == MedicalrecordRepository.Entry.NO_BIRTHDATE
+                ? UNKNOWN
+                : entry.birthDay();
+    }
+
+    /**
+     * Returns the day the ages are computed for : the day of the snapshot
+     *
+     * @return the epoch day
+     */
+    public int day() {
+        return day;
+    }
+
+    /**
+     * Returns the number of persons of a city
+     *
+     * @param city the city, or null for every person
+     * @return the number of persons
+     */
+    public int size(String city) {
+        Range range = rangeOf(city);
+        return range.to() - range.from();
+    }
+
+    /**
+     * Counts the persons of a city per age group
+     * With bounds a0 < a1 < ... < ak-1, group 0 counts the persons younger than a0, group i the persons
+     * aged from ai-1 to ai excluded, and group k the persons aged ak-1 or more.
+     *
+     * @param city      the city, or null for every person
+     * @param ageBounds the group bounds, in ascending order
+     * @return the counts, one per group
+     */
+    public int[] countByAge(String city, int... ageBounds) {
+        LocalDate today = LocalDate.ofEpochDay(day);
+
+        // Oldest group first : the older the age, the earlier the last birth day
+        int[] dayBounds = new int[ageBounds.length];
+        for (int i = 0; i < ageBounds.length; i++) {
+            dayBounds[ageBounds.length - 1 - i] = Ages.lastBirthDay(today, ageBounds[i]);
+        }
+
+        Range range = rangeOf(city);
+        int[] byDay = IntColumns.histogram(birthDays, range.from(), range.to(), dayBounds);
+
+        int[] byAge = new int[byDay.length];
+        for (int i = 0; i < byDay.length; i++) {
+            byAge[i] = byDay[byDay.length - 1 - i];
+        }
+        return byAge;
+    }
+
+    private Range rangeOf(String city) {
+        if (city == null) {
+            return new Range(0, birthDays.length);
+        }
+        return cities.getOrDefault(city, new Range(0, 0));
+    }
+}
@@ -0,0 +1,237 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.IntObjectMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Station views of a snapshot, and their incremental maintenance
+ * Each change of the repositories updates only the views of the stations covering the addresses it
+ * touches, against the snapshot the change produced. The minor / major counts hold for the day of that
+ * snapshot.
+ * Stations are few : the station map is copied on each change and never modified once published.
+ */
+final class CoverageViews {
+
+    static final CoverageViews EMPTY = new CoverageViews(new IntObjectMap<>());
+
+    private final IntObjectMap<StationView> stations;
+
+    private CoverageViews(IntObjectMap<StationView> stations) {
+        this.stations = stations;
+    }
+
+    /**
+     * Computes the views of every station of a snapshot from scratch
+     *
+     * @param snapshot the snapshot
+     * @return the views
+     */
+    static CoverageViews build(DataSnapshot snapshot) {
+        IntObjectMap<List<Firestation>> byStation = snapshot.firestations().byStation();
+        IntObjectMap<StationView> stations = new IntObjectMap<>(byStation.size());
+
+        for (int station : byStation.keys()) {
+            StationView view = StationView.empty(station).withMappings(byStation.get(station));
+            for (String address : view.addresses()) {
+                view = covered(snapshot, view, address);
+            }
+            stations.put(station, view);
+        }
+        return new CoverageViews(stations);
+    }
+
+    /**
+     * Returns the view of a station, empty if the station covers no address
+     *
+     * @param station the station number
+     * @return the view
+     */
+    StationView station(int station) {
+        StationView view = stations.get(station);
+        return view != null ? view : StationView.empty(station);
+    }
+
+    /**
+     * Updates the views for persons removed and added
+     * An updated person is removed in its previous version, then added in the new one.
+     *
+     * @param after   the snapshot with the persons changed
+     * @param removed the persons removed
+     * @param added   the persons added
+     * @return the updated views
+     */
+    CoverageViews personsChanged(DataSnapshot after, Collection<Person> removed, Collection<Person> added) {
+        IntObjectMap<StationView> changed = null;
+
+        for (Person person : removed) {
+            changed = personCounted(after, changed, person, -1);
+        }
+        for (Person person : added) {
+            changed = personCounted(after, changed, person, 1);
+        }
+        return changed == null ? this : new CoverageViews(changed);
+    }
+
+    private IntObjectMap<StationView> personCounted(DataSnapshot after, IntObjectMap<StationView> changed,
+                                                    Person person, int delta) {
+        String address = person.getAddress();
+        List<Person> household = after.persons().byAddress().getOrDefault(address, List.of());
+        boolean minor = after.isMinor(nameOf(person));
+
+        for (int station : stationsOf(after, address)) {
+            if (changed == null) {
+                changed = stations.copy();
+            }
+            StationView view = changed.get(station);
+            if (view != null) {
+                changed.put(station, view.withHousehold(address, household).counted(person, minor, delta));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Updates the views for firestation mappings removed and added
+     *
+     * @param after   the snapshot with the mappings changed
+     * @param removed the mappings removed
+     * @param added   the mappings added
+     * @return the updated views
+     */
+    CoverageViews firestationsChanged(DataSnapshot after, Collection<Firestation> removed,
+                                      Collection<Firestation> added) {
+        Set<Integer> touched = new LinkedHashSet<>();
+        for (Firestation firestation : removed) {
+            touched.add(firestation.getStation());
+        }
+        for (Firestation firestation : added) {
+            touched.add(firestation.getStation());
+        }
+        if (touched.isEmpty()) {
+            return this;
+        }
+
+        IntObjectMap<StationView> changed = stations.copy();
+        for (int station : touched) {
+            List<Firestation> mappings = after.firestations().byStation().getOrDefault(station, List.of());
+            if (mappings.isEmpty()) {
+                changed.remove(station);
+                continue;
+            }
+
+            StationView view = station(station).withMappings(mappings);
+            for (String address : addressesOf(removed, station)) {
+                if (view.covers(address) && !isCovered(after, address, station)) {
+                    view = uncovered(after, view, address);
+                }
+            }
+            for (String address : addressesOf(added, station)) {
+                if (!view.covers(address) && isCovered(after, address, station)) {
+                    view = covered(after, view, address);
+                }
+            }
+            changed.put(station, view);
+        }
+        return new CoverageViews(changed);
+    }
+
+    /**
+     * Updates the views for persons whose classification may have changed : their medicalrecord changed,
+     * or they came of age
+     *
+     * @param before the snapshot before the change
+     * @param after  the snapshot after the change
+     * @param names  the names of the persons
+     * @return the updated views
+     */
+    CoverageViews reclassified(DataSnapshot before, DataSnapshot after, Collection<NameKey> names) {
+        IntObjectMap<StationView> changed = null;
+
+        for (NameKey name : names) {
+            PersonRepository.Entry entry = after.persons().byName().get(name);
+            if (entry == null) {
+                continue;
+            }
+
+            boolean wasMinor = before.isMinor(name);
+            boolean minor = after.isMinor(name);
+            if (wasMinor == minor) {
+                continue;
+            }
+
+            for (int station : stationsOf(after, entry.person().getAddress())) {
+                if (changed == null) {
+                    changed = stations.copy();
+                }
+                StationView view = changed.get(station);
+                if (view != null) {
+                    changed.put(station, view.reclassified(wasMinor, minor));
+                }
+            }
+        }
+        return changed == null ? this : new CoverageViews(changed);
+    }
+
+    /**
+     * Adds a newly covered address, and counts its residents in
+     */
+    private static StationView covered(DataSnapshot snapshot, StationView view, String address) {
+        List<Person> household = snapshot.persons().byAddress().getOrDefault(address, List.of());
+        view = view.withHousehold(address, household);
+        for (Person person : household) {
+            view = view.counted(person, snapshot.isMinor(nameOf(person)), 1);
+        }
+        return view;
+    }
+
+    /**
+     * Removes an address no longer covered, and counts its residents out
+     */
+    private static StationView uncovered(DataSnapshot snapshot, StationView view, String address) {
+        for (Person person : view.household(address)) {
+            view = view.counted(person, snapshot.isMinor(nameOf(person)), -1);
+        }
+        return view.withoutHousehold(address);
+    }
+
+    private static NameKey nameOf(Person person) {
+        return new NameKey(person.getLastName(), person.getFirstName());
+    }
+
+    /**
+     * Returns the distinct stations covering an address
+     */
+    private static Set<Integer> stationsOf(DataSnapshot snapshot, String address) {
+        Set<Integer> covering = new LinkedHashSet<>();
+        for (FirestationRepository.Entry entry : snapshot.firestations().byAddress().getOrDefault(address, List.of())) {
+            covering.add(entry.firestation().getStation());
+        }
+        return covering;
+    }
+
+    private static boolean isCovered(DataSnapshot snapshot, String address, int station) {
+        for (FirestationRepository.Entry entry : snapshot.firestations().byAddress().getOrDefault(address, List.of())) {
+            if (entry.firestation().getStation() == station) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> addressesOf(Collection<Firestation> firestations, int station) {
+        List<String> addresses = new ArrayList<>();
+        for (Firestation firestation : firestations) {
+            if (firestation.getStation() == station) {
+                addresses.add(firestation.getAddress());
+            }
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,357 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.persistence.Dataset;
+import com.safetynet.alerts.persistence.Snapshot;
+import com.safetynet.alerts.persistence.SnapshotFile;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Loads the data source, or its binary snapshot, into the three repositories at startup,
+ * then replays the changes logged since in the write-ahead log
+ * The file is streamed once, record by record : records are grouped in batches which are validated and
+ * inserted either on the parsing thread, or by loader workers when more than one thread is configured.
+ * At most two batches per worker are waiting at any time, so the memory used by the load is bounded
+ * by the batch size and not by the size of the file.
+ */
+@Component
+public class DataLoader {
+    private static final Logger logger = LogManager.getLogger(DataLoader.class);
+
+    private final CustomProperties properties;
+    private final PersonRepository personRepository;
+    private final FirestationRepository firestationRepository;
+    private final MedicalrecordRepository medicalrecordRepository;
+    private final MutationJournal journal;
+    private final RepositorySet repositories;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .build();
+
+    /**
+     * Constructor
+     *
+     * @param properties              reference to external properties file
+     * @param personRepository        the repository receiving the persons section
+     * @param firestationRepository   the repository receiving the firestations section
+     * @param medicalrecordRepository the repository receiving the medicalrecords section
+     * @param journal                 the write-ahead log replayed on top of the data source
+     */
+    public DataLoader(CustomProperties properties,
+                      PersonRepository personRepository,
+                      FirestationRepository firestationRepository,
+                      MedicalrecordRepository medicalrecordRepository,
+                      MutationJournal journal) {
+        this.properties = properties;
+        this.personRepository = personRepository;
+        this.firestationRepository = firestationRepository;
+        this.medicalrecordRepository = medicalrecordRepository;
+        this.journal = journal;
+        this.repositories = new RepositorySet(personRepository, firestationRepository, medicalrecordRepository);
+    }
+
+    /**
+     * Fills the repositories at startup
+     * A valid snapshot of the current data source is preferred. Otherwise the data source is parsed,
+     * and a snapshot is written for the next start when a snapshot file is configured.
+     * The changes logged after the snapshot are then replayed on top of it.
+     */
+    @PostConstruct
+    public void load() {
+        logger.debug("Method called : load()");
+        long start = System.nanoTime();
+
+        ClassPathResource resource = new ClassPathResource(properties.getDataSource());
+        Path snapshotPath = snapshotPath();
+        long fingerprint = fingerprint(resource);
+
+        Optional<Snapshot> snapshot = snapshotPath == null ? Optional.empty() : SnapshotFile.read(snapshotPath);
+        if (snapshot.isPresent() && snapshot.get().fingerprint() != fingerprint && snapshot.get().lastSequence() == 0) {
+            logger.info("Snapshot ignored, built from another data source : " + snapshotPath);
+            snapshot = Optional.empty();
+        }
+
+        long replayFrom = 0;
+        if (snapshot.isPresent()) {
+            if (snapshot.get().fingerprint() != fingerprint) {
+                // The log records compacted into the snapshot are gone : the snapshot is the only copy of them
+                logger.warn("Data source changed, but the snapshot holds compacted changes and is kept : "
+                        + snapshotPath);
+            }
+            repositories.load(snapshot.get().dataset());
+            replayFrom = snapshot.get().lastSequence();
+
+            logger.info("Snapshot loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } else {
+            try (InputStream dataSource = resource.getInputStream()) {
+                load(dataSource);
+            } catch (IOException ioException) {
+                logger.error(ioException.getMessage(), ioException);
+                return;
+            }
+
+            logger.info("Data source loaded in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            if (snapshotPath != null) {
+                try {
+                    SnapshotFile.write(snapshotPath, dataset(), fingerprint);
+                } catch (IOException ioException) {
+                    logger.error("Snapshot not written : " + ioException.getMessage(), ioException);
+                }
+            }
+        }
+
+        journal.replay(replayFrom, repositories::apply);
+    }
+
+    /**
+     * Returns the current content of the repositories
+     *
+     * @return the dataset of the three repositories
+     */
+    public Dataset dataset() {
+        return repositories.dataset();
+    }
+
+    private Path snapshotPath() {
+        String snapshotFile = properties.getSnapshotFile();
+        return snapshotFile == null || snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    }
+
+    /**
+     * Identifies the version of the data source, so that a snapshot of an older data source is not loaded
+     *
+     * @param resource the data source
+     * @return a fingerprint of the data source size and modification date
+     */
+    private static long fingerprint(ClassPathResource resource) {
+        try {
+            return resource.contentLength() * 31 + resource.lastModified();
+        } catch (IOException ioException) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads a JSON document and fills the repositories
+     *
+     * @param dataSource the stream of the JSON document
+     * @throws IOException if the document can not be read or a batch failed
+     */
+    public void load(InputStream dataSource) throws IOException {
+        int threads = Math.max(1, properties.getLoaderThreads());
+        int batchSize = Math.max(1, properties.getLoaderBatchSize());
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(dataSource);
+             BatchDispatcher dispatcher = new BatchDispatcher(threads)) {
+
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Data source should be a JSON object");
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String section = parser.getCurrentName();
+                parser.nextToken();
+
+                switch (section) {
+                    case "persons" -> readSection(parser, section, Person.class, batchSize,
+                            personRepository, personRepository::loadAll, dispatcher);
+                    case "firestations" -> readSection(parser, section, Firestation.class, batchSize,
+                            firestationRepository, firestationRepository::loadAll, dispatcher);
+                    case "medicalrecords" -> readSection(parser, section, Medicalrecord.class, batchSize,
+                            medicalrecordRepository, medicalrecordRepository::loadAll, dispatcher);
+                    default -> {
+                        logger.warn("Unknown section ignored : " + section);
+                        parser.skipChildren();
+                    }
+                }
+            }
+
+            dispatcher.awaitCompletion();
+        }
+    }
+
+    /**
+     * Reads the array the parser is positioned on, one record at a time, and dispatches full batches
+     *
+     * @param parser     the parser, positioned on the START_ARRAY token of the section
+     * @param section    the name of the section, for logging
+     * @param clazz      the type of the records
+     * @param batchSize  the number of records per batch
+     * @param validator  the repository validation rules
+     * @param sink       the repository bulk insert
+     * @param dispatcher runs the batches
+     */
+    private <T> void readSection(JsonParser parser,
+                                 String section,
+                                 Class<T> clazz,
+                                 int batchSize,
+                                 IUsable<T> validator,
+                                 Consumer<List<T>> sink,
+                                 BatchDispatcher dispatcher) throws IOException {
+
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Section should be an array : " + section);
+        }
+
+        ObjectReader reader = objectMapper.readerFor(clazz);
+        AtomicLong loaded = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+
+        List<T> batch = new ArrayList<>(batchSize);
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            batch.add(reader.readValue(parser));
+
+            if (batch.size() == batchSize) {
+                dispatcher.submit(insertTask(batch, validator, sink, loaded, rejected));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            dispatcher.submit(insertTask(batch, validator, sink, loaded, rejected));
+        }
+
+        dispatcher.whenSectionDone(() -> logger.info("Section " + section + " : "
+                + loaded.get() + " loaded, " + rejected.get() + " rejected"));
+    }
+
+    /**
+     * Validates a batch and inserts its valid records
+     */
+    private static <T> Runnable insertTask(List<T> batch,
+                                           IUsable<T> validator,
+                                           Consumer<List<T>> sink,
+                                           AtomicLong loaded,
+                                           AtomicLong rejected) {
+        return () -> {
+            List<T> valid = new ArrayList<>(batch.size());
+            for (T record : batch) {
+                if (isValid(validator, record)) {
+                    valid.add(record);
+                } else {
+                    logger.warn("Invalid record rejected : " + record);
+                }
+            }
+
+            sink.accept(valid);
+            loaded.addAndGet(valid.size());
+            rejected.addAndGet(batch.size() - valid.size());
+        };
+    }
+
+    private static <T> boolean isValid(IUsable<T> validator, T record) {
+        try {
+            return !validator.isNotValid(record);
+        } catch (NullPointerException npe) {
+            // A mandatory field is missing from the record
+            return false;
+        }
+    }
+
+    /**
+     * Runs insert tasks inline, or on a fixed pool of workers with a bounded number of pending batches
+     */
+    private static final class BatchDispatcher implements AutoCloseable {
+        private final ExecutorService workers;
+        private final Semaphore pendingBatches;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final List<Runnable> sectionCallbacks = new ArrayList<>();
+
+        BatchDispatcher(int threads) {
+            this.workers = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+            this.pendingBatches = new Semaphore(threads * 2);
+        }
+
+        void submit(Runnable task) throws IOException {
+            rethrowFailure();
+
+            if (workers == null) {
+                task.run();
+                return;
+            }
+
+            try {
+                pendingBatches.acquire();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading", interruptedException);
+            }
+
+            workers.execute(() -> {
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    failure.compareAndSet(null, throwable);
+                } finally {
+                    pendingBatches.release();
+                }
+            });
+        }
+
+        void whenSectionDone(Runnable callback) {
+            if (workers == null) {
+                callback.run();
+            } else {
+                sectionCallbacks.add(callback);
+            }
+        }
+
+        void awaitCompletion() throws IOException {
+            if (workers != null) {
+                workers.shutdown();
+                try {
+                    if (!workers.awaitTermination(1, TimeUnit.HOURS)) {
+                        throw new IOException("Timed out while loading");
+                    }
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while loading", interruptedException);
+                }
+                sectionCallbacks.forEach(Runnable::run);
+            }
+            rethrowFailure();
+        }
+
+        private void rethrowFailure() throws IOException {
+            Throwable throwable = failure.get();
+            if (throwable != null) {
+                throw new IOException("Loader worker failed", throwable);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, versioned content of the three repositories
+ * Built on persistent maps : a change produces a new snapshot sharing every untouched part with the
+ * previous one, which stays valid for the readers still holding it.
+ * The station views and households derived from the three tables are part of the snapshot : the changes
+ * given with their removed and added values keep them up to date, in the same version as the tables.
+ * Their minor / major classification holds for the day of the snapshot, moved on by rollOver at midnight.
+ * Each change also bumps the versions of the stations, addresses and cities it touches, so that answers
+ * derived from them can tell whether they are still current.
+ * Not to be confused with the snapshot file, which persists the content on disk.
+ */
+public final class DataSnapshot {
+
+
+    private final long version;
+    private final int day;
+    private final PersonRepository.Table persons;
+    private final FirestationRepository.Table firestations;
+    private final MedicalrecordRepository.Table medicalrecords;
+    private final CoverageViews coverage;
+    private final HouseholdViews households;
+    private final DataVersions versions;
+
+    // Derived on demand : most snapshots are replaced before any population-wide question is asked
+    private volatile BirthdateColumn birthdates;
+
+    private DataSnapshot(long version,
+                         int day,
+                         PersonRepository.Table persons,
+                         FirestationRepository.Table firestations,
+                         MedicalrecordRepository.Table medicalrecords,
+                         CoverageViews coverage,
+                         HouseholdViews households,
+                         DataVersions versions) {
+        this.version = version;
+        this.day = day;
+        this.persons = persons;
+        this.firestations = firestations;
+        this.medicalrecords = medicalrecords;
+        this.coverage = coverage;
+        this.households = households;
+        this.versions = versions;
+    }
+
+    /**
+     * Returns the snapshot of a new store, without content
+     *
+     * @param day the epoch day its classification holds for
+     * @return the empty snapshot
+     */
+    static DataSnapshot empty(int day) {
+        return new DataSnapshot(0, day,
+                PersonRepository.Table.EMPTY, FirestationRepository.Table.EMPTY, MedicalrecordRepository.Table.EMPTY,
+                CoverageViews.EMPTY, HouseholdViews.EMPTY, DataVersions.EMPTY);
+    }
+
+    /**
+     * Returns the version of the content, incremented by each published batch of changes
+     *
+     * @return the version
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Returns the versions of the stations, addresses and cities, bumped by the changes touching them
+     *
+     * @return the versions
+     */
+    public DataVersions versions() {
+        return versions;
+    }
+
+    /**
+     * Returns the day the minor / major classification of the views holds for
+     *
+     * @return the epoch day
+     */
+    public int day() {
+        return day;
+    }
+
+    PersonRepository.Table persons() {
+        return persons;
+    }
+
+    FirestationRepository.Table firestations() {
+        return firestations;
+    }
+
+    MedicalrecordRepository.Table medicalrecords() {
+        return medicalrecords;
+    }
+
+    CoverageViews coverage() {
+        return coverage;
+    }
+
+    HouseholdViews households() {
+        return households;
+    }
+
+    /**
+     * Returns the birth days of the persons, built on the first call
+     *
+     * @return the column
+     */
+    BirthdateColumn birthdates() {
+        BirthdateColumn column = birthdates;
+        if (column == null) {
+            column = BirthdateColumn.build(this);
+            birthdates = column;
+        }
+        return column;
+    }
+
+    /**
+     * Returns whether the person of a name is minor on the day of the snapshot
+     * A person without medicalrecord has age 0, and is therefore minor.
+     *
+     * @param name the name of the person
+     * @return true if the person is minor, false otherwise
+     */
+    boolean isMinor(NameKey name) {
+        MedicalrecordRepository.Entry entry = medicalrecords.byName().get(name);
+        return entry == null || entry.isMinorOn(day);
+    }
+
+    DataSnapshot withVersion(long version) {
+        return new DataSnapshot(version, day, persons, firestations, medicalrecords, coverage, households,
+                versions);
+    }
+
+    /**
+     * Returns this snapshot moved on to a later day
+     * Only the persons coming of age between the two days are reclassified, taken in majority day order
+     * from the majority index. Going back in time recomputes the views from scratch.
+     *
+     * @param today the new day
+     * @return the new snapshot, or this snapshot if already on that day
+     */
+    DataSnapshot rolledOver(int today) {
+        if (today == day) {
+            return this;
+        }
+
+        DataSnapshot after = new DataSnapshot(version, today, persons, firestations, medicalrecords,
+                coverage, households, versions);
+        if (today < day) {
+            return after.withViews(CoverageViews.build(after), HouseholdViews.build(after));
+        }
+
+        List<NameKey> comingOfAge = new ArrayList<>();
+        medicalrecords.byMajority().forEach(MedicalrecordRepository.MajorityKey.first(day + 1),
+                MedicalrecordRepository.MajorityKey.first(today + 1),
+                (key, entry) -> comingOfAge.add(new NameKey(entry.medicalrecord().getLastName(),
+                        entry.medicalrecord().getFirstName())));
+        return after.withViews(coverage.reclassified(this, after, comingOfAge),
+                households.reclassified(this, after, comingOfAge));
+    }
+
+    /**
+     * Returns this snapshot with a new person table, and the views updated accordingly
+     *
+     * @param persons the new table
+     * @param removed the persons no longer in the table, or in their previous version
+     * @param added   the persons new to the table, or in their updated version
+     * @return the new snapshot
+     */
+    DataSnapshot with(PersonRepository.Table persons, Collection<Person> removed, Collection<Person> added) {
+        DataSnapshot after = new DataSnapshot(version, day, persons, firestations, medicalrecords,
+                coverage, households, versions);
+        Scopes scopes = new Scopes();
+        for (Person person : removed) {
+            scopes.person(after, person);
+        }
+        for (Person person : added) {
+            scopes.person(after, person);
+        }
+        return after.withViews(coverage.personsChanged(after, removed, added),
+                households.personsChanged(after, removed, added), scopes);
+    }
+
+    /**
+     * Returns this snapshot with a new firestation table, and the views updated accordingly
+     *
+     * @param firestations the new table
+     * @param removed      the mappings no longer in the table, or in their previous version
+     * @param added        the mappings new to the table, or in their updated version
+     * @return the new snapshot
+     */
+    DataSnapshot with(FirestationRepository.Table firestations, Collection<Firestation> removed,
+                      Collection<Firestation> added) {
+        DataSnapshot after = new DataSnapshot(version, day, persons, firestations, medicalrecords,
+                coverage, households, versions);
+        Scopes scopes = new Scopes();
+        for (Firestation firestation : removed) {
+            scopes.mapping(firestation);
+        }
+        for (Firestation firestation : added) {
+            scopes.mapping(firestation);
+        }
+        return after.withViews(coverage.firestationsChanged(after, removed, added),
+                households.firestationsChanged(after, removed, added), scopes);
+    }
+
+    /**
+     * Returns this snapshot with a new medicalrecord table, and the views updated accordingly
+     *
+     * @param medicalrecords the new table
+     * @param changed        the medicalrecords saved, updated or deleted
+     * @return the new snapshot
+     */
+    DataSnapshot with(MedicalrecordRepository.Table medicalrecords, Collection<Medicalrecord> changed) {
+        Set<NameKey> names = new LinkedHashSet<>();
+        for (Medicalrecord medicalrecord : changed) {
+            names.add(new NameKey(medicalrecord.getLastName(), medicalrecord.getFirstName()));
+        }
+        DataSnapshot after = new DataSnapshot(version, day, persons, firestations, medicalrecords,
+                coverage, households, versions);
+        Scopes scopes = new Scopes();
+        for (NameKey name : names) {
+            PersonRepository.Entry entry = persons.byName().get(name);
+            if (entry != null) {
+                scopes.residence(after, entry.person().getAddress());
+            }
+        }
+        return after.withViews(coverage.reclassified(this, after, names),
+                households.reclassified(this, after, names), scopes);
+    }
+
+    private DataSnapshot withViews(CoverageViews coverage, HouseholdViews households) {
+        return new DataSnapshot(version, day, persons, firestations, medicalrecords, coverage, households,
+                versions);
+    }
+
+    private DataSnapshot withViews(CoverageViews coverage, HouseholdViews households, Scopes scopes) {
+        return new DataSnapshot(version, day, persons, firestations, medicalrecords, coverage, households,
+                versions.bumped(scopes.stations, scopes.addresses, scopes.cities));
+    }
+
+    /**
+     * Stations, addresses and cities touched by a change, gathered before their versions are bumped
+     */
+    private static final class Scopes {
+        private final Set<Integer> stations = new LinkedHashSet<>();
+        private final Set<String> addresses = new LinkedHashSet<>();
+        private final Set<String> cities = new LinkedHashSet<>();
+
+        /**
+         * A person added, removed or updated : its address and the stations covering it, and its city
+         */
+        void person(DataSnapshot snapshot, Person person) {
+            residence(snapshot, person.getAddress());
+            cities.add(person.getCity());
+        }
+
+        /**
+         * A change of the residents of an address, or of their medicalrecords
+         */
+        void residence(DataSnapshot snapshot, String address) {
+            addresses.add(address);
+            List<FirestationRepository.Entry> mappings =
+                    snapshot.firestations().byAddress().getOrDefault(address, List.of());
+            for (FirestationRepository.Entry entry : mappings) {
+                stations.add(entry.firestation().getStation());
+            }
+        }
+
+        /**
+         * A firestation mapping added or removed : its station, and the stations of its address
+         */
+        void mapping(Firestation firestation) {
+            stations.add(firestation.getStation());
+            addresses.add(firestation.getAddress());
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.util.StringDictionary;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Publishes the content of the three repositories as a single immutable snapshot
+ * Readers never lock : they read the last published snapshot, or the one pinned for their query.
+ * Writers never change it themselves : their changes go through a bounded queue to a single writer
+ * thread, which applies them in batches and publishes one new version per batch. Writers therefore
+ * never contend with each other, and block only while the queue is full.
+ */
+@Component
+public class DataStore implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(DataStore.class);
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final AtomicReference<DataSnapshot> published;
+
+    // Clock the day of the snapshots is taken from, shared with the AgeRollover
+    private final Clock clock;
+
+    // Snapshot pinned by the query running on the thread, if any
+    private final ThreadLocal<DataSnapshot> pinned = new ThreadLocal<>();
+
+    // Array backed ring buffer of the changes waiting for the writer thread
+    private final BlockingQueue<Write<?>> queue;
+    private final int batchSize;
+
+    private Thread writer;
+    private volatile boolean closed;
+
+    // Repeated string values of the stored objects, shared by the repositories of the store
+    private final StringDictionary dictionary = new StringDictionary();
+
+    // Vocabularies of the medicalrecord lists, with codes dense per list kind
+    private final StringDictionary medications = new StringDictionary();
+    private final StringDictionary allergies = new StringDictionary();
+
+    /**
+     * A change applied by the writer thread : the next snapshot, the result returned to the caller,
+     * and the append of the change to the write-ahead log
+     *
+     * @param snapshot the snapshot with the change applied
+     * @param result   the result of the change
+     * @param logged   completed once the change is on disk, null if not logged
+     */
+    record Update<T>(DataSnapshot snapshot, T result, CompletableFuture<Long> logged) {
+
+        Update(DataSnapshot snapshot, T result) {
+            this(snapshot, result, null);
+        }
+    }
+
+    /**
+     * Constructor of a store with the default queue capacity and batch size
+     */
+    public DataStore() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor of a store with the default queue capacity and batch size, whose snapshots start on the
+     * day of a given clock
+     *
+     * @param clock the clock the day of the snapshots is taken from
+     */
+    DataStore(Clock clock) {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, clock);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param properties reference to external properties file
+     */
+    @Autowired
+    public DataStore(CustomProperties properties) {
+        this(properties.getWriteQueueCapacity(), properties.getWriteBatchSize(), Clock.systemDefaultZone());
+    }
+
+    DataStore(int queueCapacity, int batchSize, Clock clock) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.clock = clock;
+        this.published = new AtomicReference<>(DataSnapshot.empty((int) LocalDate.now(clock).toEpochDay()));
+    }
+
+    Clock clock() {
+        return clock;
+    }
+
+    StringDictionary dictionary() {
+        return dictionary;
+    }
+
+    StringDictionary medications() {
+        return medications;
+    }
+
+    StringDictionary allergies() {
+        return allergies;
+    }
+
+    /**
+     * Returns the snapshot pinned by the running query, or else the last published one
+     *
+     * @return the snapshot to read from
+     */
+    public DataSnapshot current() {
+        DataSnapshot snapshot = pinned.get();
+        return snapshot != null ? snapshot : published.get();
+    }
+
+    /**
+     * Runs a query on a single snapshot : every repository read it makes sees the same content,
+     * whatever is published meanwhile
+     * A query nested in another one reads the snapshot of the outer query.
+     *
+     * @param query the query to run
+     * @return the result of the query
+     */
+    public <T> T read(Supplier<T> query) {
+        if (pinned.get() != null) {
+            return query.get();
+        }
+
+        pinned.set(published.get());
+        try {
+            return query.get();
+        } finally {
+            pinned.remove();
+        }
+    }
+
+    /**
+     * Submits a change to the writer thread and waits until it is published, then until it is on disk
+     * The change sees the snapshot left by the changes queued before it, and may throw to reject itself :
+     * the exception is then rethrown to the caller and the snapshot is left unchanged.
+     *
+     * @param change builds the next snapshot, called once on the writer thread
+     * @return the result of the change
+     */
+    <T> T write(Function<DataSnapshot, Update<T>> change) {
+        Write<T> write = new Write<>(change);
+        try {
+            startWriter();
+            queue.put(write);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queuing a change", interruptedException);
+        }
+        // Closed while queuing : the writer may have stopped before taking the change
+        if (closed && queue.remove(write)) {
+            throw new IllegalStateException("Data store closed");
+        }
+
+        T result;
+        try {
+            result = write.future.join();
+        } catch (CompletionException completionException) {
+            if (completionException.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (completionException.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw completionException;
+        }
+
+        // Waiting for the disk here lets the writer thread go on with the next batch meanwhile
+        if (write.logged != null) {
+            MutationJournal.awaitDurable(write.logged);
+        }
+        return result;
+    }
+
+    private synchronized void startWriter() {
+        if (closed) {
+            throw new IllegalStateException("Data store closed");
+        }
+        if (writer == null) {
+            writer = new Thread(this::drain, "data-store-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Writer thread loop : takes the queued changes by batches, applies them, and publishes the result
+     */
+    private void drain() {
+        List<Write<?>> batch = new ArrayList<>(batchSize);
+        while (!closed) {
+            batch.clear();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException interruptedException) {
+                continue;
+            }
+            queue.drainTo(batch, batchSize - 1);
+
+            DataSnapshot previous = published.get();
+            DataSnapshot snapshot = previous;
+            for (Write<?> write : batch) {
+                snapshot = write.apply(snapshot);
+            }
+            if (snapshot != previous) {
+                published.set(snapshot.withVersion(previous.version() + 1));
+            }
+
+            for (Write<?> write : batch) {
+                write.complete();
+            }
+        }
+
+        List<Write<?>> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Write<?> write : pending) {
+            write.future.completeExceptionally(new IllegalStateException("Data store closed"));
+        }
+    }
+
+    /**
+     * Stops the writer thread once the batch it is applying is published
+     */
+    @PreDestroy
+    @Override
+    public void close() {
+        Thread stopped;
+        synchronized (this) {
+            closed = true;
+            stopped = writer;
+        }
+        if (stopped == null) {
+            return;
+        }
+
+        stopped.interrupt();
+        try {
+            stopped.join();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while stopping the data store writer");
+        }
+    }
+
+    /**
+     * A queued change, and its outcome once applied
+     */
+    private static final class Write<T> {
+        private final Function<DataSnapshot, Update<T>> change;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private CompletableFuture<Long> logged;
+        private Throwable failure;
+
+        Write(Function<DataSnapshot, Update<T>> change) {
+            this.change = change;
+        }
+
+        DataSnapshot apply(DataSnapshot snapshot) {
+            try {
+                Update<T> update = change.apply(snapshot);
+                result = update.result();
+                logged = update.logged();
+                return update.snapshot();
+            } catch (RuntimeException | Error throwable) {
+                failure = throwable;
+                return snapshot;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
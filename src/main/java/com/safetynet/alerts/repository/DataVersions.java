@@ -0,0 +1,87 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.util.PersistentTreeMap;
+
+import java.util.Collection;
+
+/**
+ * Versions of the parts of a snapshot : one counter per station, per address and per city
+ * A change of the repositories increments the counters of the stations, addresses and cities whose alert
+ * answers it may change, and only those. An answer computed while the counters it depends on had given
+ * values is therefore still valid as long as they keep them, whatever else changed in between.
+ * A scope never changed has version 0. Counters are never removed : a scope emptied then filled again
+ * does not go back to a version already seen.
+ */
+public final class DataVersions {
+
+    static final DataVersions EMPTY = new DataVersions(PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+            PersistentTreeMap.empty());
+
+    private final PersistentTreeMap<Integer, Long> stations;
+    private final PersistentTreeMap<String, Long> addresses;
+    private final PersistentTreeMap<String, Long> cities;
+
+    private DataVersions(PersistentTreeMap<Integer, Long> stations,
+                         PersistentTreeMap<String, Long> addresses,
+                         PersistentTreeMap<String, Long> cities) {
+        this.stations = stations;
+        this.addresses = addresses;
+        this.cities = cities;
+    }
+
+    /**
+     * Returns the version of a station : its addresses, and the persons living there
+     *
+     * @param station the station number
+     * @return the version
+     */
+    public long station(int station) {
+        return stations.getOrDefault(station, 0L);
+    }
+
+    /**
+     * Returns the version of an address : its stations, and the persons living there
+     *
+     * @param address the address
+     * @return the version
+     */
+    public long address(String address) {
+        return address == null ? 0 : addresses.getOrDefault(address, 0L);
+    }
+
+    /**
+     * Returns the version of a city : the persons living there
+     *
+     * @param city the city
+     * @return the version
+     */
+    public long city(String city) {
+        return city == null ? 0 : cities.getOrDefault(city, 0L);
+    }
+
+    /**
+     * Returns these versions with the counters of scopes incremented, once per scope
+     *
+     * @param changedStations  the stations changed
+     * @param changedAddresses the addresses changed
+     * @param changedCities    the cities changed
+     * @return the new versions
+     */
+    DataVersions bumped(Collection<Integer> changedStations, Collection<String> changedAddresses,
+                        Collection<String> changedCities) {
+        if (changedStations.isEmpty() && changedAddresses.isEmpty() && changedCities.isEmpty()) {
+            return this;
+        }
+        return new DataVersions(bumped(stations, changedStations), bumped(addresses, changedAddresses),
+                bumped(cities, changedCities));
+    }
+
+    private static <K> PersistentTreeMap<K, Long> bumped(PersistentTreeMap<K, Long> versions, Collection<K> scopes) {
+        for (K scope : scopes) {
+            if (scope != null) {
+                versions = versions.plus(scope, versions.getOrDefault(scope, 0L) + 1);
+            }
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,66 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.util.StringDictionary;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint /actuator/dictionary : the heap saved by sharing the repeated values of the persons and
+ * firestations through the dictionary of the DataStore, and by storing the medical lists as vocabulary codes
+ * The savings are estimates, from the string layout of a 64-bit JVM with compressed references, and count
+ * every copy replaced since startup, including those of objects deleted since.
+ */
+@Component
+@Endpoint(id = "dictionary")
+public class DictionaryEndpoint {
+
+    private final DataStore store;
+
+    /**
+     * Statistics of the dictionary
+     *
+     * @param values                      the number of distinct values
+     * @param medications                 the number of distinct medications
+     * @param allergies                   the number of distinct allergies
+     * @param references                  the number of values replaced by their dictionary instance
+     * @param savedBytes                  the heap of the copies no longer held
+     * @param overheadBytes               the heap of the dictionary itself
+     * @param persons                     the number of persons stored
+     * @param savedBytesPerMillionPersons the net saving, scaled to a million persons
+     */
+    public record Statistics(int values,
+                             int medications,
+                             int allergies,
+                             long references,
+                             long savedBytes,
+                             long overheadBytes,
+                             int persons,
+                             long savedBytesPerMillionPersons) {
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store the store whose dictionary is reported
+     */
+    public DictionaryEndpoint(DataStore store) {
+        this.store = store;
+    }
+
+    @ReadOperation
+    public Statistics dictionary() {
+        StringDictionary dictionary = store.dictionary();
+        StringDictionary medications = store.medications();
+        StringDictionary allergies = store.allergies();
+
+        long references = dictionary.references() + medications.references() + allergies.references();
+        long savedBytes = dictionary.savedBytes() + medications.savedBytes() + allergies.savedBytes();
+        long overheadBytes = dictionary.overheadBytes() + medications.overheadBytes() + allergies.overheadBytes();
+        int persons = store.current().persons().byName().size();
+
+        long perMillion = persons == 0 ? 0 : (savedBytes - overheadBytes) * 1_000_000 / persons;
+        return new Statistics(dictionary.size(), medications.size(), allergies.size(), references, savedBytes,
+                overheadBytes, persons, perMillion);
+    }
+}
@@ -1,67 +1,201 @@
 package com.safetynet.alerts.repository;
 
 
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.safetynet.alerts.config.CustomProperties;
 import com.safetynet.alerts.exception.InvalidObjectParameterException;
 import com.safetynet.alerts.exception.NotFoundException;
 import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.persistence.Mutation;
+import com.safetynet.alerts.util.IntObjectMap;
+import com.safetynet.alerts.util.PersistentTreeMap;
+import com.safetynet.alerts.util.StringDictionary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Repository of firestations
+ * Its content is a table of the DataStore snapshot : readers never lock, and a stored firestation is
+ * never modified, an update storing a new object in its place.
+ * Changes are checked and applied by the DataStore writer thread.
  */
 @Repository
 public class FirestationRepository implements IFirestationRepository, IUsable<Firestation> {
     private static final Logger logger = LogManager.getLogger(FirestationRepository.class);
 
-    private List<Firestation> firestationRepository;
+    private final DataStore store;
 
-    private final CustomProperties properties;
+    private final MutationJournal journal;
+
+    /**
+     * A stored firestation and its insertion number
+     */
+    record Entry(long insertion, Firestation firestation) {
+    }
+
+    /**
+     * Firestations of a snapshot : by insertion number, iterated by findAll in insertion order,
+     * and by address and station
+     * Stations are few and rarely change : the station index is an IntObjectMap, copied on each change
+     * and never modified once published.
+     */
+    record Table(long insertions,
+                 PersistentTreeMap<Long, Firestation> byInsertion,
+                 PersistentTreeMap<String, List<Entry>> byAddress,
+                 IntObjectMap<List<Firestation>> byStation) {
+
+        static final Table EMPTY = new Table(0, PersistentTreeMap.empty(),
+                PersistentTreeMap.empty(Indexes.STRING_ORDER), new IntObjectMap<>());
+
+        Table plusAll(Collection<Firestation> firestations) {
+            long insertion = insertions;
+            PersistentTreeMap<Long, Firestation> insertionIndex = byInsertion;
+            // Buckets are copied once per batch, not once per firestation
+            Map<String, List<Entry>> addressAdditions = new HashMap<>();
+            IntObjectMap<List<Firestation>> stationAdditions = new IntObjectMap<>();
+
+            for (Firestation firestation : firestations) {
+                insertion++;
+                insertionIndex = insertionIndex.plus(insertion, firestation);
+                addressAdditions.computeIfAbsent(firestation.getAddress(), k -> new ArrayList<>())
+                        .add(new Entry(insertion, firestation));
+                stationAdditions.computeIfAbsent(firestation.getStation(), k -> new ArrayList<>()).add(firestation);
+            }
+
+            PersistentTreeMap<String, List<Entry>> addressIndex = byAddress;
+            for (Map.Entry<String, List<Entry>> addition : addressAdditions.entrySet()) {
+                addressIndex = addressIndex.plus(addition.getKey(),
+                        Indexes.appendedAll(addressIndex.get(addition.getKey()), addition.getValue()));
+            }
+            IntObjectMap<List<Firestation>> stationIndex = byStation.copy();
+            for (int station : stationAdditions.keys()) {
+                stationIndex.put(station, Indexes.appendedAll(stationIndex.get(station), stationAdditions.get(station)));
+            }
+            return new Table(insertion, insertionIndex, addressIndex, stationIndex);
+        }
+
+        Table minus(Entry entry) {
+            Firestation firestation = entry.firestation();
+            IntObjectMap<List<Firestation>> stationIndex = byStation.copy();
+            removeFromStation(stationIndex, firestation);
+
+            List<Entry> bucket = Indexes.removed(byAddress.get(firestation.getAddress()), entry);
+            return new Table(insertions,
+                    byInsertion.minus(entry.insertion()),
+                    bucket == null
+                            ? byAddress.minus(firestation.getAddress())
+                            : byAddress.plus(firestation.getAddress(), bucket),
+                    stationIndex);
+        }
+
+        Table replaced(Entry entry, Firestation updated) {
+            Firestation previous = entry.firestation();
+            Entry updatedEntry = new Entry(entry.insertion(), updated);
+
+            PersistentTreeMap<String, List<Entry>> addressIndex;
+            if (previous.getAddress().equals(updated.getAddress())) {
+                addressIndex = byAddress.plus(updated.getAddress(),
+                        Indexes.replaced(byAddress.get(updated.getAddress()), entry, updatedEntry));
+            } else {
+                List<Entry> bucket = Indexes.removed(byAddress.get(previous.getAddress()), entry);
+                addressIndex = bucket == null
+                        ? byAddress.minus(previous.getAddress())
+                        : byAddress.plus(previous.getAddress(), bucket);
+                addressIndex = addressIndex.plus(updated.getAddress(),
+                        Indexes.appended(addressIndex.get(updated.getAddress()), updatedEntry));
+            }
+
+            IntObjectMap<List<Firestation>> stationIndex = byStation.copy();
+            removeFromStation(stationIndex, previous);
+            stationIndex.put(updated.getStation(), Indexes.appended(stationIndex.get(updated.getStation()), updated));
+
+            return new Table(insertions, byInsertion.plus(entry.insertion(), updated), addressIndex, stationIndex);
+        }
+
+        private static void removeFromStation(IntObjectMap<List<Firestation>> stationIndex, Firestation firestation) {
+            List<Firestation> bucket = Indexes.removed(stationIndex.get(firestation.getStation()), firestation);
+            if (bucket == null) {
+                stationIndex.remove(firestation.getStation());
+            } else {
+                stationIndex.put(firestation.getStation(), bucket);
+            }
+        }
+    }
+
+    /**
+     * Constructor of a repository whose changes are not logged
+     */
+    public FirestationRepository() {
+        this(MutationJournal.disabled());
+    }
+
+    /**
+     * Constructor of a repository with a store of its own
+     *
+     * @param journal the write-ahead log of the changes
+     */
+    public FirestationRepository(MutationJournal journal) {
+        this(new DataStore(), journal);
+    }
 
     /**
      * Constructor
      *
-     * @param properties reference to external properties file
+     * @param store   the store of the snapshot the firestations belong to
+     * @param journal the write-ahead log of the changes
      */
-    public FirestationRepository(CustomProperties properties) {
-        this.properties = properties;
-        try {
-            InputStream dataSource = new ClassPathResource(this.properties.getDataSource()).getInputStream();
+    @Autowired
+    public FirestationRepository(DataStore store, MutationJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(dataSource);
-            JsonNode firestationNode = jsonNode.get("firestations");
+    /**
+     * Bulk inserts a batch of firestations read from the data source
+     * Called at startup by the DataLoader, possibly from several loader workers at once
+     *
+     * @param firestations the firestations to add
+     */
+    void loadAll(Collection<Firestation> firestations) {
+        store.write(snapshot -> {
+            firestations.forEach(this::encode);
+            return new DataStore.Update<>(
+                    snapshot.with(snapshot.firestations().plusAll(firestations), List.of(), firestations), null);
+        });
+    }
 
-            JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, Firestation
-                    .class);
-            this.firestationRepository = objectMapper.readValue(String.valueOf(firestationNode), type);
+    /**
+     * Replaces the address of a mapping by its dictionary instance, shared with the residents of the address
+     * Called on the writer thread, before the mapping is stored.
+     *
+     * @param firestation the mapping to encode
+     */
+    private void encode(Firestation firestation) {
+        firestation.setAddress(store.dictionary().canonical(firestation.getAddress()));
+    }
 
-        } catch (IOException ioException) {
-            logger.error(ioException.getMessage(), ioException);
-        }
+    private Table table() {
+        return store.current().firestations();
     }
 
     /**
-     * Returns an iterable of Firestation objects
+     * Returns a list of Firestation objects, in insertion order
      *
-     * @return the iterable of firestations
+     * @return the firestations stored when called
      */
     @Override
     public Iterable<Firestation> findAll() {
         logger.debug("Method called : findAll()");
-        return firestationRepository;
+        return table().byInsertion().values();
     }
 
     /**
@@ -72,9 +206,12 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
      */
     @Override
     public List<Firestation> findByAddress(String address) {
-        return firestationRepository.stream()
-                .filter(firestation -> firestation.getAddress().equals(address))
-                .collect(Collectors.toList());
+        List<Entry> entries = table().byAddress().getOrDefault(address, List.of());
+        List<Firestation> firestations = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            firestations.add(entry.firestation());
+        }
+        return firestations;
     }
 
     /**
@@ -85,9 +222,22 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
      */
     @Override
     public List<Firestation> findByStation(int station) {
-        return firestationRepository.stream()
-                .filter(firestation -> firestation.getStation() == station)
-                .collect(Collectors.toList());
+        return table().byStation().getOrDefault(station, List.of());
+    }
+
+    /**
+     * Returns the distinct addresses covered by the station provided
+     *
+     * @param station the value of the station field to be matched
+     * @return a set of addresses, in mapping order
+     */
+    @Override
+    public Set<String> findAddressesByStation(int station) {
+        Set<String> addresses = new LinkedHashSet<>();
+        for (Firestation firestation : table().byStation().getOrDefault(station, List.of())) {
+            addresses.add(firestation.getAddress());
+        }
+        return addresses;
     }
 
     /**
@@ -99,9 +249,18 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
      */
     @Override
     public Optional<Firestation> find(String address, int station) {
-        return firestationRepository.stream()
-                .filter(firestation -> firestation.getAddress().equals(address) && firestation.getStation() == station)
-                .findFirst();
+        Entry entry = findEntry(table(), address, station);
+        return entry == null ? Optional.empty() : Optional.of(entry.firestation());
+    }
+
+    private static Entry findEntry(Table table, String address, int station) {
+        // An address is mapped to a handful of stations at most
+        for (Entry entry : table.byAddress().getOrDefault(address, List.of())) {
+            if (entry.firestation().getStation() == station) {
+                return entry;
+            }
+        }
+        return null;
     }
 
     /**
@@ -113,18 +272,32 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
     public boolean delete(Firestation firestation) {
         logger.debug("Method called : delete(" + firestation + ")");
 
-        if (!firestationRepository.remove(firestation)) {
-            logger.error("Not found : " + firestation);
+        if (firestation == null) {
+            logger.error("Not found : " + null);
             throw new NotFoundException("Firestation not found");
         }
 
+        byte[] change = journal.encode(Mutation.Entity.FIRESTATION, Mutation.Operation.DELETE,
+                keyOf(firestation), null);
+        store.write(snapshot -> {
+            Entry entry = findEntry(snapshot.firestations(), firestation.getAddress(), firestation.getStation());
+
+            if (entry == null || entry.firestation() != firestation) {
+                logger.error("Not found : " + firestation);
+                throw new NotFoundException("Firestation not found");
+            }
+
+            return new DataStore.Update<>(snapshot.with(snapshot.firestations().minus(entry),
+                    List.of(firestation), List.of()), firestation,
+                    journal.append(change));
+        });
+
         logger.info("Deleted : " + firestation);
         return true;
     }
 
     /**
      * Deletes a firestation matching address and station fields
-     * Overrides and call delete(Firestation) with the object found
      *
      * @param address the value of the address field to be matched
      * @param station the value of the station field to be matched
@@ -134,20 +307,29 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
         logger.debug("Method called : delete("
                 + address + ", " + station + ")");
 
-        Optional<Firestation> firestation = find(address, station);
+        byte[] change = journal.encode(Mutation.Entity.FIRESTATION, Mutation.Operation.DELETE,
+                List.of(address, String.valueOf(station)), null);
+        Firestation deleted = store.write(snapshot -> {
+            Entry entry = findEntry(snapshot.firestations(), address, station);
 
-        if (firestation.isEmpty()) {
-            logger.error("Firestation not found :" +
-                    " { address: " + address + ", station: " + station + " }");
-            throw new NotFoundException("Firestation not found");
-        }
+            if (entry == null) {
+                logger.error("Firestation not found :" +
+                        " { address: " + address + ", station: " + station + " }");
+                throw new NotFoundException("Firestation not found");
+            }
 
-        delete(firestation.get());
+            return new DataStore.Update<>(snapshot.with(snapshot.firestations().minus(entry),
+                    List.of(entry.firestation()), List.of()), entry.firestation(),
+                    journal.append(change));
+        });
+
+        logger.info("Deleted : " + deleted);
         return true;
     }
 
     /**
      * Updates the firestation matching the address and field parameters
+     * The stored firestation is replaced by a new object, at the same place in insertion order
      *
      * @param address     the value of the address field to be matched
      * @param station     the value of the station field to be matched
@@ -164,20 +346,31 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
             throw new InvalidObjectParameterException("Invalid parameter");
         }
 
-        Firestation toUpdate = find(address, station).orElse(null);
+        Firestation updated = new Firestation();
+        updated.setAddress(firestation.getAddress());
+        updated.setStation(firestation.getStation());
 
-        if (toUpdate == null) {
-            logger.error("Firestation not found :" +
-                    " { address: " + address + ", station: " + station + " }");
-            throw new NotFoundException("Firestation not found");
-        }
+        byte[] change = journal.encode(Mutation.Entity.FIRESTATION, Mutation.Operation.UPDATE,
+                List.of(address, String.valueOf(station)), updated);
+        store.write(snapshot -> {
+            Entry entry = findEntry(snapshot.firestations(), address, station);
+
+            if (entry == null) {
+                logger.error("Firestation not found :" +
+                        " { address: " + address + ", station: " + station + " }");
+                throw new NotFoundException("Firestation not found");
+            }
+
+            encode(updated);
+            return new DataStore.Update<>(snapshot.with(snapshot.firestations().replaced(entry, updated),
+                    List.of(entry.firestation()), List.of(updated)), updated,
+                    journal.append(change));
+        });
 
-        toUpdate.setAddress(firestation.getAddress());
-        toUpdate.setStation(firestation.getStation());
         logger.info("Firestation updated :" +
-                " {address=" + address + ":station=" + station + "} -> " + toUpdate);
+                " {address=" + address + ":station=" + station + "} -> " + updated);
 
-        return toUpdate;
+        return updated;
     }
 
     /**
@@ -195,16 +388,28 @@ public class FirestationRepository implements IFirestationRepository, IUsable<Fi
             throw new InvalidObjectParameterException("Invalid parameter");
         }
 
-        if (find(firestation.getAddress(), firestation.getStation()).isPresent()) {
-            logger.error("Already exists : " + firestation);
-            throw new IllegalStateException("Firestation already exists");
-        }
+        byte[] change = journal.encode(Mutation.Entity.FIRESTATION, Mutation.Operation.SAVE,
+                keyOf(firestation), firestation);
+        store.write(snapshot -> {
+            if (findEntry(snapshot.firestations(), firestation.getAddress(), firestation.getStation()) != null) {
+                logger.error("Already exists : " + firestation);
+                throw new IllegalStateException("Firestation already exists");
+            }
+
+            encode(firestation);
+            return new DataStore.Update<>(snapshot.with(snapshot.firestations().plusAll(List.of(firestation)),
+                    List.of(), List.of(firestation)),
+                    firestation, journal.append(change));
+        });
 
-        firestationRepository.add(firestation);
         logger.info("Added : " + firestation);
         return firestation;
     }
 
+    private static List<String> keyOf(Firestation firestation) {
+        return List.of(firestation.getAddress(), String.valueOf(firestation.getStation()));
+    }
+
     @Override
     public boolean isNotValid(Firestation firestation) {
         // No address field ? Empty address field ? station field < 0 ?
@@ -0,0 +1,110 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.PersistentTreeMap;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Materialized household of an address : its residents, which of them are minor, and the stations
+ * covering it
+ * A household is immutable, and replaced by the DataStore writer thread whenever a change touches its
+ * residents, their medicalrecords or the mappings of its address.
+ */
+public final class Household {
+
+    private final String address;
+
+    // Bucket of the person address index
+    private final List<Person> residents;
+
+    // Minor residents, with the number of their versions counted in while a person is moved or updated
+    private final PersistentTreeMap<NameKey, Integer> minors;
+
+    // Bucket of the firestation address index
+    private final List<FirestationRepository.Entry> mappings;
+
+    private volatile Set<Integer> stations;
+
+    private Household(String address, List<Person> residents, PersistentTreeMap<NameKey, Integer> minors,
+                      List<FirestationRepository.Entry> mappings) {
+        this.address = address;
+        this.residents = residents;
+        this.minors = minors;
+        this.mappings = mappings;
+    }
+
+    static Household empty(String address) {
+        return new Household(address, List.of(), PersistentTreeMap.empty(), List.of());
+    }
+
+    public String address() {
+        return address;
+    }
+
+    /**
+     * Returns the residents of the address
+     *
+     * @return the residents, in address index order
+     */
+    public List<Person> residents() {
+        return residents;
+    }
+
+    public int minors() {
+        return minors.size();
+    }
+
+    public boolean hasChildren() {
+        return !minors.isEmpty();
+    }
+
+    /**
+     * Returns whether a resident is minor, as classified for the day of the snapshot
+     *
+     * @param resident the resident
+     * @return true if the resident is minor, false otherwise
+     */
+    public boolean isMinor(Person resident) {
+        return minors.containsKey(new NameKey(resident.getLastName(), resident.getFirstName()));
+    }
+
+    /**
+     * Returns the numbers of the stations covering the address
+     *
+     * @return an immutable set of station numbers, in mapping order
+     */
+    public Set<Integer> stations() {
+        Set<Integer> result = stations;
+        if (result == null) {
+            Set<Integer> distinct = new LinkedHashSet<>();
+            for (FirestationRepository.Entry mapping : mappings) {
+                distinct.add(mapping.firestation().getStation());
+            }
+            result = Collections.unmodifiableSet(distinct);
+            stations = result;
+        }
+        return result;
+    }
+
+    boolean isEmpty() {
+        return residents.isEmpty() && mappings.isEmpty();
+    }
+
+    Household withResidents(List<Person> residents) {
+        return new Household(address, residents, minors, mappings);
+    }
+
+    Household withMappings(List<FirestationRepository.Entry> mappings) {
+        return new Household(address, residents, minors, mappings);
+    }
+
+    Household withMinor(NameKey name, int delta) {
+        int count = minors.getOrDefault(name, 0) + delta;
+        return new Household(address, residents, count > 0 ? minors.plus(name, count) : minors.minus(name),
+                mappings);
+    }
+}
@@ -0,0 +1,38 @@
+package com.safetynet.alerts.repository;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository of the households : per address residents, minor residents and covering stations
+ * The households are part of the DataStore snapshot, and kept up to date by the changes of the three other
+ * repositories. Like the station views, their classification is moved on at midnight by the AgeRollover.
+ */
+@Repository
+public class HouseholdRepository implements IHouseholdRepository {
+    private static final Logger logger = LogManager.getLogger(HouseholdRepository.class);
+
+    private final DataStore store;
+
+    /**
+     * Constructor
+     *
+     * @param store the store the households belong to
+     */
+    public HouseholdRepository(DataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the household of an address
+     *
+     * @param address the address
+     * @return the household, empty for an unknown address
+     */
+    @Override
+    public Household findByAddress(String address) {
+        logger.debug("Method called : findByAddress(\"" + address + "\")");
+        return store.current().households().household(address);
+    }
+}
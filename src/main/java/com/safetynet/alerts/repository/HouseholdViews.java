@@ -0,0 +1,170 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.PersistentTreeMap;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Households of a snapshot, by address, and their incremental maintenance
+ * An address has a household as long as somebody lives there or a station covers it. Like the station
+ * views, the classification of the residents holds for the day of the snapshot.
+ */
+final class HouseholdViews {
+
+    static final HouseholdViews EMPTY = new HouseholdViews(PersistentTreeMap.empty(Indexes.STRING_ORDER));
+
+    private final PersistentTreeMap<String, Household> byAddress;
+
+    private HouseholdViews(PersistentTreeMap<String, Household> byAddress) {
+        this.byAddress = byAddress;
+    }
+
+    /**
+     * Computes the households of a snapshot from scratch
+     *
+     * @param snapshot the snapshot
+     * @return the households
+     */
+    static HouseholdViews build(DataSnapshot snapshot) {
+        Set<String> addresses = new LinkedHashSet<>();
+        snapshot.persons().byAddress().forEach((address, residents) -> addresses.add(address));
+        snapshot.firestations().byAddress().forEach((address, mappings) -> addresses.add(address));
+
+        PersistentTreeMap<String, Household> households = EMPTY.byAddress;
+        for (String address : addresses) {
+            households = stored(households, computed(snapshot, address));
+        }
+        return new HouseholdViews(households);
+    }
+
+    /**
+     * Returns the household of an address, empty if nobody lives there and no station covers it
+     *
+     * @param address the address
+     * @return the household
+     */
+    Household household(String address) {
+        Household household = byAddress.get(address);
+        return household != null ? household : Household.empty(address);
+    }
+
+    /**
+     * Updates the households of the addresses persons left or moved to
+     *
+     * @param after   the snapshot with the persons changed
+     * @param removed the persons removed, or in their previous version
+     * @param added   the persons added, or in their updated version
+     * @return the updated households
+     */
+    HouseholdViews personsChanged(DataSnapshot after, Collection<Person> removed, Collection<Person> added) {
+        PersistentTreeMap<String, Household> changed = byAddress;
+
+        for (Person person : removed) {
+            changed = residentCounted(after, changed, person, -1);
+        }
+        for (Person person : added) {
+            changed = residentCounted(after, changed, person, 1);
+        }
+        return changed == byAddress ? this : new HouseholdViews(changed);
+    }
+
+    private static PersistentTreeMap<String, Household> residentCounted(DataSnapshot after,
+                                                                 PersistentTreeMap<String, Household> households,
+                                                                 Person person, int delta) {
+        String address = person.getAddress();
+        Household household = households.getOrDefault(address, Household.empty(address))
+                .withResidents(after.persons().byAddress().getOrDefault(address, List.of()));
+        NameKey name = nameOf(person);
+        if (after.isMinor(name)) {
+            household = household.withMinor(name, delta);
+        }
+        return stored(households, household);
+    }
+
+    /**
+     * Updates the stations of the addresses whose mappings changed
+     *
+     * @param after   the snapshot with the mappings changed
+     * @param removed the mappings removed, or in their previous version
+     * @param added   the mappings added, or in their updated version
+     * @return the updated households
+     */
+    HouseholdViews firestationsChanged(DataSnapshot after, Collection<Firestation> removed,
+                                       Collection<Firestation> added) {
+        Set<String> addresses = new LinkedHashSet<>();
+        for (Firestation firestation : removed) {
+            addresses.add(firestation.getAddress());
+        }
+        for (Firestation firestation : added) {
+            addresses.add(firestation.getAddress());
+        }
+
+        PersistentTreeMap<String, Household> changed = byAddress;
+        for (String address : addresses) {
+            Household household = changed.getOrDefault(address, Household.empty(address))
+                    .withMappings(after.firestations().byAddress().getOrDefault(address, List.of()));
+            changed = stored(changed, household);
+        }
+        return changed == byAddress ? this : new HouseholdViews(changed);
+    }
+
+    /**
+     * Updates the households of persons whose classification may have changed : their medicalrecord
+     * changed, or they came of age
+     *
+     * @param before the snapshot before the change
+     * @param after  the snapshot after the change
+     * @param names  the names of the persons
+     * @return the updated households
+     */
+    HouseholdViews reclassified(DataSnapshot before, DataSnapshot after, Collection<NameKey> names) {
+        PersistentTreeMap<String, Household> changed = byAddress;
+
+        for (NameKey name : names) {
+            PersonRepository.Entry entry = after.persons().byName().get(name);
+            if (entry == null) {
+                continue;
+            }
+
+            int delta = (after.isMinor(name) ? 1 : 0) - (before.isMinor(name) ? 1 : 0);
+            if (delta != 0) {
+                String address = entry.person().getAddress();
+                changed = stored(changed, changed.getOrDefault(address, Household.empty(address))
+                        .withMinor(name, delta));
+            }
+        }
+        return changed == byAddress ? this : new HouseholdViews(changed);
+    }
+
+    /**
+     * Computes the household of an address from the tables
+     */
+    private static Household computed(DataSnapshot snapshot, String address) {
+        Household household = Household.empty(address)
+                .withResidents(snapshot.persons().byAddress().getOrDefault(address, List.of()))
+                .withMappings(snapshot.firestations().byAddress().getOrDefault(address, List.of()));
+        for (Person resident : household.residents()) {
+            NameKey name = nameOf(resident);
+            if (snapshot.isMinor(name)) {
+                household = household.withMinor(name, 1);
+            }
+        }
+        return household;
+    }
+
+    private static PersistentTreeMap<String, Household> stored(PersistentTreeMap<String, Household> households,
+                                                               Household household) {
+        return household.isEmpty()
+                ? households.minus(household.address())
+                : households.plus(household.address(), household);
+    }
+
+    private static NameKey nameOf(Person person) {
+        return new NameKey(person.getLastName(), person.getFirstName());
+    }
+}
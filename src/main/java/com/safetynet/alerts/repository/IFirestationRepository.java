@@ -4,6 +4,7 @@ import com.safetynet.alerts.model.Firestation;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface IFirestationRepository {
     Iterable<Firestation> findAll();
@@ -12,6 +13,8 @@ public interface IFirestationRepository {
 
     List<Firestation> findByStation(int station);
 
+    Set<String> findAddressesByStation(int station);
+
     Optional<Firestation> find(String address, int station);
 
 //    boolean exists(String address, int station);
@@ -2,6 +2,8 @@ package com.safetynet.alerts.repository;
 
 import com.safetynet.alerts.model.Medicalrecord;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 public interface IMedicalrecordRepository {
@@ -16,4 +18,14 @@ public interface IMedicalrecordRepository {
     Medicalrecord update(String lastName, String firstName, Medicalrecord medicalrecord);
 
     Medicalrecord save(Medicalrecord medicalrecord);
+
+    BirthdateColumn findBirthdates();
+
+    LocalDate currentDay();
+
+    List<Medicalrecord> findByAge(int minAge, int maxAge);
+
+    List<Medicalrecord> findByMedication(String medication);
+
+    List<Medicalrecord> findByAllergy(String allergy);
 }
@@ -2,6 +2,7 @@ package com.safetynet.alerts.repository;
 
 import com.safetynet.alerts.model.Person;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface IPersonRepository {
@@ -10,6 +11,10 @@ public interface IPersonRepository {
 
     Optional<Person> findByName(String lastName, String firstName);
 
+    List<Person> findByAddress(String address);
+
+    List<Person> findByCity(String city);
+
     boolean delete(Person person);
 
     boolean delete(String lastName, String firstName);
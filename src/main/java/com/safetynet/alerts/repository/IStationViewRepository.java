@@ -0,0 +1,5 @@
+package com.safetynet.alerts.repository;
+
+public interface IStationViewRepository {
+    StationView findByStation(int station);
+}
@@ -0,0 +1,87 @@
+package com.safetynet.alerts.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Helpers for the index buckets of the repositories
+ * A bucket is an immutable list, replaced by a modified copy on change, so that a published bucket
+ * can be read without locking.
+ */
+final class Indexes {
+
+    // Order of the String keyed indexes, which tolerate a null lookup key
+    static final Comparator<String> STRING_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private Indexes() {
+    }
+
+    /**
+     * Returns a copy of a bucket with one more element
+     *
+     * @param bucket  the bucket, may be null
+     * @param element the element to append
+     * @return the new bucket
+     */
+    static <T> List<T> appended(List<T> bucket, T element) {
+        if (bucket == null) {
+            return List.of(element);
+        }
+        List<T> copy = new ArrayList<>(bucket.size() + 1);
+        copy.addAll(bucket);
+        copy.add(element);
+        return List.copyOf(copy);
+    }
+
+    /**
+     * Returns a copy of a bucket with more elements
+     *
+     * @param bucket   the bucket, may be null
+     * @param elements the elements to append
+     * @return the new bucket
+     */
+    static <T> List<T> appendedAll(List<T> bucket, List<T> elements) {
+        if (bucket == null) {
+            return List.copyOf(elements);
+        }
+        List<T> copy = new ArrayList<>(bucket.size() + elements.size());
+        copy.addAll(bucket);
+        copy.addAll(elements);
+        return List.copyOf(copy);
+    }
+
+    /**
+     * Returns a copy of a bucket without an element, compared by identity
+     *
+     * @param bucket  the bucket, may be null
+     * @param element the element to remove
+     * @return the new bucket, or null if it gets empty
+     */
+    static <T> List<T> removed(List<T> bucket, T element) {
+        if (bucket == null) {
+            return null;
+        }
+        List<T> copy = new ArrayList<>(bucket.size());
+        for (T member : bucket) {
+            if (member != element) {
+                copy.add(member);
+            }
+        }
+        return copy.isEmpty() ? null : List.copyOf(copy);
+    }
+
+    /**
+     * Returns a copy of a bucket with an element replaced in place, compared by identity
+     *
+     * @param bucket   the bucket
+     * @param previous the element to replace
+     * @param updated  its replacement
+     * @return the new bucket
+     */
+    static <T> List<T> replaced(List<T> bucket, T previous, T updated) {
+        List<T> copy = new ArrayList<>(bucket);
+        copy.replaceAll(member -> member == previous ? updated : member);
+        return List.copyOf(copy);
+    }
+}
@@ -1,70 +1,353 @@
 package com.safetynet.alerts.repository;
 
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.safetynet.alerts.config.CustomProperties;
 import com.safetynet.alerts.exception.AlreadyExistsException;
 import com.safetynet.alerts.exception.InvalidObjectParameterException;
 import com.safetynet.alerts.exception.NotFoundException;
 import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.persistence.Mutation;
+import com.safetynet.alerts.util.Ages;
+import com.safetynet.alerts.util.CodedList;
+import com.safetynet.alerts.util.Medications;
+import com.safetynet.alerts.util.PersistentTreeMap;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository of medicalrecords
+ * Its content is a table of the DataStore snapshot : readers never lock, and a stored medicalrecord is
+ * never modified, an update storing a new object in its place.
+ * Changes are checked and applied by the DataStore writer thread.
  */
 @Repository
 public class MedicalrecordRepository implements IMedicalrecordRepository, IUsable<Medicalrecord> {
     private static final Logger logger = LogManager.getLogger(MedicalrecordRepository.class);
 
-    private List<Medicalrecord> medicalrecordRepository;
+    // Age above which nobody is looked for : keeps the birth day bounds of open age ranges computable
+    private static final int OLDEST_AGE = 150;
 
-    private final CustomProperties properties;
+    private final DataStore store;
 
+    private final MutationJournal journal;
 
     /**
-     * Constructor
+     * A stored medicalrecord, its insertion number, and its birthdate and majority day as epoch days
+     * The days are computed once, when the medicalrecord is stored.
+     */
+    record Entry(long insertion, Medicalrecord medicalrecord, int birthDay, int majorityDay) {
+
+        // Birth day of a medicalrecord without birthdate
+        static final int NO_BIRTHDATE = Integer.MIN_VALUE;
+
+        static Entry of(long insertion, Medicalrecord medicalrecord) {
+            LocalDate birthdate = medicalrecord.getBirthdate();
+            return new Entry(insertion, medicalrecord,
+                    birthdate == null ? NO_BIRTHDATE : (int) birthdate.toEpochDay(),
+                    Ages.majorityDay(birthdate));
+        }
+
+        boolean isMinorOn(int day) {
+            return day < majorityDay;
+        }
+    }
+
+    /**
+     * Key of the majority index : the majority day, then the insertion number
+     */
+    record MajorityKey(int day, long insertion) implements Comparable<MajorityKey> {
+
+        static MajorityKey of(Entry entry) {
+            return new MajorityKey(entry.majorityDay(), entry.insertion());
+        }
+
+        /**
+         * Returns the lowest key of a day
+         */
+        static MajorityKey first(int day) {
+            return new MajorityKey(day, Long.MIN_VALUE);
+        }
+
+        @Override
+        public int compareTo(MajorityKey other) {
+            int comparison = Integer.compare(day, other.day);
+            return comparison != 0 ? comparison : Long.compare(insertion, other.insertion);
+        }
+    }
+
+    /**
+     * Key of the birth day index : the birth day, then the name
+     */
+    record BirthKey(int day, NameKey name) implements Comparable<BirthKey> {
+
+        private static final Comparator<BirthKey> ORDER = Comparator
+                .comparingInt(BirthKey::day)
+                .thenComparing(BirthKey::name, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+        static BirthKey of(Entry entry) {
+            return new BirthKey(entry.birthDay(), keyOf(entry.medicalrecord()));
+        }
+
+        /**
+         * Returns the lowest key of a day
+         */
+        static BirthKey first(int day) {
+            return new BirthKey(day, null);
+        }
+
+        @Override
+        public int compareTo(BirthKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /**
+     * Medicalrecords of a snapshot : by insertion number, iterated by findAll in insertion order, by name,
+     * by majority day, by birth day, and by medication and allergy term
+     * The name index shares the (lastName, firstName) identity of PersonRepository. The majority index
+     * holds the medicalrecords of the name index with a birthdate : it is the queue of the persons coming
+     * of age, drained by day at midnight. The birth day index holds the same medicalrecords, oldest first :
+     * an age range is a range of birth days. The term indexes are inverted indexes of the name index : each
+     * term leads to the medicalrecords listing it, by name, so that a term query reads only its matches.
+     */
+    record Table(long insertions,
+                 PersistentTreeMap<Long, Medicalrecord> byInsertion,
+                 PersistentTreeMap<NameKey, Entry> byName,
+                 PersistentTreeMap<MajorityKey, Entry> byMajority,
+                 PersistentTreeMap<BirthKey, Entry> byBirthday,
+                 PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> byMedication,
+                 PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> byAllergy) {
+
+        static final Table EMPTY = new Table(0, PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+                PersistentTreeMap.empty(), PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+                PersistentTreeMap.empty());
+
+        /**
+         * Returns the table with medicalrecords added, a medicalrecord whose name is already stored being
+         * skipped as a whole
+         */
+        Table plusAll(Collection<Medicalrecord> medicalrecords) {
+            long insertion = insertions;
+            PersistentTreeMap<Long, Medicalrecord> insertionIndex = byInsertion;
+            PersistentTreeMap<NameKey, Entry> nameIndex = byName;
+            PersistentTreeMap<MajorityKey, Entry> majorityIndex = byMajority;
+            PersistentTreeMap<BirthKey, Entry> birthdayIndex = byBirthday;
+            PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> medicationIndex = byMedication;
+            PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> allergyIndex = byAllergy;
+
+            for (Medicalrecord medicalrecord : medicalrecords) {
+                NameKey key = keyOf(medicalrecord);
+                if (nameIndex.containsKey(key)) {
+                    continue;
+                }
+                insertion++;
+                insertionIndex = insertionIndex.plus(insertion, medicalrecord);
+                Entry entry = Entry.of(insertion, medicalrecord);
+                nameIndex = nameIndex.plus(key, entry);
+                majorityIndex = plus(majorityIndex, entry);
+                birthdayIndex = plusBorn(birthdayIndex, entry);
+                medicationIndex = posted(medicationIndex, medicationsOf(medicalrecord), key, medicalrecord);
+                allergyIndex = posted(allergyIndex, allergiesOf(medicalrecord), key, medicalrecord);
+            }
+            return new Table(insertion, insertionIndex, nameIndex, majorityIndex, birthdayIndex, medicationIndex,
+                    allergyIndex);
+        }
+
+        Table minus(Entry entry) {
+            Medicalrecord medicalrecord = entry.medicalrecord();
+            NameKey key = keyOf(medicalrecord);
+            return new Table(insertions,
+                    byInsertion.minus(entry.insertion()),
+                    byName.minus(key),
+                    byMajority.minus(MajorityKey.of(entry)),
+                    byBirthday.minus(BirthKey.of(entry)),
+                    posted(byMedication, medicationsOf(medicalrecord), key, null),
+                    posted(byAllergy, allergiesOf(medicalrecord), key, null));
+        }
+
+        Table replaced(Entry entry, Medicalrecord updated) {
+            Entry updatedEntry = Entry.of(entry.insertion(), updated);
+            NameKey key = keyOf(updated);
+            return new Table(insertions,
+                    byInsertion.plus(entry.insertion(), updated),
+                    byName.plus(key, updatedEntry),
+                    plus(byMajority.minus(MajorityKey.of(entry)), updatedEntry),
+                    plusBorn(byBirthday.minus(BirthKey.of(entry)), updatedEntry),
+                    posted(posted(byMedication, medicationsOf(entry.medicalrecord()), key, null),
+                            medicationsOf(updated), key, updated),
+                    posted(posted(byAllergy, allergiesOf(entry.medicalrecord()), key, null),
+                            allergiesOf(updated), key, updated));
+        }
+
+        /**
+         * Returns the medicalrecords listing a term, by name
+         *
+         * @param index the term index
+         * @param term  the term
+         * @return the medicalrecords, in name order
+         */
+        static List<Medicalrecord> postings(PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> index,
+                                            String term) {
+            PersistentTreeMap<NameKey, Medicalrecord> postings = index.get(term);
+            return postings == null ? List.of() : postings.values();
+        }
+
+        private static PersistentTreeMap<MajorityKey, Entry> plus(PersistentTreeMap<MajorityKey, Entry> index,
+                                                                  Entry entry) {
+            return entry.majorityDay() == Ages.NEVER ? index : index.plus(MajorityKey.of(entry), entry);
+        }
+
+        private static PersistentTreeMap<BirthKey, Entry> plusBorn(PersistentTreeMap<BirthKey, Entry> index,
+                                                                   Entry entry) {
+            return entry.birthDay() == Entry.NO_BIRTHDATE ? index : index.plus(BirthKey.of(entry), entry);
+        }
+
+        /**
+         * Adds a medicalrecord to the postings of its terms, or removes the name from them when null
+         * A term left without postings is removed from the index.
+         */
+        private static PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> posted(
+                PersistentTreeMap<String, PersistentTreeMap<NameKey, Medicalrecord>> index,
+                Set<String> terms, NameKey key, Medicalrecord medicalrecord) {
+            for (String term : terms) {
+                PersistentTreeMap<NameKey, Medicalrecord> postings = index.getOrDefault(term, PersistentTreeMap.empty());
+                postings = medicalrecord == null ? postings.minus(key) : postings.plus(key, medicalrecord);
+                index = postings.isEmpty() ? index.minus(term) : index.plus(term, postings);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the medication terms of a medicalrecord : the names of its medications, without the dosage
      *
-     * @param properties reference to external properties file
+     * @param medicalrecord the medicalrecord
+     * @return the distinct terms
      */
-    public MedicalrecordRepository(CustomProperties properties) {
-        this.properties = properties;
-        try {
-            InputStream dataSource = new ClassPathResource(this.properties.getDataSource()).getInputStream();
+    static Set<String> medicationsOf(Medicalrecord medicalrecord) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (medicalrecord.getMedications() != null) {
+            for (String medication : medicalrecord.getMedications()) {
+                terms.add(Medications.name(medication));
+            }
+        }
+        return terms;
+    }
 
-            ObjectMapper objectMapper = JsonMapper.builder()
-                    .findAndAddModules()
-                    .build();
-            JsonNode jsonNode = objectMapper.readTree(dataSource);
-            JsonNode medicalrecordNode = jsonNode.get("medicalrecords");
+    /**
+     * Returns the allergy terms of a medicalrecord
+     *
+     * @param medicalrecord the medicalrecord
+     * @return the distinct terms
+     */
+    static Set<String> allergiesOf(Medicalrecord medicalrecord) {
+        return medicalrecord.getAllergies() == null
+                ? Set.of()
+                : new LinkedHashSet<>(medicalrecord.getAllergies());
+    }
 
-            JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, Medicalrecord
-                    .class);
-            this.medicalrecordRepository = objectMapper.readValue(String.valueOf(medicalrecordNode), type);
+    /**
+     * Constructor of a repository whose changes are not logged
+     */
+    public MedicalrecordRepository() {
+        this(MutationJournal.disabled());
+    }
 
-        } catch (IOException ioException) {
-            logger.error(ioException.getMessage(), ioException);
+    /**
+     * Constructor of a repository with a store of its own
+     *
+     * @param journal the write-ahead log of the changes
+     */
+    public MedicalrecordRepository(MutationJournal journal) {
+        this(new DataStore(), journal);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store   the store of the snapshot the medicalrecords belong to
+     * @param journal the write-ahead log of the changes
+     */
+    @Autowired
+    public MedicalrecordRepository(DataStore store, MutationJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    /**
+     * Bulk inserts a batch of medicalrecords read from the data source
+     * Called at startup by the DataLoader, possibly from several loader workers at once
+     *
+     * @param medicalrecords the medicalrecords to add
+     */
+    void loadAll(Collection<Medicalrecord> medicalrecords) {
+        store.write(snapshot -> {
+            List<Medicalrecord> loaded = withoutDuplicates(snapshot.medicalrecords(), medicalrecords);
+            loaded.forEach(this::encode);
+            return new DataStore.Update<>(snapshot.with(snapshot.medicalrecords().plusAll(loaded), loaded), null);
+        });
+    }
+
+    /**
+     * Returns the medicalrecords of a batch whose name is neither stored nor taken by an earlier
+     * medicalrecord of the batch
+     * A duplicate is logged and skipped as a whole : listed by findAll but not indexed by name, it would
+     * outlive the deletion of its name.
+     *
+     * @param table          the medicalrecords stored
+     * @param medicalrecords the batch
+     * @return the medicalrecords to add, in batch order
+     */
+    private static List<Medicalrecord> withoutDuplicates(Table table, Collection<Medicalrecord> medicalrecords) {
+        List<Medicalrecord> loaded = new ArrayList<>(medicalrecords.size());
+        Set<NameKey> names = new HashSet<>();
+        for (Medicalrecord medicalrecord : medicalrecords) {
+            NameKey key = keyOf(medicalrecord);
+            if (table.byName().containsKey(key) || !names.add(key)) {
+                logger.warn("Duplicate medicalrecord skipped : " + medicalrecord.getFirstName() + " "
+                        + medicalrecord.getLastName());
+            } else {
+                loaded.add(medicalrecord);
+            }
         }
+        return loaded;
+    }
+
+    /**
+     * Replaces the medications and allergies of a medicalrecord by lists of vocabulary codes, decoded only
+     * when read
+     * Called on the writer thread, before the medicalrecord is stored.
+     *
+     * @param medicalrecord the medicalrecord to encode
+     */
+    private void encode(Medicalrecord medicalrecord) {
+        medicalrecord.setMedications(CodedList.encode(store.medications(), medicalrecord.getMedications()));
+        medicalrecord.setAllergies(CodedList.encode(store.allergies(), medicalrecord.getAllergies()));
+    }
+
+    private Table table() {
+        return store.current().medicalrecords();
     }
 
     /**
-     * Returns an iterable of Medicalrecord objects
+     * Returns a list of Medicalrecord objects, in insertion order
      *
-     * @return the iterable of medicalrecords
+     * @return the medicalrecords stored when called
      */
     @Override
     public Iterable<Medicalrecord> findAll() {
         logger.debug("Method called : findAll()");
-        return medicalrecordRepository;
+        return table().byInsertion().values();
     }
 
     /**
@@ -77,10 +360,80 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
     @Override
     public Optional<Medicalrecord> findByName(String lastName, String firstName) {
         logger.debug("Method called : findByName(\"" + lastName + "\", \"" + firstName + "\")");
-        return medicalrecordRepository.stream()
-                .filter(medicalrecord ->
-                        medicalrecord.getLastName().equals(lastName) && medicalrecord.getFirstName().equals(firstName))
-                .findFirst();
+        Entry entry = table().byName().get(new NameKey(lastName, firstName));
+        return entry == null ? Optional.empty() : Optional.of(entry.medicalrecord());
+    }
+
+    /**
+     * Returns the birth days of every person, as a column of epoch days grouped by city
+     * The column of a snapshot is built once, by the first caller after a change.
+     *
+     * @return the column of the current snapshot
+     */
+    @Override
+    public BirthdateColumn findBirthdates() {
+        logger.debug("Method called : findBirthdates()");
+        return store.current().birthdates();
+    }
+
+    /**
+     * Returns the day of the snapshot : the day its minors are classified for, and ages computed for
+     * Until the midnight rollover, it is the previous day.
+     *
+     * @return the day
+     */
+    @Override
+    public LocalDate currentDay() {
+        return LocalDate.ofEpochDay(store.current().day());
+    }
+
+    /**
+     * Returns the medicalrecords of the persons within an age range, read from the birth day index
+     * The ages are those of the day of the snapshot. A medicalrecord without birthdate has no age and is
+     * never returned.
+     *
+     * @param minAge the lowest age, included
+     * @param maxAge the highest age, included
+     * @return the medicalrecords, oldest first
+     */
+    @Override
+    public List<Medicalrecord> findByAge(int minAge, int maxAge) {
+        logger.debug("Method called : findByAge(" + minAge + ", " + maxAge + ")");
+        DataSnapshot snapshot = store.current();
+        LocalDate today = LocalDate.ofEpochDay(snapshot.day());
+
+        // Born after the last birth day of maxAge + 1, and on or before the last birth day of minAge
+        BirthKey from = BirthKey.first(Ages.lastBirthDay(today, Math.min(maxAge, OLDEST_AGE) + 1) + 1);
+        BirthKey to = BirthKey.first(Ages.lastBirthDay(today, Math.min(minAge, OLDEST_AGE + 1)) + 1);
+
+        List<Medicalrecord> medicalrecords = new ArrayList<>();
+        snapshot.medicalrecords().byBirthday().forEach(from, to,
+                (key, entry) -> medicalrecords.add(entry.medicalrecord()));
+        return medicalrecords;
+    }
+
+    /**
+     * Returns the medicalrecords listing a medication, read from the medication index
+     *
+     * @param medication the name of the medication, without dosage
+     * @return the medicalrecords, in name order
+     */
+    @Override
+    public List<Medicalrecord> findByMedication(String medication) {
+        logger.debug("Method called : findByMedication(\"" + medication + "\")");
+        return Table.postings(table().byMedication(), Medications.name(medication));
+    }
+
+    /**
+     * Returns the medicalrecords listing an allergy, read from the allergy index
+     *
+     * @param allergy the allergy
+     * @return the medicalrecords, in name order
+     */
+    @Override
+    public List<Medicalrecord> findByAllergy(String allergy) {
+        logger.debug("Method called : findByAllergy(\"" + allergy + "\")");
+        return Table.postings(table().byAllergy(), allergy);
     }
 
     /**
@@ -92,18 +445,31 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
     public boolean delete(Medicalrecord medicalrecord) {
         logger.debug("Method called : delete(" + medicalrecord + ")");
 
-        if (!medicalrecordRepository.remove(medicalrecord)) {
-            logger.error("Medicalrecord not found : " + medicalrecord);
+        if (medicalrecord == null) {
+            logger.error("Medicalrecord not found : " + null);
             throw new NotFoundException("Medicalrecord not found");
         }
 
+        byte[] change = journal.encode(Mutation.Entity.MEDICALRECORD, Mutation.Operation.DELETE,
+                List.of(medicalrecord.getLastName(), medicalrecord.getFirstName()), null);
+        store.write(snapshot -> {
+            Entry entry = snapshot.medicalrecords().byName().get(keyOf(medicalrecord));
+
+            if (entry == null || entry.medicalrecord() != medicalrecord) {
+                logger.error("Medicalrecord not found : " + medicalrecord);
+                throw new NotFoundException("Medicalrecord not found");
+            }
+
+            return new DataStore.Update<>(snapshot.with(snapshot.medicalrecords().minus(entry), List.of(medicalrecord)),
+                    medicalrecord, journal.append(change));
+        });
+
         logger.info("Deleted : " + medicalrecord);
         return true;
     }
 
     /**
      * Deletes a medicalrecord object matching both lastname and firstname fields
-     * Overrides and call delete(Person) with the object found
      *
      * @param lastName  the value of the lastname field to be matched
      * @param firstName the value of the firstname field to be matched
@@ -113,20 +479,30 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
         logger.debug("Method called : deleteByName("
                 + lastName + ", " + firstName + ")");
 
-        Medicalrecord foundMedicalrecord = findByName(lastName, firstName).orElse(null);
+        byte[] change = journal.encode(Mutation.Entity.MEDICALRECORD, Mutation.Operation.DELETE,
+                List.of(lastName, firstName), null);
+        Medicalrecord deleted = store.write(snapshot -> {
+            Entry entry = snapshot.medicalrecords().byName().get(new NameKey(lastName, firstName));
 
-        if (foundMedicalrecord == null) {
-            logger.error("Medicalrecord not found :" +
-                    " { lastName: " + lastName + ", firstName: " + firstName + " }");
-            throw new NotFoundException("Medicalrecord not found");
-        }
+            if (entry == null) {
+                logger.error("Medicalrecord not found :" +
+                        " { lastName: " + lastName + ", firstName: " + firstName + " }");
+                throw new NotFoundException("Medicalrecord not found");
+            }
 
-        return delete(foundMedicalrecord);
+            return new DataStore.Update<>(
+                    snapshot.with(snapshot.medicalrecords().minus(entry), List.of(entry.medicalrecord())),
+                    entry.medicalrecord(), journal.append(change));
+        });
+
+        logger.info("Deleted : " + deleted);
+        return true;
     }
 
     /**
      * Updates the Medicalrecord object matching the firstname and lastname parameters,
      * with values contained in a Medicalrecord object
+     * The stored medicalrecord is replaced by a new object, at the same place in insertion order
      *
      * @param lastName      the value of the lastname field to be matched
      * @param firstName     the value of the firstname field to be matched
@@ -143,26 +519,34 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
             throw new AlreadyExistsException("Medicalrecord already exists");
         }
 
-        // stream usage utility ?
-        Medicalrecord toUpdate = findByName(lastName, firstName).stream()
-                .peek(m -> {
-                    m.setBirthdate(medicalrecord.getBirthdate());
-                    m.setMedications(medicalrecord.getMedications());
-                    m.setAllergies(medicalrecord.getAllergies());
-                })
-                .findFirst()
-                .orElse(null);
-
-        if (toUpdate != null) {
-            logger.info("Medicalrecord updated :" +
-                    " {lastName=" + lastName + ":firstName=" + firstName + "} -> " + toUpdate);
-        } else {
-            logger.error("Medicalrecord not found :" +
-                    " { lastName: " + lastName + ", firstName: " + firstName + " }");
-            throw new NotFoundException("Medicalrecord not found");
-        }
+        Medicalrecord updated = new Medicalrecord();
+        updated.setFirstName(firstName);
+        updated.setLastName(lastName);
+        updated.setBirthdate(medicalrecord.getBirthdate());
+        updated.setMedications(medicalrecord.getMedications());
+        updated.setAllergies(medicalrecord.getAllergies());
 
-        return toUpdate;
+        byte[] change = journal.encode(Mutation.Entity.MEDICALRECORD, Mutation.Operation.UPDATE,
+                List.of(lastName, firstName), updated);
+        store.write(snapshot -> {
+            Entry entry = snapshot.medicalrecords().byName().get(new NameKey(lastName, firstName));
+
+            if (entry == null) {
+                logger.error("Medicalrecord not found :" +
+                        " { lastName: " + lastName + ", firstName: " + firstName + " }");
+                throw new NotFoundException("Medicalrecord not found");
+            }
+
+            encode(updated);
+            return new DataStore.Update<>(
+                    snapshot.with(snapshot.medicalrecords().replaced(entry, updated), List.of(updated)),
+                    updated, journal.append(change));
+        });
+
+        logger.info("Medicalrecord updated :" +
+                " {lastName=" + lastName + ":firstName=" + firstName + "} -> " + updated);
+
+        return updated;
     }
 
     /**
@@ -180,12 +564,19 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
             throw new InvalidObjectParameterException("Invalid parameter");
         }
 
-        if (findByName(medicalrecord.getLastName(), medicalrecord.getFirstName()).isPresent()) {
-            logger.error("Medicalrecord already exists : " + medicalrecord);
-            throw new AlreadyExistsException("Medicalrecord already exists");
-        }
+        byte[] change = journal.encode(Mutation.Entity.MEDICALRECORD, Mutation.Operation.SAVE,
+                List.of(medicalrecord.getLastName(), medicalrecord.getFirstName()), medicalrecord);
+        store.write(snapshot -> {
+            if (snapshot.medicalrecords().byName().containsKey(keyOf(medicalrecord))) {
+                logger.error("Medicalrecord already exists : " + medicalrecord);
+                throw new AlreadyExistsException("Medicalrecord already exists");
+            }
 
-        medicalrecordRepository.add(medicalrecord);
+            encode(medicalrecord);
+            return new DataStore.Update<>(snapshot.with(snapshot.medicalrecords().plusAll(List.of(medicalrecord)),
+                    List.of(medicalrecord)),
+                    medicalrecord, journal.append(change));
+        });
         logger.info("Medicalrecord added : " + medicalrecord);
         return medicalrecord;
     }
@@ -203,4 +594,8 @@ public class MedicalrecordRepository implements IMedicalrecordRepository, IUsabl
                 medicalrecord.getLastName().isBlank() ||
                 medicalrecord.getBirthdate() == null;
     }
+
+    private static NameKey keyOf(Medicalrecord medicalrecord) {
+        return new NameKey(medicalrecord.getLastName(), medicalrecord.getFirstName());
+    }
 }
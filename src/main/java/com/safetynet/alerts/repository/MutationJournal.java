@@ -0,0 +1,253 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.persistence.Mutation;
+import com.safetynet.alerts.persistence.WriteAheadLog;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Records the successful changes of the repositories in the write-ahead log
+ * A change is acknowledged to its caller only once the log has forced it to disk, and the log is
+ * replayed by the DataLoader on top of the data source at the next start.
+ * Changes are appended by the repository writer thread, in the order they are applied.
+ * Without a configured log file, recording is a no-op and changes live in memory only.
+ */
+@Component
+public class MutationJournal {
+    private static final Logger logger = LogManager.getLogger(MutationJournal.class);
+
+    private static final int MAX_BATCH = 1024;
+
+    private static final CompletableFuture<Long> NOT_LOGGED = CompletableFuture.completedFuture(0L);
+
+    private final WriteAheadLog log;
+
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .build();
+
+    // Set while the log is replayed at startup, so that replayed changes are not logged twice
+    private volatile boolean replaying;
+
+    /**
+     * Constructor
+     *
+     * @param properties reference to external properties file
+     */
+    @Autowired
+    public MutationJournal(CustomProperties properties) {
+        this(open(properties));
+    }
+
+    private MutationJournal(WriteAheadLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Returns a journal which does not record anything
+     *
+     * @return a disabled journal
+     */
+    public static MutationJournal disabled() {
+        return new MutationJournal((WriteAheadLog) null);
+    }
+
+    private static WriteAheadLog open(CustomProperties properties) {
+        String walFile = properties.getWalFile();
+        if (walFile == null || walFile.isBlank()) {
+            logger.info("No write-ahead log configured, changes are kept in memory only");
+            return null;
+        }
+
+        try {
+            return new WriteAheadLog(Path.of(walFile),
+                    properties.getWalBatchWindowMicros(), TimeUnit.MICROSECONDS, MAX_BATCH);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Write-ahead log can not be opened : " + walFile, ioException);
+        }
+    }
+
+    /**
+     * Encodes a change for the log
+     * Called on the thread making the change, to keep the encoding off the repository writer thread
+     *
+     * @param entity    the repository changed
+     * @param operation the kind of change
+     * @param key       the identity of the changed object
+     * @param value     the saved or updated object, null for a delete
+     * @return the encoded change, or null if changes are not logged
+     */
+    byte[] encode(Mutation.Entity entity, Mutation.Operation operation, List<String> key, Object value) {
+        if (log == null || replaying) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writeValueAsBytes(new Mutation(entity, operation, key,
+                    value == null ? null : objectMapper.valueToTree(value)));
+        } catch (JsonProcessingException jsonProcessingException) {
+            throw new UncheckedIOException("Change can not be logged", jsonProcessingException);
+        }
+    }
+
+    /**
+     * Appends an encoded change to the log, without waiting for the disk
+     * Called by the repository writer thread, so that changes are logged in the order they are applied
+     *
+     * @param change the encoded change, null if changes are not logged
+     * @return completed once the change is on disk
+     */
+    CompletableFuture<Long> append(byte[] change) {
+        return change == null ? NOT_LOGGED : log.append(change);
+    }
+
+    /**
+     * Waits until a logged change is on disk
+     *
+     * @param written the completion of the append
+     */
+    static void awaitDurable(CompletableFuture<Long> written) {
+        try {
+            written.get();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while logging a change"));
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            throw new UncheckedIOException("Change not logged",
+                    cause instanceof IOException ioException ? ioException : new IOException(cause));
+        }
+    }
+
+    /**
+     * Replays the logged changes, in order
+     * A change which no longer applies, for example because the data source changed, is skipped.
+     *
+     * @param afterSequence only the changes logged after this sequence are replayed
+     * @param applier       applies a change to the repositories
+     * @return the number of changes applied
+     */
+    public long replay(long afterSequence, Consumer<Mutation> applier) {
+        if (log == null) {
+            return 0;
+        }
+
+        replaying = true;
+        try {
+            return replay(consumer -> log.replay(afterSequence, consumer), applier);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    /**
+     * Replays the changes of sealed log segments, in order
+     *
+     * @param segments      the sealed segments, oldest first
+     * @param afterSequence only the changes logged after this sequence are replayed
+     * @param applier       applies a change to the repositories
+     * @return the number of changes applied
+     */
+    long replay(List<Path> segments, long afterSequence, Consumer<Mutation> applier) {
+        return replay(consumer -> WriteAheadLog.replay(segments, afterSequence, consumer), applier);
+    }
+
+    private interface RecordSource {
+        void readInto(WriteAheadLog.RecordConsumer consumer) throws IOException;
+    }
+
+    private long replay(RecordSource source, Consumer<Mutation> applier) {
+        AtomicLong applied = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        try {
+            source.readInto((sequence, payload) -> {
+                try {
+                    applier.accept(objectMapper.readValue(payload, Mutation.class));
+                    applied.incrementAndGet();
+                } catch (IOException | RuntimeException exception) {
+                    skipped.incrementAndGet();
+                    logger.warn("Logged change " + sequence + " skipped : " + exception.getMessage());
+                }
+            });
+        } catch (IOException ioException) {
+            logger.error("Write-ahead log can not be replayed : " + ioException.getMessage(), ioException);
+        }
+
+        logger.info("Write-ahead log replayed : " + applied.get() + " applied, " + skipped.get() + " skipped");
+        return applied.get();
+    }
+
+    /**
+     * Seals the active log segment, the next changes being logged in a new one
+     *
+     * @return the sealed segments and their last sequence, or empty if no log is configured
+     * @throws IOException if the rotation failed
+     */
+    Optional<WriteAheadLog.Rotation> rotate() throws IOException {
+        if (log == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(log.rotate().get());
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rotating the log");
+        } catch (ExecutionException executionException) {
+            Throwable cause = executionException.getCause();
+            throw cause instanceof IOException ioException ? ioException : new IOException(cause);
+        }
+    }
+
+    /**
+     * Returns the size of the log on disk
+     *
+     * @return the size in bytes, 0 if no log is configured
+     * @throws IOException if the log segments can not be listed
+     */
+    public long size() throws IOException {
+        return log == null ? 0 : log.size();
+    }
+
+    /**
+     * Returns whether changes are logged
+     *
+     * @return true if a log file is configured
+     */
+    public boolean isEnabled() {
+        return log != null;
+    }
+
+    /**
+     * Writes the pending changes and closes the log
+     */
+    @PreDestroy
+    public void close() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException ioException) {
+                logger.error("Write-ahead log not closed : " + ioException.getMessage(), ioException);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.safetynet.alerts.repository;
+
+import java.util.Comparator;
+
+/**
+ * Identity of a person across repositories : lastname and firstname
+ * Ordered by lastname then firstname, for the sorted indexes of the repositories
+ *
+ * @param lastName  the lastname of the person
+ * @param firstName the firstname of the person
+ */
+public record NameKey(String lastName, String firstName) implements Comparable<NameKey> {
+
+    private static final Comparator<NameKey> ORDER = Comparator
+            .comparing(NameKey::lastName, Indexes.STRING_ORDER)
+            .thenComparing(NameKey::firstName, Indexes.STRING_ORDER);
+
+    @Override
+    public int compareTo(NameKey other) {
+        return ORDER.compare(this, other);
+    }
+}
@@ -1,65 +1,226 @@
 package com.safetynet.alerts.repository;
 
-import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.safetynet.alerts.config.CustomProperties;
 import com.safetynet.alerts.exception.AlreadyExistsException;
 import com.safetynet.alerts.exception.InvalidObjectParameterException;
 import com.safetynet.alerts.exception.NotFoundException;
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.persistence.Mutation;
+import com.safetynet.alerts.util.PersistentTreeMap;
+import com.safetynet.alerts.util.StringDictionary;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Repository of persons
+ * Its content is a table of the DataStore snapshot : readers never lock, and a stored person is never
+ * modified, an update storing a new object in its place.
+ * Changes are checked and applied by the DataStore writer thread, against the content left by the
+ * changes queued before them.
  */
 @Repository
 public class PersonRepository implements IPersonRepository, IUsable<Person> {
     private static final Logger logger = LogManager.getLogger(PersonRepository.class);
 
-    private List<Person> personRepository;
+    private final DataStore store;
 
-    private final CustomProperties properties;
+    private final MutationJournal journal;
 
     /**
-     * Constructor
-     * @param properties reference to external properties file
+     * A stored person and its insertion number
      */
-    public PersonRepository(CustomProperties properties) {
-        this.properties = properties;
+    record Entry(long insertion, Person person) {
+    }
 
-        try {
-            InputStream dataSource = new ClassPathResource(this.properties.getDataSource()).getInputStream();
+    /**
+     * Persons of a snapshot : by insertion number, iterated by findAll in insertion order,
+     * and by name, address and city
+     */
+    record Table(long insertions,
+                 PersistentTreeMap<Long, Person> byInsertion,
+                 PersistentTreeMap<NameKey, Entry> byName,
+                 PersistentTreeMap<String, List<Person>> byAddress,
+                 PersistentTreeMap<String, List<Person>> byCity) {
 
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(dataSource);
-            JsonNode personNode = jsonNode.get("persons");
+        static final Table EMPTY = new Table(0, PersistentTreeMap.empty(), PersistentTreeMap.empty(),
+                PersistentTreeMap.empty(Indexes.STRING_ORDER), PersistentTreeMap.empty(Indexes.STRING_ORDER));
 
-            JavaType type = objectMapper.getTypeFactory().constructCollectionType(List.class, Person
-                    .class);
-            this.personRepository = objectMapper.readValue(String.valueOf(personNode), type);
+        Table plus(Person person) {
+            return plusAll(List.of(person));
+        }
+
+        /**
+         * Returns the table with persons added, a person whose name is already stored being skipped as a whole
+         */
+        Table plusAll(Collection<Person> persons) {
+            long insertion = insertions;
+            PersistentTreeMap<Long, Person> insertionIndex = byInsertion;
+            PersistentTreeMap<NameKey, Entry> nameIndex = byName;
+            // Buckets are copied once per batch, not once per person
+            Map<String, List<Person>> addressAdditions = new HashMap<>();
+            Map<String, List<Person>> cityAdditions = new HashMap<>();
+
+            for (Person person : persons) {
+                NameKey key = keyOf(person);
+                if (nameIndex.containsKey(key)) {
+                    continue;
+                }
+                insertion++;
+                insertionIndex = insertionIndex.plus(insertion, person);
+                nameIndex = nameIndex.plus(key, new Entry(insertion, person));
+                addressAdditions.computeIfAbsent(person.getAddress(), k -> new ArrayList<>()).add(person);
+                cityAdditions.computeIfAbsent(person.getCity(), k -> new ArrayList<>()).add(person);
+            }
+            return new Table(insertion, insertionIndex, nameIndex,
+                    appendedAll(byAddress, addressAdditions), appendedAll(byCity, cityAdditions));
+        }
+
+        private static PersistentTreeMap<String, List<Person>> appendedAll(PersistentTreeMap<String, List<Person>> index,
+                                                                           Map<String, List<Person>> additions) {
+            for (Map.Entry<String, List<Person>> addition : additions.entrySet()) {
+                index = index.plus(addition.getKey(), Indexes.appendedAll(index.get(addition.getKey()), addition.getValue()));
+            }
+            return index;
+        }
 
-        } catch (IOException ioException) {
-            logger.error(ioException.getMessage(), ioException);
+        Table minus(Entry entry) {
+            Person person = entry.person();
+            return new Table(insertions,
+                    byInsertion.minus(entry.insertion()),
+                    byName.minus(keyOf(person)),
+                    removed(byAddress, person.getAddress(), person),
+                    removed(byCity, person.getCity(), person));
         }
+
+        Table replaced(Entry entry, Person updated) {
+            Person previous = entry.person();
+            return new Table(insertions,
+                    byInsertion.plus(entry.insertion(), updated),
+                    byName.plus(keyOf(previous), new Entry(entry.insertion(), updated)),
+                    replaced(byAddress, previous.getAddress(), updated.getAddress(), previous, updated),
+                    replaced(byCity, previous.getCity(), updated.getCity(), previous, updated));
+        }
+
+        private static PersistentTreeMap<String, List<Person>> removed(PersistentTreeMap<String, List<Person>> index,
+                                                                       String key, Person person) {
+            List<Person> bucket = Indexes.removed(index.get(key), person);
+            return bucket == null ? index.minus(key) : index.plus(key, bucket);
+        }
+
+        /**
+         * Replaces a person by its updated version, in place if its bucket did not change
+         */
+        private static PersistentTreeMap<String, List<Person>> replaced(PersistentTreeMap<String, List<Person>> index,
+                                                                        String previousKey, String key,
+                                                                        Person previous, Person updated) {
+            if (!Objects.equals(previousKey, key)) {
+                return removed(index, previousKey, previous).plus(key, Indexes.appended(index.get(key), updated));
+            }
+            return index.plus(key, Indexes.replaced(index.get(key), previous, updated));
+        }
+    }
+
+    /**
+     * Constructor of a repository whose changes are not logged
+     */
+    public PersonRepository() {
+        this(MutationJournal.disabled());
     }
 
     /**
-     * Returns an iterable of Person objects
-     * @return the iterable of persons
+     * Constructor of a repository with a store of its own
+     *
+     * @param journal the write-ahead log of the changes
+     */
+    public PersonRepository(MutationJournal journal) {
+        this(new DataStore(), journal);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param store   the store of the snapshot the persons belong to
+     * @param journal the write-ahead log of the changes
+     */
+    @Autowired
+    public PersonRepository(DataStore store, MutationJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    /**
+     * Bulk inserts a batch of persons read from the data source
+     * Called at startup by the DataLoader, possibly from several loader workers at once
+     * @param persons the persons to add
+     */
+    void loadAll(Collection<Person> persons) {
+        store.write(snapshot -> {
+            List<Person> loaded = withoutDuplicates(snapshot.persons(), persons);
+            loaded.forEach(this::encode);
+            return new DataStore.Update<>(snapshot.with(snapshot.persons().plusAll(loaded), List.of(), loaded), null);
+        });
+    }
+
+    /**
+     * Returns the persons of a batch whose name is neither stored nor taken by an earlier person of the batch
+     * A duplicate is logged and skipped as a whole : indexed by address or city but not by name, it would
+     * outlive the deletion of its name.
+     *
+     * @param table   the persons stored
+     * @param persons the batch
+     * @return the persons to add, in batch order
+     */
+    private static List<Person> withoutDuplicates(Table table, Collection<Person> persons) {
+        List<Person> loaded = new ArrayList<>(persons.size());
+        Set<NameKey> names = new HashSet<>();
+        for (Person person : persons) {
+            NameKey key = keyOf(person);
+            if (table.byName().containsKey(key) || !names.add(key)) {
+                logger.warn("Duplicate person skipped : " + person.getFirstName() + " " + person.getLastName());
+            } else {
+                loaded.add(person);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Replaces the repeated values of a person by their dictionary instances : the residents of an address
+     * or a city, and the members of a household sharing a phone, hold a single copy of them
+     * Called on the writer thread, before the person is stored.
+     *
+     * @param person the person to encode
+     */
+    private void encode(Person person) {
+        StringDictionary dictionary = store.dictionary();
+        person.setAddress(dictionary.canonical(person.getAddress()));
+        person.setCity(dictionary.canonical(person.getCity()));
+        person.setPhone(dictionary.canonical(person.getPhone()));
+    }
+
+    private Table table() {
+        return store.current().persons();
+    }
+
+    /**
+     * Returns a list of Person objects, in insertion order
+     * @return the persons stored when called
      */
     @Override
     public Iterable<Person> findAll() {
         logger.debug("Method called : findAll()");
-        return personRepository;
+        return table().byInsertion().values();
     }
 
     /**
@@ -71,9 +232,30 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
     @Override
     public Optional<Person> findByName(String lastName, String firstName) {
         logger.debug("Method called : findByName(\"" + lastName + "\", \"" + firstName + "\")");
-        return this.personRepository.stream()
-                .filter(person -> person.getLastName().equals(lastName) && person.getFirstName().equals(firstName))
-                .findFirst();
+        Entry entry = table().byName().get(new NameKey(lastName, firstName));
+        return entry == null ? Optional.empty() : Optional.of(entry.person());
+    }
+
+    /**
+     * Returns the persons living at the address provided
+     * @param address the value of the address field to be matched
+     * @return a list of persons matching the parameter
+     */
+    @Override
+    public List<Person> findByAddress(String address) {
+        logger.debug("Method called : findByAddress(\"" + address + "\")");
+        return table().byAddress().getOrDefault(address, List.of());
+    }
+
+    /**
+     * Returns the persons living in the city provided
+     * @param city the value of the city field to be matched
+     * @return a list of persons matching the parameter
+     */
+    @Override
+    public List<Person> findByCity(String city) {
+        logger.debug("Method called : findByCity(\"" + city + "\")");
+        return table().byCity().getOrDefault(city, List.of());
     }
 
     /**
@@ -84,11 +266,24 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
     public boolean delete(Person person) {
         logger.debug("Method called : delete(" + person + ")");
 
-        if(!personRepository.remove(person)) {
-            logger.error("Person not found : " + person);
+        if (person == null) {
+            logger.error("Person not found : " + null);
             throw new NotFoundException("Person not found");
         }
 
+        byte[] change = journal.encode(Mutation.Entity.PERSON, Mutation.Operation.DELETE,
+                List.of(person.getLastName(), person.getFirstName()), null);
+        store.write(snapshot -> {
+            Entry entry = snapshot.persons().byName().get(keyOf(person));
+
+            if (entry == null || entry.person() != person) {
+                logger.error("Person not found : " + person);
+                throw new NotFoundException("Person not found");
+            }
+
+            return new DataStore.Update<>(snapshot.with(snapshot.persons().minus(entry), List.of(person), List.of()),
+                    person, journal.append(change));
+        });
         logger.info("Deleted : " + person);
 
         return true;
@@ -96,7 +291,6 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
 
     /**
      * Deletes a person object matching both lastname and firstname fields
-     * Overrides and call delete(Person) with the object found
      * @param lastName the value of the lastname field to be matched
      * @param firstName the value of the firstname field to be matched
      */
@@ -105,20 +299,30 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
         logger.debug("Method called : deleteByName(\""
                 + lastName + "\", \"" + firstName + "\")");
 
-        Person foundPerson = findByName(lastName, firstName).orElse(null);
+        byte[] change = journal.encode(Mutation.Entity.PERSON, Mutation.Operation.DELETE,
+                List.of(lastName, firstName), null);
+        Person deleted = store.write(snapshot -> {
+            Entry entry = snapshot.persons().byName().get(new NameKey(lastName, firstName));
 
-        if (foundPerson == null) {
-            logger.error("Person not found :" +
-                    " { lastName: " + lastName + ", firstName: " + firstName + " }");
-            throw new NotFoundException("Person not found");
-        }
+            if (entry == null) {
+                logger.error("Person not found :" +
+                        " { lastName: " + lastName + ", firstName: " + firstName + " }");
+                throw new NotFoundException("Person not found");
+            }
 
-        return delete(foundPerson);
+            return new DataStore.Update<>(
+                    snapshot.with(snapshot.persons().minus(entry), List.of(entry.person()), List.of()),
+                    entry.person(), journal.append(change));
+        });
+        logger.info("Deleted : " + deleted);
+
+        return true;
     }
 
     /**
      * Updates the person object matching the firstname and lastname parameters,
      * with values contained in a person object
+     * The stored person is replaced by a new object, at the same place in insertion order
      * @param lastName the value of the lastname field to be matched
      * @param firstName the value of the firstname field to be matched
      * @param person the new person object
@@ -134,24 +338,38 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
             throw new InvalidObjectParameterException("Invalid parameter");
         }
 
-        Person toUpdate = findByName(lastName, firstName).orElse(null);
-
-        if (toUpdate != null) {
-            toUpdate.setAddress(person.getAddress());
-            toUpdate.setCity(person.getCity());
-            toUpdate.setZip(person.getZip());
-            toUpdate.setPhone(person.getPhone());
-            toUpdate.setEmail(person.getEmail());
-
-            logger.info("Person updated :" +
-                    " {lastName=" + lastName + ":firstName=" + firstName + "} -> " + toUpdate);
-        } else {
-            logger.error("Person not found :" +
-                    " { lastName: " + lastName + ", firstName: " + firstName + " }");
-            throw new NotFoundException("Person not found");
-        }
-
-        return toUpdate;
+        Person updated = new Person();
+        updated.setFirstName(firstName);
+        updated.setLastName(lastName);
+        updated.setAddress(person.getAddress());
+        updated.setCity(person.getCity());
+        updated.setZip(person.getZip());
+        updated.setPhone(person.getPhone());
+        updated.setEmail(person.getEmail());
+
+        byte[] change = journal.encode(Mutation.Entity.PERSON, Mutation.Operation.UPDATE,
+                List.of(lastName, firstName), updated);
+        store.write(snapshot -> {
+            Entry entry = snapshot.persons().byName().get(new NameKey(lastName, firstName));
+
+            if (entry == null) {
+                logger.error("Person not found :" +
+                        " { lastName: " + lastName + ", firstName: " + firstName + " }");
+                throw new NotFoundException("Person not found");
+            }
+
+            encode(updated);
+            // Address and city may change : the table moves the person to its new buckets
+            return new DataStore.Update<>(
+                    snapshot.with(snapshot.persons().replaced(entry, updated),
+                            List.of(entry.person()), List.of(updated)),
+                    updated, journal.append(change));
+        });
+
+        logger.info("Person updated :" +
+                " {lastName=" + lastName + ":firstName=" + firstName + "} -> " + updated);
+
+        return updated;
     }
 
     /**
@@ -168,18 +386,28 @@ public class PersonRepository implements IPersonRepository, IUsable<Person> {
             throw new InvalidObjectParameterException("Invalid parameter");
         }
 
-        Optional<Person> existingPerson = findByName(person.getLastName(), person.getFirstName());
+        byte[] change = journal.encode(Mutation.Entity.PERSON, Mutation.Operation.SAVE,
+                List.of(person.getLastName(), person.getFirstName()), person);
+        store.write(snapshot -> {
+            Entry existing = snapshot.persons().byName().get(keyOf(person));
 
-        if (existingPerson.isPresent()) {
-            logger.error("Person already exists : " + existingPerson);
-            throw new AlreadyExistsException("Person already exists");
-        }
+            if (existing != null) {
+                logger.error("Person already exists : " + existing.person());
+                throw new AlreadyExistsException("Person already exists");
+            }
 
-        personRepository.add(person);
+            encode(person);
+            return new DataStore.Update<>(snapshot.with(snapshot.persons().plus(person), List.of(), List.of(person)),
+                    person, journal.append(change));
+        });
         logger.info("Person added : " + person);
         return person;
     }
 
+    private static NameKey keyOf(Person person) {
+        return new NameKey(person.getLastName(), person.getFirstName());
+    }
+
     /**
      * Check whether an object is valid
      * Object is valid if main attributes are not blank (and implicitly not null)
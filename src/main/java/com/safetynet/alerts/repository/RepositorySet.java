@@ -0,0 +1,141 @@
+package com.safetynet.alerts.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.persistence.Dataset;
+import com.safetynet.alerts.persistence.Mutation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The three repositories, filled from a dataset and changed by logged mutations
+ * Used by the DataLoader on the live repositories, and by the SnapshotCompactor on private copies
+ */
+final class RepositorySet implements AutoCloseable {
+    private static final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .build();
+
+    private final PersonRepository personRepository;
+    private final FirestationRepository firestationRepository;
+    private final MedicalrecordRepository medicalrecordRepository;
+
+    // Store created for detached repositories, closed with them
+    private final DataStore ownedStore;
+
+    RepositorySet(PersonRepository personRepository,
+                  FirestationRepository firestationRepository,
+                  MedicalrecordRepository medicalrecordRepository) {
+        this(personRepository, firestationRepository, medicalrecordRepository, null);
+    }
+
+    private RepositorySet(PersonRepository personRepository,
+                          FirestationRepository firestationRepository,
+                          MedicalrecordRepository medicalrecordRepository,
+                          DataStore ownedStore) {
+        this.personRepository = personRepository;
+        this.firestationRepository = firestationRepository;
+        this.medicalrecordRepository = medicalrecordRepository;
+        this.ownedStore = ownedStore;
+    }
+
+    /**
+     * Returns empty repositories whose changes are not logged, to be closed once used
+     *
+     * @return a new set of repositories
+     */
+    static RepositorySet detached() {
+        DataStore store = new DataStore();
+        MutationJournal journal = MutationJournal.disabled();
+        return new RepositorySet(new PersonRepository(store, journal),
+                new FirestationRepository(store, journal),
+                new MedicalrecordRepository(store, journal),
+                store);
+    }
+
+    /**
+     * Bulk inserts the content of a dataset
+     *
+     * @param dataset the content to add
+     */
+    void load(Dataset dataset) {
+        personRepository.loadAll(dataset.persons());
+        firestationRepository.loadAll(dataset.firestations());
+        medicalrecordRepository.loadAll(dataset.medicalrecords());
+    }
+
+    /**
+     * Returns the current content of the repositories
+     *
+     * @return the dataset of the three repositories
+     */
+    Dataset dataset() {
+        return new Dataset(toList(personRepository.findAll()),
+                toList(firestationRepository.findAll()),
+                toList(medicalrecordRepository.findAll()));
+    }
+
+    /**
+     * Applies a logged change through the repository which made it
+     *
+     * @param mutation the change to apply
+     */
+    void apply(Mutation mutation) {
+        List<String> key = mutation.key();
+
+        switch (mutation.entity()) {
+            case PERSON -> {
+                switch (mutation.operation()) {
+                    case SAVE -> personRepository.save(valueOf(mutation, Person.class));
+                    case UPDATE -> personRepository.update(key.get(0), key.get(1), valueOf(mutation, Person.class));
+                    case DELETE -> personRepository.delete(key.get(0), key.get(1));
+                }
+            }
+            case FIRESTATION -> {
+                switch (mutation.operation()) {
+                    case SAVE -> firestationRepository.save(valueOf(mutation, Firestation.class));
+                    case UPDATE -> firestationRepository.update(key.get(0), Integer.parseInt(key.get(1)),
+                            valueOf(mutation, Firestation.class));
+                    case DELETE -> firestationRepository.delete(key.get(0), Integer.parseInt(key.get(1)));
+                }
+            }
+            case MEDICALRECORD -> {
+                switch (mutation.operation()) {
+                    case SAVE -> medicalrecordRepository.save(valueOf(mutation, Medicalrecord.class));
+                    case UPDATE -> medicalrecordRepository.update(key.get(0), key.get(1),
+                            valueOf(mutation, Medicalrecord.class));
+                    case DELETE -> medicalrecordRepository.delete(key.get(0), key.get(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread of detached repositories
+     */
+    @Override
+    public void close() {
+        if (ownedStore != null) {
+            ownedStore.close();
+        }
+    }
+
+    private static <T> T valueOf(Mutation mutation, Class<T> clazz) {
+        try {
+            return objectMapper.treeToValue(mutation.value(), clazz);
+        } catch (IOException ioException) {
+            throw new IllegalArgumentException("Unreadable logged value : " + ioException.getMessage(), ioException);
+        }
+    }
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        List<T> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+}
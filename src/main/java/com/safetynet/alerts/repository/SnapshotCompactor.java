@@ -0,0 +1,160 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.persistence.Snapshot;
+import com.safetynet.alerts.persistence.SnapshotFile;
+import com.safetynet.alerts.persistence.WriteAheadLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Folds the write-ahead log into the snapshot in the background, so that the boot time does not grow
+ * with the history of changes
+ * A compaction never reads the live repositories :
+ * <ol>
+ * <li>the active log segment is sealed, the next changes going to a new segment,</li>
+ * <li>the current snapshot and the sealed segments are replayed into private repositories,</li>
+ * <li>their content is written as the new snapshot, recording the last sequence it includes,</li>
+ * <li>the sealed segments are deleted.</li>
+ * </ol>
+ * Writers only wait for the segment switch, made by the log writer thread between two batches, and
+ * readers are never blocked. A crash between two steps is harmless : the startup replay skips the
+ * records already included in the snapshot.
+ * Published metrics : alerts.compaction.duration, alerts.compaction.reclaimed (bytes) and alerts.wal.size.
+ */
+@Component
+public class SnapshotCompactor {
+    private static final Logger logger = LogManager.getLogger(SnapshotCompactor.class);
+
+    private final CustomProperties properties;
+    private final MutationJournal journal;
+
+    private final Timer compactionDuration;
+    private final Counter reclaimedBytes;
+
+    /**
+     * Constructor
+     *
+     * @param properties    reference to external properties file
+     * @param journal       the write-ahead log to compact
+     * @param meterRegistry the registry the compaction metrics are published to
+     */
+    public SnapshotCompactor(CustomProperties properties, MutationJournal journal, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.journal = journal;
+
+        this.compactionDuration = Timer.builder("alerts.compaction.duration")
+                .description("Time spent folding the write-ahead log into the snapshot")
+                .register(meterRegistry);
+        this.reclaimedBytes = Counter.builder("alerts.compaction.reclaimed")
+                .description("Write-ahead log bytes deleted by compactions")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("alerts.wal.size", journal, SnapshotCompactor::logSize)
+                .description("Size of the write-ahead log on disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Compacts the log once it has grown past the configured threshold
+     */
+    @Scheduled(fixedDelayString = "${com.safetynet.alerts.compactionCheckMillis:60000}",
+            initialDelayString = "${com.safetynet.alerts.compactionCheckMillis:60000}")
+    public void compactIfNeeded() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            long size = journal.size();
+            if (size >= properties.getCompactionThresholdBytes()) {
+                logger.info("Write-ahead log of " + size + " bytes, compacting");
+                compact();
+            }
+        } catch (IOException ioException) {
+            logger.error("Write-ahead log size unknown : " + ioException.getMessage(), ioException);
+        }
+    }
+
+    /**
+     * Folds the sealed log segments into a new snapshot, then deletes them
+     *
+     * @return the number of log bytes reclaimed, or -1 if no compaction was made
+     */
+    public synchronized long compact() {
+        logger.debug("Method called : compact()");
+
+        if (!isEnabled()) {
+            logger.debug("Compaction needs both a snapshot file and a write-ahead log");
+            return -1;
+        }
+
+        Path snapshotPath = Path.of(properties.getSnapshotFile());
+        Optional<Snapshot> previous = SnapshotFile.read(snapshotPath);
+        if (previous.isEmpty()) {
+            logger.warn("Compaction skipped, no valid snapshot to start from : " + snapshotPath);
+            return -1;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Optional<WriteAheadLog.Rotation> rotation = journal.rotate();
+            if (rotation.isEmpty()) {
+                return -1;
+            }
+            long lastSequence = rotation.get().lastSequence();
+
+            try (RepositorySet repositories = RepositorySet.detached()) {
+                repositories.load(previous.get().dataset());
+                journal.replay(rotation.get().segments(), previous.get().lastSequence(), repositories::apply);
+
+                SnapshotFile.write(snapshotPath, repositories.dataset(), previous.get().fingerprint(), lastSequence);
+            }
+
+            long reclaimed = 0;
+            for (Path segment : rotation.get().segments()) {
+                long size = Files.size(segment);
+                Files.delete(segment);
+                reclaimed += size;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            compactionDuration.record(elapsed, TimeUnit.NANOSECONDS);
+            reclaimedBytes.increment(reclaimed);
+
+            logger.info("Compaction up to sequence " + lastSequence + " in " + elapsed / 1_000_000 + " ms, "
+                    + reclaimed + " bytes reclaimed");
+            return reclaimed;
+
+        } catch (IOException ioException) {
+            logger.error("Compaction failed : " + ioException.getMessage(), ioException);
+            return -1;
+        }
+    }
+
+    private boolean isEnabled() {
+        String snapshotFile = properties.getSnapshotFile();
+        return journal.isEnabled() && snapshotFile != null && !snapshotFile.isBlank();
+    }
+
+    private static double logSize(MutationJournal journal) {
+        try {
+            return journal.size();
+        } catch (IOException ioException) {
+            return Double.NaN;
+        }
+    }
+}
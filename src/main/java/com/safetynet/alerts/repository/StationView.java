@@ -0,0 +1,181 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.PersistentTreeMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Materialized coverage of a station : its households, its minor / major counts and its phone numbers
+ * A view is immutable, and replaced by the DataStore writer thread whenever a change touches one of its
+ * households, mappings or residents' medicalrecords. The lists derived from it are built on first read,
+ * once per version of the view.
+ */
+public final class StationView {
+
+    private final int station;
+
+    // Bucket of the firestation station index : the mappings of the station, in mapping order
+    private final List<Firestation> mappings;
+
+    // Covered address -> bucket of the person address index, empty if nobody lives there
+    private final PersistentTreeMap<String, List<Person>> households;
+
+    private final int minors;
+    private final int majors;
+
+    // Phone number -> number of covered persons sharing it
+    private final PersistentTreeMap<String, Integer> phoneCounts;
+
+    private volatile List<String> addresses;
+    private volatile List<Person> persons;
+    private volatile Set<String> phones;
+
+    StationView(int station,
+                List<Firestation> mappings,
+                PersistentTreeMap<String, List<Person>> households,
+                int minors,
+                int majors,
+                PersistentTreeMap<String, Integer> phoneCounts) {
+        this.station = station;
+        this.mappings = mappings;
+        this.households = households;
+        this.minors = minors;
+        this.majors = majors;
+        this.phoneCounts = phoneCounts;
+    }
+
+    static StationView empty(int station) {
+        return new StationView(station, List.of(), PersistentTreeMap.empty(Indexes.STRING_ORDER), 0, 0,
+                PersistentTreeMap.empty(Indexes.STRING_ORDER));
+    }
+
+    public int station() {
+        return station;
+    }
+
+    public int minors() {
+        return minors;
+    }
+
+    public int majors() {
+        return majors;
+    }
+
+    /**
+     * Returns the distinct addresses covered by the station
+     *
+     * @return the addresses, in mapping order
+     */
+    public List<String> addresses() {
+        List<String> result = addresses;
+        if (result == null) {
+            Set<String> distinct = new LinkedHashSet<>();
+            for (Firestation mapping : mappings) {
+                distinct.add(mapping.getAddress());
+            }
+            result = List.copyOf(distinct);
+            addresses = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the residents of a covered address
+     *
+     * @param address the address
+     * @return the residents, in address index order, empty if the address is not covered
+     */
+    public List<Person> household(String address) {
+        return households.getOrDefault(address, List.of());
+    }
+
+    /**
+     * Returns the persons covered by the station
+     *
+     * @return the persons, grouped by address in mapping order
+     */
+    public List<Person> persons() {
+        List<Person> result = persons;
+        if (result == null) {
+            List<Person> covered = new ArrayList<>();
+            for (String address : addresses()) {
+                covered.addAll(household(address));
+            }
+            result = List.copyOf(covered);
+            persons = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distinct phone numbers of the covered persons
+     *
+     * @return an immutable set of phone numbers
+     */
+    public Set<String> phones() {
+        Set<String> result = phones;
+        if (result == null) {
+            Set<String> distinct = new LinkedHashSet<>();
+            phoneCounts.forEach((phone, count) -> distinct.add(phone));
+            result = Collections.unmodifiableSet(distinct);
+            phones = result;
+        }
+        return result;
+    }
+
+    boolean covers(String address) {
+        return households.containsKey(address);
+    }
+
+    StationView withMappings(List<Firestation> mappings) {
+        return new StationView(station, mappings, households, minors, majors, phoneCounts);
+    }
+
+    /**
+     * Returns this view with the residents of a covered address replaced by a new bucket
+     */
+    StationView withHousehold(String address, List<Person> household) {
+        return new StationView(station, mappings, households.plus(address, household), minors, majors, phoneCounts);
+    }
+
+    StationView withoutHousehold(String address) {
+        return new StationView(station, mappings, households.minus(address), minors, majors, phoneCounts);
+    }
+
+    /**
+     * Returns this view with a resident counted in, or out
+     *
+     * @param person the resident
+     * @param minor  the classification of the resident
+     * @param delta  1 to count the resident in, -1 to count it out
+     */
+    StationView counted(Person person, boolean minor, int delta) {
+        return new StationView(station, mappings, households,
+                minor ? minors + delta : minors,
+                minor ? majors : majors + delta,
+                countedPhone(phoneCounts, person.getPhone(), delta));
+    }
+
+    /**
+     * Returns this view with a resident moved from one classification to the other
+     */
+    StationView reclassified(boolean wasMinor, boolean minor) {
+        if (wasMinor == minor) {
+            return this;
+        }
+        int delta = minor ? 1 : -1;
+        return new StationView(station, mappings, households, minors + delta, majors - delta, phoneCounts);
+    }
+
+    private static PersistentTreeMap<String, Integer> countedPhone(PersistentTreeMap<String, Integer> phoneCounts,
+                                                                   String phone, int delta) {
+        int count = phoneCounts.getOrDefault(phone, 0) + delta;
+        return count <= 0 ? phoneCounts.minus(phone) : phoneCounts.plus(phone, count);
+    }
+}
@@ -0,0 +1,39 @@
+package com.safetynet.alerts.repository;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository of the station views : per station covered persons, minor / major counts and phone numbers
+ * The views are part of the DataStore snapshot, and kept up to date by the changes of the three other
+ * repositories. Their classification holds for the day of the snapshot, moved on at midnight by the
+ * AgeRollover, so that a request never computes an age to count minors.
+ */
+@Repository
+public class StationViewRepository implements IStationViewRepository {
+    private static final Logger logger = LogManager.getLogger(StationViewRepository.class);
+
+    private final DataStore store;
+
+    /**
+     * Constructor
+     *
+     * @param store the store the views belong to
+     */
+    public StationViewRepository(DataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the view of a station
+     *
+     * @param station the station number
+     * @return the view, empty for a station covering nothing
+     */
+    @Override
+    public StationView findByStation(int station) {
+        logger.debug("Method called : findByStation(" + station + ")");
+        return store.current().coverage().station(station);
+    }
+}
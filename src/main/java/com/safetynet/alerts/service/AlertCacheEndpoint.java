@@ -0,0 +1,31 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.util.ResultCache;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint /actuator/alertcache : the hits, misses, evictions and invalidations of the alert
+ * results cache since startup, and the queries coalesced with an identical one being computed
+ */
+@Component
+@Endpoint(id = "alertcache")
+public class AlertCacheEndpoint {
+
+    private final IAlertService alertService;
+
+    /**
+     * Constructor
+     *
+     * @param alertService the service whose cache is reported
+     */
+    public AlertCacheEndpoint(IAlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @ReadOperation
+    public ResultCache.Statistics alertCache() {
+        return alertService.cacheStatistics();
+    }
+}
@@ -1,19 +1,50 @@
 package com.safetynet.alerts.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.dto.AgeStatistics;
+import com.safetynet.alerts.dto.ChildAlert;
+import com.safetynet.alerts.dto.CoveredPerson;
+import com.safetynet.alerts.dto.FireReport;
+import com.safetynet.alerts.dto.HouseholdMember;
+import com.safetynet.alerts.dto.PersonInfo;
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.dto.StationCoverage;
+import com.safetynet.alerts.exception.InvalidObjectParameterException;
+import com.safetynet.alerts.model.Medicalrecord;
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataSnapshot;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.Household;
+import com.safetynet.alerts.repository.IHouseholdRepository;
+import com.safetynet.alerts.repository.IStationViewRepository;
+import com.safetynet.alerts.repository.NameKey;
+import com.safetynet.alerts.repository.StationView;
+import com.safetynet.alerts.util.Medications;
+import com.safetynet.alerts.util.ResultCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Alert queries, each joining the content of several repositories
+ * A query pins one snapshot of the DataStore for its whole run, so that a concurrent change can not
+ * give it a torn view, such as a person whose medicalrecord has just been deleted.
+ * /firestation, /phoneAlert and /flood read the station views maintained by the repositories, /childAlert and
+ * /fire the household of the address : minors are classified in advance, for the day of the snapshot, and
+ * ages are only computed for display. In validation mode, each answer read from the views is also compared
+ * with the computation from scratch.
+ * The answers of these six queries are cached, each with the versions of the stations, address or city it
+ * was read from, and the day of the snapshot : an answer is reused until a change touches its data, the day
+ * changes, or it expires. Identical queries arriving while the answer is computed for the same versions
+ * wait for it instead of computing it again.
+ */
 @Service
 public class AlertService implements IAlertService {
     private static final Logger logger = LogManager.getLogger(AlertService.class);
@@ -24,198 +55,587 @@ public class AlertService implements IAlertService {
 
     private final IMedicalrecordService medicalrecordService;
 
+    private final IStationViewRepository stationViewRepository;
+
+    private final IHouseholdRepository householdRepository;
+
+    private final DataStore dataStore;
+
+    private final boolean validateViews;
+
+    private final ResultCache<String, Object> cache;
+
     @Autowired
     public AlertService(IPersonService personService,
                         IFirestationService firestationService,
-                        IMedicalrecordService medicalrecordService) {
+                        IMedicalrecordService medicalrecordService,
+                        IStationViewRepository stationViewRepository,
+                        IHouseholdRepository householdRepository,
+                        DataStore dataStore,
+                        CustomProperties properties) {
         this.personService = personService;
         this.firestationService = firestationService;
         this.medicalrecordService = medicalrecordService;
+        this.stationViewRepository = stationViewRepository;
+        this.householdRepository = householdRepository;
+        this.dataStore = dataStore;
+        this.validateViews = properties.isValidateViews();
+        this.cache = new ResultCache<>(properties.getAlertCacheSize(),
+                TimeUnit.MILLISECONDS.toNanos(properties.getAlertCacheTtlMillis()), System::nanoTime,
+                properties.isAlertCoalescing());
     }
 
+    /**
+     * Returns the persons living at an address covered by the station
+     * Hash join : the station's address set drives one probe of the person address index per address,
+     * so the cost grows with the covered population instead of persons x firestations
+     *
+     * @param station the station number
+     * @return the persons covered, grouped by address
+     */
     @Override
     public List<Person> getPersonsCoveredByStation(int station) {
-        List<Firestation> firestations = firestationService.getFirestationByStation(station);
-        return personService.getPersons().stream()
-                .filter(firestation -> firestations.stream()
-                        .anyMatch(person -> person.getAddress().equals(firestation.getAddress())))
-                .collect(Collectors.toList());
+        return dataStore.read(() -> {
+            List<Person> persons = new ArrayList<>();
+            for (String address : coveredAddresses(station)) {
+                persons.addAll(personService.getPersonsByAddress(address));
+            }
+            return persons;
+        });
     }
 
-    @Override
-    public Map<String, Object> firestation(int station) {
-        // AtomInteger used to allow variable modification in stream
-        AtomicInteger majors = new AtomicInteger();
-        AtomicInteger minors = new AtomicInteger();
-
-        List<Person> persons = getPersonsCoveredByStation(station);
+    /**
+     * Returns the union of the addresses covered by the stations, without duplicates
+     *
+     * @param stations the station numbers
+     * @return the covered addresses, in station then mapping order
+     */
+    private Set<String> coveredAddresses(int... stations) {
+        Set<String> addresses = new LinkedHashSet<>();
+        for (int station : stations) {
+            addresses.addAll(firestationService.getAddressesByStation(station));
+        }
+        return addresses;
+    }
 
-        List<ObjectNode> personsCovered = persons.stream()
-                .map(m -> {
-                    if (medicalrecordService.isMinor(m.getLastName(), m.getFirstName())) {
-                        minors.getAndIncrement();
-                    } else {
-                        majors.getAndIncrement();
-                    }
+    @Override
+    public StationCoverage firestation(int station) {
+        String query = "firestation(" + station + ")";
+        return dataStore.read(() -> {
+            StationCoverage stationCoverage = cached(query, stationVersions(station), () -> fromViews(query,
+                    stationCoverage(stationViewRepository.findByStation(station)),
+                    () -> computeStationCoverage(station, newContext())));
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + stationCoverage);
+            return stationCoverage;
+        });
+    }
 
-                    return personDetails(m, true, true, false, false, false);
-                }).toList();
+    private static StationCoverage stationCoverage(StationView view) {
+        return new StationCoverage(view.minors(), view.majors(),
+                view.persons().stream().map(CoveredPerson::of).toList());
+    }
 
-        Map<String, Object> mapOfPersonsCovered = new HashMap<>();
-        mapOfPersonsCovered.put("minors", minors);
-        mapOfPersonsCovered.put("majors", majors);
-        mapOfPersonsCovered.put("persons", personsCovered);
+    private StationCoverage computeStationCoverage(int station, QueryContext context) {
+        int minors = 0;
+        int majors = 0;
+        List<CoveredPerson> personsCovered = new ArrayList<>();
 
+        for (Person person : getPersonsCoveredByStation(station)) {
+            if (context.isMinor(person)) {
+                minors++;
+            } else {
+                majors++;
+            }
+            personsCovered.add(CoveredPerson.of(person));
+        }
 
-        logger.info("Call   : firestation(" + station + ")");
-        logger.info("Result : " + mapOfPersonsCovered);
-        return mapOfPersonsCovered;
+        return new StationCoverage(minors, majors, personsCovered);
     }
 
     @Override
-    public Map<String, Object> childAlert(String address) {
-        // Children at address ?
-        boolean hasChildren = personService.getPersonsByAddress(address).stream()
-                .anyMatch(p -> medicalrecordService.isMinor(p.getLastName(), p.getFirstName()));
+    public ChildAlert childAlert(String address) {
+        String query = "childAlert(" + address + ")";
+        return dataStore.read(() -> {
+            ChildAlert childAlert = cached(query, addressVersions(address), () -> {
+                QueryContext context = newContext();
+                return fromViews(query,
+                        childAlert(householdRepository.findByAddress(address), context),
+                        () -> childAlert(personService.getPersonsByAddress(address), context));
+            });
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + childAlert);
+            return childAlert;
+        });
+    }
 
-        List<JsonNode> listOfChildren = new ArrayList<>();
-        List<JsonNode> listOfMembers = new ArrayList<>();
-        Map<String, Object> medicalrecordsWithChildren = new HashMap<>();
+    private ChildAlert childAlert(Household household, QueryContext context) {
+        List<HouseholdMember> listOfChildren = new ArrayList<>();
+        List<HouseholdMember> listOfMembers = new ArrayList<>();
 
-        if (hasChildren) {
-            for (Person person : personService.getPersonsByAddress(address)) {
-
-                ObjectNode personInfo = personDetails(person, false, false, true, false, false);
-                if (medicalrecordService.isMinor(person.getLastName(), person.getFirstName())) {
-                    listOfChildren.add(personInfo);
+        // No children at address : nothing to report, without looking at any resident
+        if (household.hasChildren()) {
+            for (Person person : household.residents()) {
+                HouseholdMember member = HouseholdMember.of(person, context.ageOf(person));
+                if (household.isMinor(person)) {
+                    listOfChildren.add(member);
                 } else {
-                    listOfMembers.add(personInfo);
+                    listOfMembers.add(member);
                 }
             }
         }
 
-        medicalrecordsWithChildren.put("children", listOfChildren);
-        medicalrecordsWithChildren.put("members", listOfMembers);
+        return new ChildAlert(listOfChildren, listOfMembers);
+    }
+
+    private ChildAlert childAlert(List<Person> residents, QueryContext context) {
+        List<HouseholdMember> listOfChildren = new ArrayList<>();
+        List<HouseholdMember> listOfMembers = new ArrayList<>();
+
+        // Each resident's age is resolved once, for both the display and the classification
+        for (Person person : residents) {
+            HouseholdMember member = HouseholdMember.of(person, context.ageOf(person));
+            if (context.isMinor(person)) {
+                listOfChildren.add(member);
+            } else {
+                listOfMembers.add(member);
+            }
+        }
+
+        // No children at address : nothing to report
+        if (listOfChildren.isEmpty()) {
+            listOfMembers.clear();
+        }
 
-        logger.info("Call   : childAlert(" + address + ")");
-        logger.info("Result : " + medicalrecordsWithChildren);
-        return medicalrecordsWithChildren;
+        return new ChildAlert(listOfChildren, listOfMembers);
     }
 
     @Override
     public Set<String> phoneAlert(int station) {
-        Set<String> phoneNumbers = getPersonsCoveredByStation(station).stream()
-                .map(Person::getPhone)
-                .collect(Collectors.toSet());
-
-        logger.info("Call   : phoneAlert(" + station + ")");
-        logger.info("Result : " + phoneNumbers);
-        return phoneNumbers;
+        String query = "phoneAlert(" + station + ")";
+        return dataStore.read(() -> {
+            Set<String> phoneNumbers = cached(query, stationVersions(station), () -> fromViews(query,
+                    stationViewRepository.findByStation(station).phones(),
+                    () -> getPersonsCoveredByStation(station).stream()
+                            .map(Person::getPhone)
+                            .collect(Collectors.toSet())));
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + phoneNumbers);
+            return phoneNumbers;
+        });
     }
 
     @Override
-    public Map<String, Object> fire(String address) {
-        Set<Integer> firestationsID = firestationService.getFirestationByAddress(address).stream()
-                .filter(f -> f.getAddress().equals(address))
-                .map(Firestation::getStation)
-                .collect(Collectors.toSet());
+    public FireReport fire(String address) {
+        String query = "fire(" + address + ")";
+        return dataStore.read(() -> {
+            FireReport fireReport = cached(query, addressVersions(address), () -> {
+                QueryContext context = newContext();
+                Household household = householdRepository.findByAddress(address);
+                return fromViews(query,
+                        new FireReport(address, household.stations(),
+                                household.residents().stream().map(context::residentDetails).toList()),
+                        () -> computeFireReport(address, context));
+            });
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + fireReport);
+            return fireReport;
+        });
+    }
 
-        List<ObjectNode> persons = personService.getPersonsByAddress(address).stream()
-                .map(p -> personDetails(p, false, true, true, false, true)).toList();
+    private FireReport computeFireReport(String address, QueryContext context) {
+        Set<Integer> firestationsID = context.stationsOf(address);
 
-        Map<String, Object> mapOfPersons = new HashMap<>();
-        if (firestationsID.isEmpty()) {
-            mapOfPersons.put("address", "");
-        }
-        mapOfPersons.put("address", address);
-        mapOfPersons.put("stationNumber", firestationsID);
-        mapOfPersons.put("persons", persons);
+        List<ResidentDetails> persons = personService.getPersonsByAddress(address).stream()
+                .map(context::residentDetails).toList();
 
-        logger.info("Call   : fire(" + address + ")");
-        logger.info("Result : " + mapOfPersons);
-        return mapOfPersons;
+        return new FireReport(address, firestationsID, persons);
     }
 
     @Override
-    public JsonNode personInfo(String lastName, String firstName) {
-        Person person = personService.getPersonByName(lastName, firstName);
-
-        ObjectNode personInfo = personDetails(person, true, false, true, true, true);
+    public PersonInfo personInfo(String lastName, String firstName) {
+        return dataStore.read(() -> {
+            Person person = personService.getPersonByName(lastName, firstName);
+
+            PersonInfo personInfo = null;
+            if (person != null) {
+                QueryContext context = newContext();
+                personInfo = PersonInfo.of(person, context.ageOf(person), context.medicalrecordOf(person));
+            }
 
-        logger.info("Call   : personInfo(" + lastName + ", " + firstName + ")");
-        logger.info("Result : " + personInfo);
-        return personInfo;
+            logger.info("Call   : personInfo(" + lastName + ", " + firstName + ")");
+            logger.info("Result : " + personInfo);
+            return personInfo;
+        });
     }
 
     @Override
     public Set<String> communityEmail(String city) {
-        Set<String> emails = personService.getPersonsByCity(city).stream()
-                .map(Person::getEmail)
-                .collect(Collectors.toSet());
+        return dataStore.read(() -> {
+            Set<String> emails = cached("communityEmail(" + city + ")", cityVersions(city),
+                    () -> personService.getPersonsByCity(city).stream()
+                            .map(Person::getEmail)
+                            .collect(Collectors.toSet()));
+
+            logger.info("Call   : communityEmail(" + city + ")");
+            logger.info("Result : " + emails);
+            return emails;
+        });
+    }
 
-        logger.info("Call   : communityEmail(" + city + ")");
-        logger.info("Result : " + emails);
-        return emails;
+    /**
+     * Returns the households covered by any of the stations, grouped by address
+     * The union of covered addresses is resolved once, then each household is gathered with a single
+     * address index probe, whatever the number of stations requested
+     *
+     * @param stations the station numbers
+     * @return a map of address to the details of its residents
+     */
+    @Override
+    public Map<String, List<ResidentDetails>> flood(int[] stations) {
+        String query = "flood(" + Arrays.toString(stations) + ")";
+        return dataStore.read(() -> {
+            Map<String, List<ResidentDetails>> mapOfResidents = cached(query, stationVersions(stations), () -> {
+                QueryContext context = newContext();
+                return fromViews(query, flood(stationViews(stations), context), () -> computeFlood(stations, context));
+            });
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + mapOfResidents);
+            return mapOfResidents;
+        });
+    }
+
+    @Override
+    public AgeStatistics ageStatistics(String city) {
+        return dataStore.read(() -> {
+            AgeStatistics ageStatistics = medicalrecordService.getAgeStatistics(city);
+
+            logger.info("Call   : ageStatistics(" + city + ")");
+            logger.info("Result : " + ageStatistics);
+            return ageStatistics;
+        });
     }
 
+    /**
+     * Returns the residents within an age range, of the addresses covered by a station or of an address,
+     * grouped by address
+     * The birth day index gives the medicalrecords of the age range directly, oldest first ; each is then
+     * located with one person lookup, and one coverage lookup of its address when a station is given.
+     *
+     * @param station the station number, or null for any address
+     * @param address the address, or null for any address
+     * @param minAge  the lowest age, included
+     * @param maxAge  the highest age, included
+     * @return a map of address to the details of its residents in the range, oldest first
+     */
     @Override
-    public Map<String, List<ObjectNode>> flood(int[] stations) {
-        Set<Firestation> firestations = new HashSet<>();
+    public Map<String, List<ResidentDetails>> ageAlert(Integer station, String address, int minAge, int maxAge) {
+        String query = "ageAlert(" + station + ", " + address + ", " + minAge + ", " + maxAge + ")";
+        if (minAge < 0 || maxAge < minAge) {
+            logger.error("Invalid parameter : " + query);
+            throw new InvalidObjectParameterException("Invalid parameter");
+        }
+
+        return dataStore.read(() -> {
+            QueryContext context = newContext();
+            Map<String, List<ResidentDetails>> mapOfResidents = fromViews(query,
+                    ageAlert(station, address, medicalrecordService.getMedicalrecordsByAge(minAge, maxAge), context),
+                    () -> computeAgeAlert(station, address, minAge, maxAge, context));
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + mapOfResidents);
+            return mapOfResidents;
+        });
+    }
+
+    private Map<String, List<ResidentDetails>> ageAlert(Integer station, String address,
+                                                        List<Medicalrecord> medicalrecords, QueryContext context) {
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
+
+        for (Medicalrecord medicalrecord : medicalrecords) {
+            Person person = personService.getPersonByName(medicalrecord.getLastName(), medicalrecord.getFirstName());
+            if (person != null && isAt(person, station, address, context)) {
+                context.resolved(medicalrecord);
+                mapOfResidents.computeIfAbsent(person.getAddress(), key -> new ArrayList<>())
+                        .add(context.residentDetails(person));
+            }
+        }
+        return mapOfResidents;
+    }
+
+    private static boolean isAt(Person person, Integer station, String address, QueryContext context) {
+        return (address == null || address.equals(person.getAddress()))
+                && (station == null || context.stationsOf(person.getAddress()).contains(station));
+    }
+
+    private Map<String, List<ResidentDetails>> computeAgeAlert(Integer station, String address, int minAge, int maxAge,
+                                                               QueryContext context) {
+        List<Person> candidates = station != null ? getPersonsCoveredByStation(station) : personService.getPersons();
+
+        SortedMap<LocalDate, SortedMap<NameKey, Person>> matches = new TreeMap<>();
+        for (Person person : candidates) {
+            Medicalrecord medicalrecord = context.medicalrecordOf(person);
+            if (medicalrecord == null || medicalrecord.getBirthdate() == null
+                    || (address != null && !address.equals(person.getAddress()))) {
+                continue;
+            }
+
+            int age = context.ageOf(person);
+            if (age >= minAge && age <= maxAge) {
+                matches.computeIfAbsent(medicalrecord.getBirthdate(), birthdate -> new TreeMap<>())
+                        .put(new NameKey(person.getLastName(), person.getFirstName()), person);
+            }
+        }
+
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
+        for (SortedMap<NameKey, Person> born : matches.values()) {
+            for (Person person : born.values()) {
+                mapOfResidents.computeIfAbsent(person.getAddress(), key -> new ArrayList<>())
+                        .add(context.residentDetails(person));
+            }
+        }
+        return mapOfResidents;
+    }
 
+    /**
+     * Returns the residents of the addresses covered by any of the stations who take a medication or have
+     * an allergy, grouped by address
+     * The medication and allergy indexes give the matching medicalrecords directly ; each match is then
+     * located with one person lookup and one coverage lookup of its address, so the cost grows with the
+     * number of persons listing the terms, whatever the population of the stations.
+     *
+     * @param stations   the station numbers
+     * @param medication the name of the medication, or null
+     * @param allergy    the allergy, or null
+     * @return a map of address to the details of its matching residents, in name order
+     */
+    @Override
+    public Map<String, List<ResidentDetails>> medicalAlert(int[] stations, String medication, String allergy) {
+        String query = "medicalAlert(" + Arrays.toString(stations) + ", " + medication + ", " + allergy + ")";
+        if (medication == null && allergy == null) {
+            logger.error("Invalid parameter : " + query);
+            throw new InvalidObjectParameterException("Invalid parameter");
+        }
+
+        return dataStore.read(() -> {
+            QueryContext context = newContext();
+            Map<String, List<ResidentDetails>> mapOfResidents = fromViews(query,
+                    medicalAlert(stations, matches(medication, allergy), context),
+                    () -> computeMedicalAlert(stations, medication, allergy, context));
+
+            logger.info("Call   : " + query);
+            logger.info("Result : " + mapOfResidents);
+            return mapOfResidents;
+        });
+    }
+
+    /**
+     * Returns the union of the medicalrecords listing the medication or the allergy, by name
+     */
+    private SortedMap<NameKey, Medicalrecord> matches(String medication, String allergy) {
+        SortedMap<NameKey, Medicalrecord> matches = new TreeMap<>();
+        if (medication != null) {
+            for (Medicalrecord medicalrecord : medicalrecordService.getMedicalrecordsByMedication(medication)) {
+                matches.put(new NameKey(medicalrecord.getLastName(), medicalrecord.getFirstName()), medicalrecord);
+            }
+        }
+        if (allergy != null) {
+            for (Medicalrecord medicalrecord : medicalrecordService.getMedicalrecordsByAllergy(allergy)) {
+                matches.put(new NameKey(medicalrecord.getLastName(), medicalrecord.getFirstName()), medicalrecord);
+            }
+        }
+        return matches;
+    }
+
+    private Map<String, List<ResidentDetails>> medicalAlert(int[] stations, SortedMap<NameKey, Medicalrecord> matches,
+                                                            QueryContext context) {
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
+
+        for (Map.Entry<NameKey, Medicalrecord> match : matches.entrySet()) {
+            Person person = personService.getPersonByName(match.getKey().lastName(), match.getKey().firstName());
+            if (person != null && isCoveredByAny(context.stationsOf(person.getAddress()), stations)) {
+                context.resolved(match.getValue());
+                mapOfResidents.computeIfAbsent(person.getAddress(), address -> new ArrayList<>())
+                        .add(context.residentDetails(person));
+            }
+        }
+        return mapOfResidents;
+    }
+
+    private static boolean isCoveredByAny(Set<Integer> covering, int[] stations) {
         for (int station : stations) {
-            firestations.addAll(firestationService.getFirestationByStation(station));
+            if (covering.contains(station)) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        Set<Person> persons = new HashSet<>();
+    private Map<String, List<ResidentDetails>> computeMedicalAlert(int[] stations, String medication, String allergy,
+                                                                   QueryContext context) {
+        SortedMap<NameKey, Person> matches = new TreeMap<>();
 
-        for (Firestation station : firestations) {
-            persons.addAll(getPersonsCoveredByStation(station.getStation()));
+        for (String address : coveredAddresses(stations)) {
+            for (Person person : personService.getPersonsByAddress(address)) {
+                Medicalrecord medicalrecord = context.medicalrecordOf(person);
+                if (medicalrecord != null && (lists(medicalrecord.getMedications(), medication, true)
+                        || lists(medicalrecord.getAllergies(), allergy, false))) {
+                    matches.put(new NameKey(person.getLastName(), person.getFirstName()), person);
+                }
+            }
         }
 
-        Map<String, List<Person>> test = persons.stream()
-                .collect(Collectors.groupingBy(Person::getAddress));
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
+        for (Person person : matches.values()) {
+            mapOfResidents.computeIfAbsent(person.getAddress(), address -> new ArrayList<>())
+                    .add(context.residentDetails(person));
+        }
+        return mapOfResidents;
+    }
 
-        Map<String, List<ObjectNode>> mapOfNodes = new HashMap<>();
-        for (var entry : test.entrySet()) {
-            String key = entry.getKey();
-            List<ObjectNode> personList = entry.getValue().stream()
-                    .map(p -> personDetails(p, false, true, true, false, true)).toList();
-            mapOfNodes.put(key, personList);
+    /**
+     * Checks whether a medication or allergy list names a term, medications being compared without dosage
+     */
+    private static boolean lists(List<String> values, String term, boolean medication) {
+        if (values == null || term == null) {
+            return false;
         }
+        String name = medication ? Medications.name(term) : term;
+        for (String value : values) {
+            if ((medication ? Medications.name(value) : value).equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, List<ResidentDetails>> flood(List<StationView> views, QueryContext context) {
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
 
-        logger.info("Call   : flood(" + Arrays.toString(stations) + ")");
-        logger.info("Result : " + mapOfNodes);
-        return mapOfNodes;
+        for (StationView view : views) {
+            for (String address : view.addresses()) {
+                List<Person> household = view.household(address);
+                if (!household.isEmpty() && !mapOfResidents.containsKey(address)) {
+                    mapOfResidents.put(address, household.stream().map(context::residentDetails).toList());
+                }
+            }
+        }
+        return mapOfResidents;
+    }
+
+    private Map<String, List<ResidentDetails>> computeFlood(int[] stations, QueryContext context) {
+        Map<String, List<ResidentDetails>> mapOfResidents = new LinkedHashMap<>();
+
+        for (String address : coveredAddresses(stations)) {
+            List<Person> household = personService.getPersonsByAddress(address);
+            if (!household.isEmpty()) {
+                mapOfResidents.put(address, household.stream().map(context::residentDetails).toList());
+            }
+        }
+        return mapOfResidents;
     }
 
+    /**
+     * Returns the views of the stations
+     *
+     * @param stations the station numbers
+     * @return the views, in the order of the stations
+     */
+    private List<StationView> stationViews(int... stations) {
+        List<StationView> views = new ArrayList<>(stations.length);
+        for (int station : stations) {
+            views.add(stationViewRepository.findByStation(station));
+        }
+        return views;
+    }
+
+    /**
+     * Returns the counters of the alert results cache
+     *
+     * @return the statistics
+     */
     @Override
-    public ObjectNode personDetails(Person person,
-                                    boolean address,
-                                    boolean phone,
-                                    boolean age,
-                                    boolean email,
-                                    boolean medicalinfo) {
-
-        if (person == null) {
-            return null;
-        }
-
-        ObjectMapper objectMapper = new ObjectMapper();
-        ObjectNode personInfo = objectMapper.createObjectNode();
-
-        personInfo.put("firstName", person.getFirstName());
-        personInfo.put("lastName", person.getLastName());
-        if (address) { personInfo.put("address", person.getAddress()); }
-        if (phone) { personInfo.put("phone", person.getPhone()); }
-        if (age) { personInfo.put("age", medicalrecordService.getAge(person.getLastName(), person.getFirstName())); }
-        if (email) { personInfo.put("email", person.getEmail()); }
-        if (medicalinfo) {
-            personInfo.set("medications", objectMapper.valueToTree(
-                    medicalrecordService.getMedicalrecord(person.getLastName(), person.getFirstName()).getMedications()));
-            personInfo.set("allergies", objectMapper.valueToTree(
-                    medicalrecordService.getMedicalrecord(person.getLastName(), person.getFirstName()).getAllergies()));
-        }
-
-        return personInfo;
+    public ResultCache.Statistics cacheStatistics() {
+        return cache.statistics();
+    }
+
+    /**
+     * Returns the answer of a query from the cache, computed unless held for the same versions
+     *
+     * @param query    the query, key of the cache
+     * @param versions the versions of the data of the query in the pinned snapshot, from stationVersions,
+     *                 addressVersions or cityVersions
+     * @param compute  the computation of the answer
+     * @return the answer to the query
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String query, long[] versions, Supplier<T> compute) {
+        return (T) cache.get(query, versions, compute::get);
+    }
+
+    /**
+     * Returns the day of the pinned snapshot, followed by the versions of stations
+     */
+    private long[] stationVersions(int... stations) {
+        DataSnapshot snapshot = dataStore.current();
+        long[] versions = new long[stations.length + 1];
+        versions[0] = snapshot.day();
+        for (int i = 0; i < stations.length; i++) {
+            versions[i + 1] = snapshot.versions().station(stations[i]);
+        }
+        return versions;
+    }
+
+    /**
+     * Returns the day of the pinned snapshot, followed by the version of an address
+     */
+    private long[] addressVersions(String address) {
+        DataSnapshot snapshot = dataStore.current();
+        return new long[]{snapshot.day(), snapshot.versions().address(address)};
+    }
+
+    /**
+     * Returns the day of the pinned snapshot, followed by the version of a city
+     */
+    private long[] cityVersions(String city) {
+        DataSnapshot snapshot = dataStore.current();
+        return new long[]{snapshot.day(), snapshot.versions().city(city)};
+    }
+
+    /**
+     * Returns the answer of a query read from the views
+     * In validation mode, the answer of the views is compared with the computation from scratch, which is
+     * returned instead in case of difference.
+     *
+     * @param query   the query, for logging
+     * @param result  the answer read from the views
+     * @param compute the computation from scratch
+     * @return the answer to the query
+     */
+    private <T> T fromViews(String query, T result, Supplier<T> compute) {
+        if (validateViews) {
+            T expected = compute.get();
+            if (!expected.equals(result)) {
+                logger.error("View mismatch for " + query + " : " + result + " instead of " + expected);
+                return expected;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new context memoizing the lookups of one query, computing ages for the day of the pinned
+     * snapshot
+     *
+     * @return the context
+     */
+    private QueryContext newContext() {
+        return new QueryContext(medicalrecordService, firestationService,
+                LocalDate.ofEpochDay(dataStore.current().day()));
     }
 }
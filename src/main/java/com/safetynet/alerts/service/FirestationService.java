@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Functional Firestation object management
@@ -59,6 +60,18 @@ public class FirestationService implements IFirestationService {
         return firestationRepository.findByStation(station);
     }
 
+    /**
+     * Returns the distinct addresses covered by the station provided
+     *
+     * @param station the value of the station field to be matched
+     * @return a set of addresses
+     */
+    @Override
+    public Set<String> getAddressesByStation(int station) {
+        logger.debug("Method called : getAddressesByStation(" + station + ")");
+        return firestationRepository.findAddressesByStation(station);
+    }
+
     /**
      * Returns a firestation matching address and station parameters
      *
@@ -1,8 +1,13 @@
 package com.safetynet.alerts.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.safetynet.alerts.dto.AgeStatistics;
+import com.safetynet.alerts.dto.ChildAlert;
+import com.safetynet.alerts.dto.FireReport;
+import com.safetynet.alerts.dto.PersonInfo;
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.dto.StationCoverage;
 import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.ResultCache;
 
 import java.util.List;
 import java.util.Map;
@@ -11,24 +16,25 @@ import java.util.Set;
 public interface IAlertService {
     List<Person> getPersonsCoveredByStation(int station);
 
-    Map<String, Object> firestation(int station);
+    StationCoverage firestation(int station);
 
-    Map<String, Object> childAlert(String address);
+    ChildAlert childAlert(String address);
 
     Set<String> phoneAlert(int station);
 
-    Map<String, Object> fire(String address);
+    FireReport fire(String address);
 
-    JsonNode personInfo(String lastName, String firstName);
+    PersonInfo personInfo(String lastName, String firstName);
 
     Set<String> communityEmail(String city);
 
-    Map<String, List<ObjectNode>> flood(int[] stations);
+    Map<String, List<ResidentDetails>> flood(int[] stations);
 
-    ObjectNode personDetails(Person person,
-                             boolean address,
-                             boolean phone,
-                             boolean age,
-                             boolean email,
-                             boolean medicalinfo);
+    AgeStatistics ageStatistics(String city);
+
+    Map<String, List<ResidentDetails>> ageAlert(Integer station, String address, int minAge, int maxAge);
+
+    Map<String, List<ResidentDetails>> medicalAlert(int[] stations, String medication, String allergy);
+
+    ResultCache.Statistics cacheStatistics();
 }
@@ -3,6 +3,7 @@ package com.safetynet.alerts.service;
 import com.safetynet.alerts.model.Firestation;
 
 import java.util.List;
+import java.util.Set;
 
 public interface IFirestationService {
     List<Firestation> getFirestations();
@@ -11,6 +12,8 @@ public interface IFirestationService {
 
     List<Firestation> getFirestationByStation(int station);
 
+    Set<String> getAddressesByStation(int station);
+
     Firestation getFirestation(String address, int station);
 
     void deleteFirestation(Firestation firestation);
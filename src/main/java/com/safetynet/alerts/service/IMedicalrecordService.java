@@ -1,5 +1,6 @@
 package com.safetynet.alerts.service;
 
+import com.safetynet.alerts.dto.AgeStatistics;
 import com.safetynet.alerts.model.Medicalrecord;
 
 import java.util.List;
@@ -17,5 +18,17 @@ public interface IMedicalrecordService {
 
     int getAge(String lastName, String firstName);
 
+    int getAge(Medicalrecord medicalrecord);
+
     boolean isMinor(String lastName, String firstName);
+
+    boolean isMinor(Medicalrecord medicalrecord);
+
+    AgeStatistics getAgeStatistics(String city);
+
+    List<Medicalrecord> getMedicalrecordsByAge(int minAge, int maxAge);
+
+    List<Medicalrecord> getMedicalrecordsByMedication(String medication);
+
+    List<Medicalrecord> getMedicalrecordsByAllergy(String allergy);
 }
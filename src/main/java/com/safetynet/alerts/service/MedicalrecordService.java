@@ -1,14 +1,18 @@
 package com.safetynet.alerts.service;
 
+import com.safetynet.alerts.dto.AgeStatistics;
 import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.repository.BirthdateColumn;
 import com.safetynet.alerts.repository.IMedicalrecordRepository;
+import com.safetynet.alerts.util.Ages;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Functional Medicalrecord object management
@@ -21,6 +25,9 @@ import java.util.List;
 public class MedicalrecordService implements IMedicalrecordService {
     private static final Logger logger = LogManager.getLogger(MedicalrecordService.class);
 
+    // Lower bounds of the age groups of /ageStatistics, the first group starting at 0
+    private static final int[] AGE_GROUPS = {10, Ages.MINOR_AGE_LIMIT + 1, 30, 40, 50, 60, 70, 80};
+
     private final IMedicalrecordRepository medicalrecordRepository;
 
     @Autowired
@@ -52,6 +59,43 @@ public class MedicalrecordService implements IMedicalrecordService {
         return medicalrecordRepository.findByName(lastName, firstName).orElse(null);
     }
 
+    /**
+     * Get the medicalrecords of the persons within an age range
+     *
+     * @param minAge the lowest age, included
+     * @param maxAge the highest age, included
+     * @return the medicalrecords with a birthdate, oldest first
+     */
+    @Override
+    public List<Medicalrecord> getMedicalrecordsByAge(int minAge, int maxAge) {
+        logger.debug("Method called : getMedicalrecordsByAge(" + minAge + ", " + maxAge + ")");
+        return medicalrecordRepository.findByAge(minAge, maxAge);
+    }
+
+    /**
+     * Get the medicalrecords listing a medication
+     *
+     * @param medication the name of the medication, with or without dosage
+     * @return the medicalrecords, in name order
+     */
+    @Override
+    public List<Medicalrecord> getMedicalrecordsByMedication(String medication) {
+        logger.debug("Method called : getMedicalrecordsByMedication(\"" + medication + "\")");
+        return medicalrecordRepository.findByMedication(medication);
+    }
+
+    /**
+     * Get the medicalrecords listing an allergy
+     *
+     * @param allergy the allergy
+     * @return the medicalrecords, in name order
+     */
+    @Override
+    public List<Medicalrecord> getMedicalrecordsByAllergy(String allergy) {
+        logger.debug("Method called : getMedicalrecordsByAllergy(\"" + allergy + "\")");
+        return medicalrecordRepository.findByAllergy(allergy);
+    }
+
     /**
      * Deletes a medicalrecord object matching both lastname and firstname fields
      * Overrides and call delete(Person) with the object found
@@ -92,14 +136,20 @@ public class MedicalrecordService implements IMedicalrecordService {
     @Override
     public int getAge(String lastName, String firstName) {
         logger.debug("Method called : getAge(\"" + lastName + "\", \"" + firstName + "\")");
-        Medicalrecord medicalrecord = medicalrecordRepository.findByName(lastName, firstName).orElse(null);
-
-        if (medicalrecord != null) {
-            LocalDate dob = medicalrecord.getBirthdate();
-            return LocalDate.now().compareTo(dob);
-        }
+        return getAge(medicalrecordRepository.findByName(lastName, firstName).orElse(null));
+    }
 
-        return 0;
+    /**
+     * Get the age from an already resolved medicalrecord
+     * Computed for the day of the snapshot, as the minors of the views, rather than the clock : the two
+     * agree between midnight and the rollover.
+     *
+     * @param medicalrecord the medicalrecord of the person, may be null
+     * @return the age of the person, or 0 if no medicalrecord
+     */
+    @Override
+    public int getAge(Medicalrecord medicalrecord) {
+        return Ages.age(medicalrecord, medicalrecordRepository.currentDay());
     }
 
     /**
@@ -112,6 +162,46 @@ public class MedicalrecordService implements IMedicalrecordService {
     @Override
     public boolean isMinor(String lastName, String firstName) {
         logger.debug("Method called : isMinor(\"" + lastName + "\", \"" + firstName + "\")");
-        return getAge(lastName, firstName) <= 18;
+        return getAge(lastName, firstName) <= Ages.MINOR_AGE_LIMIT;
+    }
+
+    /**
+     * Returns whether the owner of an already resolved medicalrecord is minor or not, on the day of the snapshot
+     *
+     * @param medicalrecord the medicalrecord of the person, may be null
+     * @return true is the person is minor, false otherwise
+     */
+    @Override
+    public boolean isMinor(Medicalrecord medicalrecord) {
+        return Ages.isMinor(medicalrecord, medicalrecordRepository.currentDay());
+    }
+
+    /**
+     * Returns the age distribution of the persons of a city
+     * Computed by scanning the birth day column of the repository, without any per-person age computation.
+     * A person without medicalrecord has age 0.
+     *
+     * @param city the city, or null for every person
+     * @return the number of persons, minors and majors, and the number of persons per age group
+     */
+    @Override
+    public AgeStatistics getAgeStatistics(String city) {
+        logger.debug("Method called : getAgeStatistics(\"" + city + "\")");
+        BirthdateColumn birthdates = medicalrecordRepository.findBirthdates();
+        int[] counts = birthdates.countByAge(city, AGE_GROUPS);
+
+        Map<String, Integer> ageGroups = new LinkedHashMap<>();
+        int minors = 0;
+        for (int group = 0; group < counts.length; group++) {
+            int from = group == 0 ? 0 : AGE_GROUPS[group - 1];
+            String label = group < AGE_GROUPS.length ? from + "-" + (AGE_GROUPS[group] - 1) : from + "+";
+            ageGroups.put(label, counts[group]);
+            if (from <= Ages.MINOR_AGE_LIMIT) {
+                minors += counts[group];
+            }
+        }
+
+        int persons = birthdates.size(city);
+        return new AgeStatistics(city, persons, minors, persons - minors, ageGroups);
     }
 }
@@ -9,7 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Functional Person object management
@@ -57,9 +56,7 @@ public class PersonService implements IPersonService {
     @Override
     public List<Person> getPersonsByCity(String city) {
         logger.debug("Method called : getPersonsByCity(\"" + city + "\")");
-        return getPersons().stream()
-                .filter(p -> p.getCity().equals(city))
-                .toList();
+        return personRepository.findByCity(city);
     }
 
     /**
@@ -71,9 +68,7 @@ public class PersonService implements IPersonService {
     public List<Person> getPersonsByAddress(String address) {
         logger.debug("Method called : getPersonsByAddress(\"" + address + "\")");
 
-        return getPersons().stream()
-                .filter(person -> person.getAddress().equals(address))
-                .collect(Collectors.toList());
+        return personRepository.findByAddress(address);
     }
 
     /**
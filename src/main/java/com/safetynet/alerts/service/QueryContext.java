@@ -0,0 +1,133 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.NameKey;
+import com.safetynet.alerts.util.Ages;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lookups of one alert query, memoized for the duration of the query
+ * A query may meet the same person several times : when it filters then projects, in the households of
+ * stations sharing an address, or once in the views and once more in the validation computation. Each
+ * medicalrecord, age and address coverage is then resolved once per query. A context is created by the
+ * query and dropped with it : it never outlives the snapshot the query pinned, and needs no invalidation.
+ * Ages are those of the day of that snapshot, the day its views classify minors for, whatever the clock says.
+ * Not thread-safe : a context belongs to the thread running its query.
+ */
+final class QueryContext {
+
+    private final IMedicalrecordService medicalrecordService;
+
+    private final IFirestationService firestationService;
+
+    private final LocalDate day;
+
+    // Medicalrecords by name, null for a person without medicalrecord
+    private final Map<NameKey, Medicalrecord> medicalrecords = new HashMap<>();
+    private final Map<NameKey, Integer> ages = new HashMap<>();
+    private final Map<String, Set<Integer>> stations = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param medicalrecordService the service the medicalrecords are resolved from
+     * @param firestationService   the service the coverage of addresses is resolved from
+     * @param day                  the day of the snapshot pinned by the query
+     */
+    QueryContext(IMedicalrecordService medicalrecordService, IFirestationService firestationService, LocalDate day) {
+        this.medicalrecordService = medicalrecordService;
+        this.firestationService = firestationService;
+        this.day = day;
+    }
+
+    /**
+     * Returns the medicalrecord of a person, resolved on the first call for its name
+     *
+     * @param person the person
+     * @return the medicalrecord, or null if the person has none
+     */
+    Medicalrecord medicalrecordOf(Person person) {
+        NameKey name = nameOf(person);
+        Medicalrecord medicalrecord = medicalrecords.get(name);
+        if (medicalrecord == null && !medicalrecords.containsKey(name)) {
+            medicalrecord = medicalrecordService.getMedicalrecord(person.getLastName(), person.getFirstName());
+            medicalrecords.put(name, medicalrecord);
+        }
+        return medicalrecord;
+    }
+
+    /**
+     * Records a medicalrecord the query already holds, such as one read from an index
+     *
+     * @param medicalrecord the medicalrecord
+     */
+    void resolved(Medicalrecord medicalrecord) {
+        medicalrecords.put(new NameKey(medicalrecord.getLastName(), medicalrecord.getFirstName()), medicalrecord);
+    }
+
+    /**
+     * Returns the age of a person on the day of the snapshot, computed on the first call for its name
+     *
+     * @param person the person
+     * @return the age, or 0 if the person has no medicalrecord
+     */
+    int ageOf(Person person) {
+        NameKey name = nameOf(person);
+        Integer age = ages.get(name);
+        if (age == null) {
+            age = Ages.age(medicalrecordOf(person), day);
+            ages.put(name, age);
+        }
+        return age;
+    }
+
+    /**
+     * Returns whether a person is minor, from its memoized age
+     *
+     * @param person the person
+     * @return true if the person is minor, false otherwise
+     */
+    boolean isMinor(Person person) {
+        return ageOf(person) <= Ages.MINOR_AGE_LIMIT;
+    }
+
+    /**
+     * Returns the stations covering an address, resolved on the first call for the address
+     *
+     * @param address the address
+     * @return the station numbers, empty if the address is not covered
+     */
+    Set<Integer> stationsOf(String address) {
+        Set<Integer> covering = stations.get(address);
+        if (covering == null) {
+            covering = new LinkedHashSet<>();
+            for (Firestation firestation : firestationService.getFirestationByAddress(address)) {
+                covering.add(firestation.getStation());
+            }
+            stations.put(address, covering);
+        }
+        return covering;
+    }
+
+    /**
+     * Builds the /fire and /flood projection of a person
+     *
+     * @param person the person
+     * @return the details of the person
+     */
+    ResidentDetails residentDetails(Person person) {
+        return ResidentDetails.of(person, ageOf(person), medicalrecordOf(person));
+    }
+
+    private static NameKey nameOf(Person person) {
+        return new NameKey(person.getLastName(), person.getFirstName());
+    }
+}
@@ -0,0 +1,81 @@
+package com.safetynet.alerts.util;
+
+import com.safetynet.alerts.model.Medicalrecord;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * Age rules shared by the services and the precomputed views of the repositories
+ * Days are epoch days : a birthdate is turned once into the day its owner comes of age, and a
+ * classification is then an int comparison.
+ */
+public final class Ages {
+
+    // Oldest age still counted as minor
+    public static final int MINOR_AGE_LIMIT = 18;
+
+    // Majority day of a person without birthdate : never reached, such a person has age 0
+    public static final int NEVER = Integer.MAX_VALUE;
+
+    private Ages() {
+    }
+
+    /**
+     * Returns the age of a person on a given day, in complete years
+     *
+     * @param medicalrecord the medicalrecord of the person, may be null
+     * @param today         the day the age is computed for
+     * @return the age, or 0 if no medicalrecord
+     */
+    public static int age(Medicalrecord medicalrecord, LocalDate today) {
+        if (medicalrecord != null && medicalrecord.getBirthdate() != null) {
+            return Period.between(medicalrecord.getBirthdate(), today).getYears();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns whether a person is minor on a given day
+     * A person without medicalrecord has age 0, and is therefore minor.
+     *
+     * @param medicalrecord the medicalrecord of the person, may be null
+     * @param today         the day the age is computed for
+     * @return true if the person is minor, false otherwise
+     */
+    public static boolean isMinor(Medicalrecord medicalrecord, LocalDate today) {
+        return today.toEpochDay() < majorityDay(medicalrecord == null ? null : medicalrecord.getBirthdate());
+    }
+
+    /**
+     * Returns the first day a person is no longer minor
+     * A person born on February 29th comes of age on March 1st of a non leap year, as computed by age.
+     *
+     * @param birthdate the birthdate, may be null
+     * @return the epoch day, or NEVER if no birthdate
+     */
+    public static int majorityDay(LocalDate birthdate) {
+        if (birthdate == null) {
+            return NEVER;
+        }
+
+        LocalDate majority = birthdate.plusYears(MINOR_AGE_LIMIT + 1);
+        if (majority.getDayOfMonth() != birthdate.getDayOfMonth()) {
+            majority = majority.plusDays(1);
+        }
+        return (int) majority.toEpochDay();
+    }
+
+    /**
+     * Returns the last day a person may be born on to have at least a given age on a given day
+     * Consistent with age : a person born on that day or before has at least that age.
+     *
+     * @param today the day the age is computed for
+     * @param age   the age, in complete years
+     * @return the epoch day
+     */
+    public static int lastBirthDay(LocalDate today, int age) {
+        return (int) today.minusYears(age).toEpochDay();
+    }
+}
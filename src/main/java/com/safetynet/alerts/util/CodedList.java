@@ -0,0 +1,83 @@
+package com.safetynet.alerts.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of strings stored as the int codes of a dictionary
+ * Holds one int per element instead of a reference to its own String : the values are decoded only when
+ * read, typically while the list is serialized. Set operations compare codes, never strings.
+ */
+public final class CodedList extends AbstractList<String> implements RandomAccess {
+
+    private final StringDictionary dictionary;
+    private final int[] codes;
+
+    private CodedList(StringDictionary dictionary, int[] codes) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    /**
+     * Encodes a list of values
+     *
+     * @param dictionary the dictionary giving the codes
+     * @param values     the values, may be null
+     * @return the coded list, or null for null
+     */
+    public static List<String> encode(StringDictionary dictionary, List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        if (values instanceof CodedList coded && coded.dictionary == dictionary) {
+            return coded;
+        }
+        return new CodedList(dictionary, dictionary.encodeAll(values));
+    }
+
+    @Override
+    public String get(int index) {
+        return dictionary.decode(codes[index]);
+    }
+
+    @Override
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Returns the code of an element
+     *
+     * @param index the index of the element
+     * @return the code of its value in the dictionary
+     */
+    public int code(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Returns whether a value is in the list, by code
+     *
+     * @param code the code of the value in the dictionary
+     * @return true if the list holds the value, false otherwise
+     */
+    public boolean containsCode(int code) {
+        for (int element : codes) {
+            if (element == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        for (int i = 0; i < codes.length; i++) {
+            if (get(i).equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package com.safetynet.alerts.util;
+
+/**
+ * Scan kernels over primitive int columns
+ * The loops are branch free, with a fixed stride and no object access, so that the JIT compiles them to
+ * SIMD instructions where the CPU has them, and to a tight scalar loop otherwise.
+ * The values and bounds must stay within (-2^30, 2^30), so that their differences never overflow.
+ */
+public final class IntColumns {
+
+    private IntColumns() {
+    }
+
+    /**
+     * Counts the values greater than a bound, in a range of a column
+     *
+     * @param column the column
+     * @param from   the first index, inclusive
+     * @param to     the last index, exclusive
+     * @param bound  the bound
+     * @return the number of values greater than the bound
+     */
+    public static int countAbove(int[] column, int from, int to, int bound) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            // Sign bit of bound - value : 1 when the value is above the bound
+            count += (bound - column[i]) >>> 31;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the values of a range of a column per bucket
+     * With bounds b0 < b1 < ... < bk-1, bucket 0 counts the values up to b0, bucket i the values in
+     * (bi-1, bi], and bucket k the values above bk-1.
+     *
+     * @param column the column
+     * @param from   the first index, inclusive
+     * @param to     the last index, exclusive
+     * @param bounds the bucket bounds, in ascending order
+     * @return the counts, one per bucket
+     */
+    public static int[] histogram(int[] column, int from, int to, int[] bounds) {
+        int[] counts = new int[bounds.length + 1];
+        // Values above the upper bound of the current bucket
+        int higher = 0;
+        for (int b = bounds.length - 1; b >= 0; b--) {
+            int above = countAbove(column, from, to, bounds[b]);
+            counts[b + 1] = above - higher;
+            higher = above;
+        }
+        counts[0] = to - from - higher;
+        return counts;
+    }
+}
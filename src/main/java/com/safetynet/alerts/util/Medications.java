@@ -0,0 +1,22 @@
+package com.safetynet.alerts.util;
+
+/**
+ * Medication rules shared by the services and the medication index of the repositories
+ * A medication is listed with its dosage, as in "aznol:350mg", but looked for by its name alone.
+ */
+public final class Medications {
+
+    private Medications() {
+    }
+
+    /**
+     * Returns the name of a medication, such as "aznol" for "aznol:350mg"
+     *
+     * @param medication the medication, with or without dosage
+     * @return the name of the medication
+     */
+    public static String name(String medication) {
+        int dosage = medication.indexOf(':');
+        return dosage < 0 ? medication : medication.substring(0, dosage);
+    }
+}
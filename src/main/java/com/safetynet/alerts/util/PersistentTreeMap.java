@@ -0,0 +1,284 @@
+package com.safetynet.alerts.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable sorted map, balanced as an AVL tree
+ * plus and minus return a new map which shares every node off the changed path with the original,
+ * so a change costs O(log n) new nodes and the original stays valid for its readers.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class PersistentTreeMap<K, V> {
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(null, null);
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * Returns an empty map of naturally ordered keys
+     *
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns an empty map ordered by a comparator
+     *
+     * @param comparator the order of the keys
+     * @return the empty map
+     */
+    public static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTreeMap<>(comparator, null);
+    }
+
+    /**
+     * Returns the value mapped to the key
+     *
+     * @param key the key to look up
+     * @return the value, or null if the key is not mapped
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = compare(key, node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value mapped to the key, or a default value
+     *
+     * @param key          the key to look up
+     * @param defaultValue the value returned when the key is not mapped
+     * @return the value mapped to the key, or defaultValue
+     */
+    public V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the key mapped to a non null value
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the new map, or this map if the key was already mapped to this very value
+     */
+    public PersistentTreeMap<K, V> plus(K key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        Node<K, V> changed = insert(root, key, value);
+        return changed == root ? this : new PersistentTreeMap<>(comparator, changed);
+    }
+
+    /**
+     * Returns a map without the key
+     *
+     * @param key the key to remove
+     * @return the new map, or this map if the key was not mapped
+     */
+    public PersistentTreeMap<K, V> minus(K key) {
+        Node<K, V> changed = remove(root, key);
+        return changed == root ? this : new PersistentTreeMap<>(comparator, changed);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Returns the values, in key order
+     *
+     * @return an immutable list of the values
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return List.copyOf(values);
+    }
+
+    /**
+     * Calls an action on each mapping, in key order
+     *
+     * @param action the action to call
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, action);
+    }
+
+    /**
+     * Calls an action on each mapping whose key is in a range, in key order
+     *
+     * @param fromKey the lowest key of the range, included
+     * @param toKey   the highest key of the range, excluded
+     * @param action  the action to call
+     */
+    public void forEach(K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        forEach(root, fromKey, toKey, action);
+    }
+
+    private void forEach(Node<K, V> node, K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        while (node != null) {
+            boolean aboveFrom = compare(node.key, fromKey) >= 0;
+            boolean belowTo = compare(node.key, toKey) < 0;
+            if (aboveFrom && belowTo) {
+                forEach(node.left, fromKey, toKey, action);
+                action.accept(node.key, node.value);
+                node = node.right;
+            } else {
+                // Outside the range : only one subtree may hold keys of the range
+                node = aboveFrom ? node.left : node.right;
+            }
+        }
+    }
+
+    private static <K, V> void forEach(Node<K, V> node, BiConsumer<? super K, ? super V> action) {
+        while (node != null) {
+            forEach(node.left, action);
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K first, K second) {
+        return comparator == null
+                ? ((Comparable<? super K>) first).compareTo(second)
+                : comparator.compare(first, second);
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+
+        int comparison = compare(key, node.key);
+        if (comparison < 0) {
+            Node<K, V> left = insert(node.left, key, value);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (comparison > 0) {
+            Node<K, V> right = insert(node.right, key, value);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        return node.value == value ? node : new Node<>(node.key, value, node.left, node.right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+
+        int comparison = compare(key, node.key);
+        if (comparison < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (comparison > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        // Two children : the successor takes the place of the removed node
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    /**
+     * Builds a node from subtrees whose heights differ by 2 at most, rotating them back into balance
+     */
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> pivot = left.right;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(left.key, left.value, left.left, pivot.left),
+                    new Node<>(key, value, pivot.right, right));
+        }
+
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> pivot = right.left;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(key, value, left, pivot.left),
+                    new Node<>(right.key, right.value, pivot.right, right.right));
+        }
+
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.safetynet.alerts.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of query results, each valid for the data versions it was computed against
+ * A result is returned again as long as the versions given with the query are those it was stored with,
+ * and it is younger than the time to live. Beyond the maximum size, the least recently used result is
+ * evicted. A stale or expired result is dropped when next looked up.
+ * Lookups are synchronized, computations are not. Concurrent misses of a key for the same versions are
+ * coalesced : the first computes the result, the others wait for it and share it, a failure included.
+ */
+public final class ResultCache<K, V> {
+
+    private record Entry<V>(V value, long[] versions, long expiresAt) {
+    }
+
+    private record InFlight<V>(long[] versions, CompletableFuture<V> result) {
+    }
+
+    /**
+     * Counters of a cache since its creation
+     *
+     * @param size          the number of results held
+     * @param maximumSize   the number of results held at most
+     * @param hits          the lookups answered by a result held
+     * @param misses        the lookups computing their result
+     * @param evictions     the results evicted by the size bound
+     * @param expirations   the results dropped by the time to live
+     * @param invalidations the results dropped because their versions changed
+     * @param coalesced     the misses sharing the computation of a concurrent identical miss
+     */
+    public record Statistics(int size,
+                             int maximumSize,
+                             long hits,
+                             long misses,
+                             long evictions,
+                             long expirations,
+                             long invalidations,
+                             long coalesced) {
+    }
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoTime;
+    private final boolean coalescing;
+
+    // Computations running, by key
+    private final Map<K, InFlight<V>> inFlight = new HashMap<>();
+
+    // Access order : the eldest entry is the least recently used
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > maximumSize) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long coalesced;
+
+    /**
+     * Constructor
+     *
+     * @param maximumSize     the number of results held at most, 0 disabling the cache
+     * @param timeToLiveNanos how long a result is held at most
+     * @param nanoTime        the time source
+     * @param coalescing      whether concurrent identical misses share one computation
+     */
+    public ResultCache(int maximumSize, long timeToLiveNanos, LongSupplier nanoTime, boolean coalescing) {
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeToLiveNanos;
+        this.nanoTime = nanoTime;
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Returns the result of a query, computing and storing it unless held or being computed for the same
+     * versions
+     *
+     * @param key      the query
+     * @param versions the versions of the data the result depends on
+     * @param compute  the computation of the result
+     * @return the result
+     */
+    public V get(K key, long[] versions, Supplier<V> compute) {
+        InFlight<V> running;
+        CompletableFuture<V> own = null;
+
+        synchronized (this) {
+            Entry<V> entry = maximumSize == 0 ? null : entries.get(key);
+            if (entry != null) {
+                if (nanoTime.getAsLong() - entry.expiresAt() >= 0) {
+                    entries.remove(key);
+                    expirations++;
+                } else if (!Arrays.equals(entry.versions(), versions)) {
+                    entries.remove(key);
+                    invalidations++;
+                } else {
+                    hits++;
+                    return entry.value();
+                }
+            }
+
+            if (coalescing) {
+                running = inFlight.get(key);
+                if (running != null && Arrays.equals(running.versions(), versions)) {
+                    coalesced++;
+                } else {
+                    // A computation for other versions keeps running, but is no longer shared
+                    misses++;
+                    own = new CompletableFuture<>();
+                    running = new InFlight<>(versions, own);
+                    inFlight.put(key, running);
+                }
+            } else {
+                misses++;
+                running = null;
+            }
+        }
+
+        if (running == null) {
+            return stored(key, versions, compute.get());
+        }
+        if (own == null) {
+            return await(running.result());
+        }
+
+        try {
+            V value = stored(key, versions, compute.get());
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                inFlight.remove(key, running);
+            }
+        }
+    }
+
+    private V stored(K key, long[] versions, V value) {
+        if (maximumSize > 0) {
+            synchronized (this) {
+                entries.put(key, new Entry<>(value, versions, nanoTime.getAsLong() + timeToLiveNanos));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Waits for the result of a computation of another thread, rethrowing its failure
+     */
+    private static <V> V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the counters of the cache
+     *
+     * @return the statistics
+     */
+    public synchronized Statistics statistics() {
+        return new Statistics(entries.size(), maximumSize, hits, misses, evictions, expirations, invalidations,
+                coalesced);
+    }
+}
@@ -0,0 +1,163 @@
+package com.safetynet.alerts.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of repeated string values : each distinct value gets an int code and one canonical instance
+ * Objects whose fields are replaced by the canonical instances share a single copy of each value, instead
+ * of one copy per object as deserialized. The dictionary only grows : codes stay valid for its lifetime.
+ * Encoding is synchronized, decoding is not : a code is only handed out once its value is in the table.
+ * Also estimates the heap its deduplication saves, from the compact string layout of a 64-bit JVM with
+ * compressed references.
+ */
+public final class StringDictionary {
+
+    // String object : header, hash, coder, hashIsZero, value reference
+    private static final int STRING_BYTES = 24;
+    // byte[] header with its length
+    private static final int ARRAY_HEADER_BYTES = 16;
+    // HashMap node, table slot, code, and slot of the values table
+    private static final int ENTRY_BYTES = 48;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    // Values by code, replaced by a larger copy when full
+    private volatile String[] values = new String[16];
+    private int size;
+
+    private long references;
+    private long savedBytes;
+
+    /**
+     * Returns the code of a value, adding the value if new
+     *
+     * @param value the value, not null
+     * @return the code
+     */
+    public synchronized int encode(String value) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = size;
+            String[] table = values;
+            if (code == table.length) {
+                table = Arrays.copyOf(table, 2 * table.length);
+            }
+            table[code] = value;
+            values = table;
+            codes.put(value, code);
+            size++;
+        }
+        return code;
+    }
+
+    /**
+     * Returns the codes of values, counting the copies they replace as saved
+     *
+     * @param values the values, not null
+     * @return the codes, in the order of the values
+     */
+    public synchronized int[] encodeAll(Iterable<String> values) {
+        int[] encoded = new int[8];
+        int count = 0;
+        for (String value : values) {
+            if (count == encoded.length) {
+                encoded = Arrays.copyOf(encoded, 2 * count);
+            }
+            encoded[count++] = counted(value);
+        }
+        return Arrays.copyOf(encoded, count);
+    }
+
+    /**
+     * Returns the value of a code
+     *
+     * @param code a code returned by encode
+     * @return the canonical instance of the value
+     */
+    public String decode(int code) {
+        return values[code];
+    }
+
+    /**
+     * Returns the canonical instance of a value, counting the copy it replaces as saved
+     *
+     * @param value the value, may be null
+     * @return the canonical instance, or null for null
+     */
+    public synchronized String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        return decode(counted(value));
+    }
+
+    private int counted(String value) {
+        int code = encode(value);
+        references++;
+        if (decode(code) != value) {
+            savedBytes += sizeOf(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the number of distinct values
+     *
+     * @return the number of codes given
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of values made canonical or encoded into lists
+     *
+     * @return the number of values passed to canonical or encodeAll
+     */
+    public synchronized long references() {
+        return references;
+    }
+
+    /**
+     * Returns the estimated heap of the copies replaced by canonical instances
+     *
+     * @return the number of bytes
+     */
+    public synchronized long savedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Returns the estimated heap of the dictionary itself, its values excluded
+     *
+     * @return the number of bytes
+     */
+    public synchronized long overheadBytes() {
+        return (long) size * ENTRY_BYTES;
+    }
+
+    /**
+     * Returns the estimated heap of a string : the String object and its byte array
+     *
+     * @param value the string
+     * @return the number of bytes
+     */
+    static long sizeOf(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                // UTF16 coder : 2 bytes per char
+                length = 2 * value.length();
+                break;
+            }
+        }
+        return STRING_BYTES + align(ARRAY_HEADER_BYTES + length);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,108 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.dto.AgeStatistics;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.MedicalrecordRepository;
+import com.safetynet.alerts.repository.MutationJournal;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.service.MedicalrecordService;
+import com.safetynet.alerts.service.PersonService;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Age distribution of a city : per-person getAge over a stream of Person objects, against the scan of the
+ * birth day column of MedicalrecordService.getAgeStatistics
+ * Synthetic data : persons spread over 50 cities, each with a medicalrecord
+ * Run with : java -cp target/test-classes:[test classpath] com.safetynet.alerts.benchmark.AgeStatisticsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AgeStatisticsBenchmark {
+    private static final int CITIES = 50;
+    private static final String CITY = "City7";
+
+    @Param({"10000", "100000", "1000000"})
+    public int persons;
+
+    private PersonService personService;
+    private MedicalrecordService medicalrecordService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.safetynet.alerts", org.apache.logging.log4j.Level.WARN);
+
+        DataStore store = new DataStore();
+        PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+        MedicalrecordRepository medicalrecordRepository =
+                new MedicalrecordRepository(store, MutationJournal.disabled());
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < persons; i++) {
+            Person person = new Person();
+            person.setFirstName("First" + i);
+            person.setLastName("Last" + i);
+            person.setAddress("address-" + i / 4);
+            person.setCity("City" + i % CITIES);
+            person.setZip(10000 + i % CITIES);
+            person.setPhone("555-" + i);
+            person.setEmail("person" + i + "@mail.com");
+            personRepository.save(person);
+
+            Medicalrecord medicalrecord = new Medicalrecord();
+            medicalrecord.setFirstName("First" + i);
+            medicalrecord.setLastName("Last" + i);
+            medicalrecord.setBirthdate(today.minusDays(i * 7919L % (90 * 365)));
+            medicalrecord.setMedications(List.of());
+            medicalrecord.setAllergies(List.of());
+            medicalrecordRepository.save(medicalrecord);
+        }
+
+        personService = new PersonService(personRepository);
+        medicalrecordService = new MedicalrecordService(medicalrecordRepository);
+        // The column is built by the first call after a change, not measured here
+        medicalrecordService.getAgeStatistics(null);
+    }
+
+    /**
+     * The object path : one name lookup and one age computation per person of the city
+     */
+    @Benchmark
+    public Map<Integer, Long> objectStream() {
+        return personService.getPersonsByCity(CITY).stream()
+                .collect(Collectors.groupingBy(person -> Math.min(
+                                medicalrecordService.getAge(person.getLastName(), person.getFirstName()) / 10, 8),
+                        Collectors.counting()));
+    }
+
+    @Benchmark
+    public AgeStatistics columnScan() {
+        return medicalrecordService.getAgeStatistics(CITY);
+    }
+
+    @Benchmark
+    public AgeStatistics columnScanAll() {
+        return medicalrecordService.getAgeStatistics(null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AgeStatisticsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
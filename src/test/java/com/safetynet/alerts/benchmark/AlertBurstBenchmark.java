@@ -0,0 +1,120 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.FirestationRepository;
+import com.safetynet.alerts.repository.HouseholdRepository;
+import com.safetynet.alerts.repository.MedicalrecordRepository;
+import com.safetynet.alerts.repository.MutationJournal;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.StationViewRepository;
+import com.safetynet.alerts.service.AlertService;
+import com.safetynet.alerts.service.FirestationService;
+import com.safetynet.alerts.service.MedicalrecordService;
+import com.safetynet.alerts.service.PersonService;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Burst of identical /flood queries from many clients at once, with and without coalescing
+ * The results cache is disabled, so that every query misses as it would right after a change : without
+ * coalescing each of the 32 threads computes its own answer, with it the threads arriving during a
+ * computation share it. Compare the throughput of the two settings, and the average time per query.
+ * Synthetic data : 4 persons per address, each address mapped to one of 100 stations, 10 stations flooded
+ * Run with : java -cp target/test-classes:[test classpath] com.safetynet.alerts.benchmark.AlertBurstBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Threads(32)
+@Fork(1)
+public class AlertBurstBenchmark {
+    private static final int STATIONS = 100;
+    private static final int PERSONS_PER_ADDRESS = 4;
+    private static final int[] FLOODED = {1, 11, 21, 31, 41, 51, 61, 71, 81, 91};
+
+    @Param({"100000"})
+    public int persons;
+
+    @Param({"false", "true"})
+    public boolean coalescing;
+
+    private DataStore store;
+    private AlertService alertService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.safetynet.alerts", org.apache.logging.log4j.Level.WARN);
+
+        store = new DataStore();
+        PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+        FirestationRepository firestationRepository = new FirestationRepository(store, MutationJournal.disabled());
+        MedicalrecordRepository medicalrecordRepository =
+                new MedicalrecordRepository(store, MutationJournal.disabled());
+
+        int addresses = persons / PERSONS_PER_ADDRESS;
+        for (int i = 0; i < addresses; i++) {
+            Firestation firestation = new Firestation();
+            firestation.setAddress("address-" + i);
+            firestation.setStation(i % STATIONS + 1);
+            firestationRepository.save(firestation);
+        }
+
+        for (int i = 0; i < persons; i++) {
+            Person person = new Person();
+            person.setFirstName("First" + i);
+            person.setLastName("Last" + i);
+            person.setAddress("address-" + i % addresses);
+            person.setCity("City" + i % 50);
+            person.setZip(10000 + i % 50);
+            person.setPhone("555-" + i);
+            person.setEmail("person" + i + "@mail.com");
+            personRepository.save(person);
+
+            Medicalrecord medicalrecord = new Medicalrecord();
+            medicalrecord.setFirstName("First" + i);
+            medicalrecord.setLastName("Last" + i);
+            medicalrecord.setBirthdate(LocalDate.of(1940 + i % 80, 1 + i % 12, 1 + i % 28));
+            medicalrecord.setMedications(List.of("aznol:" + (i % 7) + "00mg"));
+            medicalrecord.setAllergies(List.of());
+            medicalrecordRepository.save(medicalrecord);
+        }
+
+        CustomProperties properties = new CustomProperties();
+        properties.setAlertCacheSize(0);
+        properties.setAlertCoalescing(coalescing);
+        alertService = new AlertService(new PersonService(personRepository),
+                new FirestationService(firestationRepository), new MedicalrecordService(medicalrecordRepository),
+                new StationViewRepository(store), new HouseholdRepository(store), store, properties);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public Map<String, List<ResidentDetails>> flood() {
+        return alertService.flood(FLOODED);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AlertBurstBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
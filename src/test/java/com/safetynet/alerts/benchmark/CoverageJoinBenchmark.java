@@ -0,0 +1,116 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.dto.StationCoverage;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.repository.DataStore;
+import com.safetynet.alerts.repository.FirestationRepository;
+import com.safetynet.alerts.repository.HouseholdRepository;
+import com.safetynet.alerts.repository.MedicalrecordRepository;
+import com.safetynet.alerts.repository.MutationJournal;
+import com.safetynet.alerts.repository.PersonRepository;
+import com.safetynet.alerts.repository.StationViewRepository;
+import com.safetynet.alerts.service.AlertService;
+import com.safetynet.alerts.service.FirestationService;
+import com.safetynet.alerts.service.MedicalrecordService;
+import com.safetynet.alerts.service.PersonService;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former nested-loop coverage join with the hash join of AlertService.getPersonsCoveredByStation,
+ * and with the /firestation answer read from the station view
+ * Synthetic data : 4 persons per address, each address mapped to one of 100 stations
+ * Run with : java -cp target/test-classes:[test classpath] com.safetynet.alerts.benchmark.CoverageJoinBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CoverageJoinBenchmark {
+    private static final int STATIONS = 100;
+    private static final int PERSONS_PER_ADDRESS = 4;
+    private static final int STATION = 42;
+
+    @Param({"10000", "100000", "1000000"})
+    public int persons;
+
+    private PersonService personService;
+    private FirestationService firestationService;
+    private AlertService alertService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configurator.setLevel("com.safetynet.alerts", org.apache.logging.log4j.Level.WARN);
+
+        DataStore store = new DataStore();
+        PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+        FirestationRepository firestationRepository = new FirestationRepository(store, MutationJournal.disabled());
+
+        int addresses = persons / PERSONS_PER_ADDRESS;
+        for (int i = 0; i < addresses; i++) {
+            Firestation firestation = new Firestation();
+            firestation.setAddress("address-" + i);
+            firestation.setStation(i % STATIONS + 1);
+            firestationRepository.save(firestation);
+        }
+
+        for (int i = 0; i < persons; i++) {
+            Person person = new Person();
+            person.setFirstName("First" + i);
+            person.setLastName("Last" + i);
+            person.setAddress("address-" + i % addresses);
+            person.setCity("City" + i % 50);
+            person.setZip(10000 + i % 50);
+            person.setPhone("555-" + i);
+            person.setEmail("person" + i + "@mail.com");
+            personRepository.save(person);
+        }
+
+        personService = new PersonService(personRepository);
+        firestationService = new FirestationService(firestationRepository);
+        // Without results cache : stationView reads the view on each call
+        CustomProperties properties = new CustomProperties();
+        properties.setAlertCacheSize(0);
+        alertService = new AlertService(personService, firestationService,
+                new MedicalrecordService(new MedicalrecordRepository(store, MutationJournal.disabled())),
+                new StationViewRepository(store), new HouseholdRepository(store), store, properties);
+    }
+
+    /**
+     * The join as it was : every person is checked against every mapping of the station
+     */
+    @Benchmark
+    public List<Person> nestedLoopJoin() {
+        List<Firestation> firestations = firestationService.getFirestationByStation(STATION);
+        return personService.getPersons().stream()
+                .filter(person -> firestations.stream()
+                        .anyMatch(firestation -> firestation.getAddress().equals(person.getAddress())))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Person> hashJoin() {
+        return alertService.getPersonsCoveredByStation(STATION);
+    }
+
+    @Benchmark
+    public StationCoverage stationView() {
+        return alertService.firestation(STATION);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CoverageJoinBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
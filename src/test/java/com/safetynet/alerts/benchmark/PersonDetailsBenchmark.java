@@ -0,0 +1,91 @@
+package com.safetynet.alerts.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation per serialized /fire resident : per-call ObjectMapper and ObjectNode tree (former personDetails)
+ * against the ResidentDetails record written by one shared writer
+ * Compare the gc.alloc.rate.norm lines of the GC profiler output
+ * Run with : java -cp target/test-classes:[test classpath] com.safetynet.alerts.benchmark.PersonDetailsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersonDetailsBenchmark {
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+    private final ObjectWriter sharedWriter = sharedMapper.writerFor(ResidentDetails.class);
+
+    private Person person;
+    private Medicalrecord medicalrecord;
+
+    @Setup
+    public void setUp() {
+        person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Boyd");
+        person.setAddress("1509 Culver St");
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("jaboyd@email.com");
+
+        medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("John");
+        medicalrecord.setLastName("Boyd");
+        medicalrecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        medicalrecord.setMedications(List.of("aznol:350mg", "hydrapermazol:100mg"));
+        medicalrecord.setAllergies(List.of("nillacilan"));
+    }
+
+    /**
+     * The former personDetails(person, false, true, true, false, true) followed by serialization
+     */
+    @Benchmark
+    public void objectNodePerCall() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ObjectNode personInfo = objectMapper.createObjectNode();
+
+        personInfo.put("firstName", person.getFirstName());
+        personInfo.put("lastName", person.getLastName());
+        personInfo.put("phone", person.getPhone());
+        personInfo.put("age", LocalDate.now().compareTo(medicalrecord.getBirthdate()));
+        personInfo.set("medications", objectMapper.valueToTree(medicalrecord.getMedications()));
+        personInfo.set("allergies", objectMapper.valueToTree(medicalrecord.getAllergies()));
+
+        sharedMapper.writeValue(OutputStream.nullOutputStream(), personInfo);
+    }
+
+    @Benchmark
+    public void recordWithSharedWriter() throws IOException {
+        ResidentDetails residentDetails = ResidentDetails.of(person,
+                LocalDate.now().compareTo(medicalrecord.getBirthdate()), medicalrecord);
+
+        sharedWriter.writeValue(OutputStream.nullOutputStream(), residentDetails);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PersonDetailsBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
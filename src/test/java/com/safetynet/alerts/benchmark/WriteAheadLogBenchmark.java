@@ -0,0 +1,99 @@
+package com.safetynet.alerts.benchmark;
+
+import com.safetynet.alerts.persistence.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable mutations per second through the write-ahead log, 16 concurrent writers each waiting for its
+ * change to be on disk, for several group commit windows
+ * The syncs secondary result is the fsync rate : durableAppend / syncs is the average group commit size
+ * Run with : java -cp target/test-classes:[test classpath] com.safetynet.alerts.benchmark.WriteAheadLogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+    @Param({"0", "100", "1000", "5000"})
+    public long batchWindowMicros;
+
+    private final byte[] payload = ("{\"entity\":\"PERSON\",\"operation\":\"UPDATE\",\"key\":[\"Boyd\",\"John\"],"
+            + "\"value\":{\"firstName\":\"John\",\"lastName\":\"Boyd\",\"address\":\"1509 Culver St\","
+            + "\"city\":\"Culver\",\"zip\":97451,\"phone\":\"841-874-6512\",\"email\":\"jaboyd@email.com\"}}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private Path directory;
+    private WriteAheadLog log;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        log = new WriteAheadLog(directory.resolve("alerts.wal"), batchWindowMicros, TimeUnit.MICROSECONDS, 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        log.close();
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+            for (Path segment : segments) {
+                Files.delete(segment);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Fsyncs of the log during an iteration, reported by the first writer thread only since they are shared
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Syncs {
+        public long syncs;
+
+        private boolean reporting;
+        private long syncsBefore;
+
+        @Setup(Level.Iteration)
+        public void setUp(WriteAheadLogBenchmark benchmark, ThreadParams threadParams) {
+            reporting = threadParams.getThreadIndex() == 0;
+            syncsBefore = benchmark.log.syncCount();
+            syncs = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(WriteAheadLogBenchmark benchmark) {
+            if (reporting) {
+                syncs = benchmark.log.syncCount() - syncsBefore;
+            }
+        }
+    }
+
+    /**
+     * One durable mutation : queued, then waited for until the writer has forced it to disk
+     */
+    @Benchmark
+    public long durableAppend(Syncs syncs) {
+        return log.append(payload).join();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WriteAheadLogBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
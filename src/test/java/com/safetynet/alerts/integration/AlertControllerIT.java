@@ -1,14 +1,18 @@
 package com.safetynet.alerts.integration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alerts.model.Person;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.util.UriUtils;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -29,6 +33,16 @@ class AlertControllerIT {
                 .andExpect(jsonPath("$['persons'].length()", is(6)));
     }
 
+    @Test
+    public void shouldGroupFirestationPersonsByAddressInMappingOrder() throws Exception {
+        // 489 Manchester St is mapped to station 4 before 112 Steppes Pl, though Lily Cooper comes after
+        // Tony Cooper in the data file
+        mockMvc.perform(get("/firestation?stationNumber=4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons'][0].firstName", is("Lily")))
+                .andExpect(jsonPath("$['persons'][1].firstName", is("Tony")));
+    }
+
     @Test
     public void shouldGetMapFromChildAlert() throws Exception {
         String path = UriUtils.encodePath("/childAlert?address=1509 Culver St", "UTF-8");
@@ -67,6 +81,13 @@ class AlertControllerIT {
                 .andExpect(jsonPath("$['947 E. Rose Dr'].length()", is(3)));
     }
 
+    @Test
+    public void shouldNotDuplicateHouseholdsInFlood() throws Exception {
+        mockMvc.perform(get("/flood?stations=3,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['1509 Culver St'].length()", is(6)));
+    }
+
     @Test
     public void shouldGetPersonInfo() throws Exception {
         mockMvc.perform(get("/personInfo?lastName=Boyd&firstName=John"))
@@ -83,4 +104,110 @@ class AlertControllerIT {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.length()", is(15)));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGetAgeStatisticsOfCity() throws Exception {
+        mockMvc.perform(get("/ageStatistics?city=Culver"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons']", is(24)))
+                .andExpect(jsonPath("$['minors']", is(5)))
+                .andExpect(jsonPath("$['majors']", is(19)))
+                .andExpect(jsonPath("$['ageGroups'].length()", is(9)));
+    }
+
+    @Test
+    public void shouldGetEmptyAgeStatisticsOfUnknownCity() throws Exception {
+        mockMvc.perform(get("/ageStatistics?city=Nowhere"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons']", is(0)))
+                .andExpect(jsonPath("$['minors']", is(0)));
+    }
+
+    @Test
+    public void shouldGetMedicalAlertOfStations() throws Exception {
+        mockMvc.perform(get("/medicalAlert?stations=1,2&medication=hydrapermazol&allergy=peanut"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(2)))
+                .andExpect(jsonPath("$['947 E. Rose Dr'].length()", is(1)))
+                .andExpect(jsonPath("$['947 E. Rose Dr'][0]['firstName']", is("Brian")))
+                .andExpect(jsonPath("$['892 Downing Ct'][0]['firstName']", is("Sophia")));
+    }
+
+    @Test
+    public void shouldGetEmptyMedicalAlertOfUnlistedTerm() throws Exception {
+        mockMvc.perform(get("/medicalAlert?stations=1,2,3,4&allergy=pollen"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(0)));
+    }
+
+    @Test
+    public void shouldNotGetMedicalAlertWithoutTerm() throws Exception {
+        mockMvc.perform(get("/medicalAlert?stations=1,2"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    public void shouldGetAgeAlertOfStation() throws Exception {
+        mockMvc.perform(get("/ageAlert?station=2&minAge=75"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()", is(1)))
+                .andExpect(jsonPath("$['951 LoneTree Rd'][0]['firstName']", is("Eric")));
+    }
+
+    @Test
+    public void shouldGetAgeAlertOfAddress() throws Exception {
+        mockMvc.perform(get("/ageAlert").param("address", "1509 Culver St").param("maxAge", "18"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['1509 Culver St'].length()", is(2)));
+    }
+
+    @Test
+    public void shouldNotGetAgeAlertOfInvalidRange() throws Exception {
+        mockMvc.perform(get("/ageAlert?minAge=20&maxAge=10"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    public void shouldServeRepeatedAlertFromCache() throws Exception {
+        mockMvc.perform(get("/phoneAlert?firestation=2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/phoneAlert?firestation=2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/alertcache"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['hits']", greaterThan(0)));
+    }
+
+    @Test
+    public void shouldRecomputeCachedAlertAfterChange() throws Exception {
+        mockMvc.perform(get("/firestation?stationNumber=4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons'].length()", is(4)));
+
+        Person person = new Person();
+        person.setFirstName("Cached");
+        person.setLastName("Resident");
+        person.setAddress("489 Manchester St");
+        person.setCity("Elsewhere");
+        person.setZip(97451);
+        person.setPhone("841-874-0000");
+        person.setEmail("cached@email.com");
+        mockMvc.perform(post("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(person))
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/firestation?stationNumber=4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons'].length()", is(5)));
+        // The other tests of the class read station 4 : leave it as loaded
+        mockMvc.perform(delete("/person/Resident/Cached"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/firestation?stationNumber=4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['persons'].length()", is(4)));
+    }
+}
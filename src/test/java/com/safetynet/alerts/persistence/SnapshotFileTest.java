@@ -0,0 +1,113 @@
+package com.safetynet.alerts.persistence;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    private static Dataset dataset() {
+        Person person = new Person();
+        person.setFirstName("John");
+        person.setLastName("Boyd");
+        person.setAddress("1509 Culver St");
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("jaboyd@email.com");
+
+        Firestation firestation = new Firestation();
+        firestation.setAddress("1509 Culver St");
+        firestation.setStation(3);
+
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("John");
+        medicalrecord.setLastName("Boyd");
+        medicalrecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        medicalrecord.setMedications(List.of("aznol:350mg", "hydrapermazol:100mg"));
+        medicalrecord.setAllergies(List.of("nillacilan"));
+
+        Medicalrecord incomplete = new Medicalrecord();
+        incomplete.setFirstName("Jane");
+        incomplete.setLastName("Boyd");
+
+        return new Dataset(List.of(person), List.of(firestation), List.of(medicalrecord, incomplete));
+    }
+
+    @Test
+    public void shouldReadWhatWasWritten() throws IOException {
+        Path snapshot = directory.resolve("alerts.snapshot");
+        SnapshotFile.write(snapshot, dataset(), 42);
+
+        Dataset toCheck = SnapshotFile.read(snapshot).orElseThrow().dataset();
+
+        assertEquals(dataset().persons().get(0).toString(), toCheck.persons().get(0).toString());
+        assertEquals(dataset().firestations().get(0).toString(), toCheck.firestations().get(0).toString());
+        assertEquals(dataset().medicalrecords().toString(), toCheck.medicalrecords().toString());
+    }
+
+    @Test
+    public void shouldKeepFingerprintAndLastSequence() throws IOException {
+        Path snapshot = directory.resolve("alerts.snapshot");
+        SnapshotFile.write(snapshot, dataset(), 42, 1234);
+
+        Snapshot toCheck = SnapshotFile.read(snapshot).orElseThrow();
+
+        assertEquals(42, toCheck.fingerprint());
+        assertEquals(1234, toCheck.lastSequence());
+        assertEquals(1, toCheck.dataset().persons().size());
+    }
+
+    @Test
+    public void shouldShareRepeatedStrings() throws IOException {
+        Path snapshot = directory.resolve("alerts.snapshot");
+        SnapshotFile.write(snapshot, dataset(), 42);
+
+        Dataset toCheck = SnapshotFile.read(snapshot).orElseThrow().dataset();
+
+        assertSame(toCheck.persons().get(0).getAddress(), toCheck.firestations().get(0).getAddress());
+    }
+
+    @Test
+    public void shouldIgnoreMissingSnapshot() {
+        assertTrue(SnapshotFile.read(directory.resolve("missing.snapshot")).isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreCorruptedSnapshot() throws IOException {
+        Path snapshot = directory.resolve("alerts.snapshot");
+        SnapshotFile.write(snapshot, dataset(), 42);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(snapshot, bytes);
+
+        Optional<Snapshot> toCheck = SnapshotFile.read(snapshot);
+        assertTrue(toCheck.isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreTruncatedSnapshot() throws IOException {
+        Path snapshot = directory.resolve("alerts.snapshot");
+        SnapshotFile.write(snapshot, dataset(), 42);
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertTrue(SnapshotFile.read(snapshot).isEmpty());
+    }
+}
@@ -0,0 +1,204 @@
+package com.safetynet.alerts.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog open(Path path) throws IOException {
+        return new WriteAheadLog(path, 0, TimeUnit.MICROSECONDS, 1024);
+    }
+
+    private static List<String> replay(WriteAheadLog log) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.replay(0, (sequence, payload) -> records.add(sequence + ":" + new String(payload, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    @Test
+    public void shouldReplayRecordsAfterReopening() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(1L, log.append("first".getBytes(StandardCharsets.UTF_8)).join());
+            assertEquals(2L, log.append("second".getBytes(StandardCharsets.UTF_8)).join());
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("1:first", "2:second"), replay(log));
+            assertEquals(2, log.lastSequence());
+            assertEquals(3L, log.append("third".getBytes(StandardCharsets.UTF_8)).join());
+        }
+    }
+
+    @Test
+    public void shouldTruncateTornTail() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8)).join();
+            log.append("second".getBytes(StandardCharsets.UTF_8)).join();
+        }
+
+        // Crash in the middle of the last write
+        Path segment = directory.resolve("alerts.wal.000001");
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("1:first"), replay(log));
+            assertEquals(2L, log.append("again".getBytes(StandardCharsets.UTF_8)).join());
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("1:first", "2:again"), replay(log));
+        }
+    }
+
+    @Test
+    public void shouldShareFsyncsBetweenConcurrentWriters() throws Exception {
+        Path path = directory.resolve("alerts.wal");
+        ExecutorService writers = Executors.newFixedThreadPool(16);
+
+        try (WriteAheadLog log = open(path)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                done.add(writers.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        log.append(new byte[64]).join();
+                    }
+                }));
+            }
+            for (Future<?> future : done) {
+                future.get();
+            }
+
+            assertEquals(1600, log.appendCount());
+            assertEquals(1600, log.lastSequence());
+            assertTrue(log.syncCount() < log.appendCount());
+        } finally {
+            writers.shutdown();
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(1600, replay(log).size());
+        }
+    }
+
+    @Test
+    public void shouldSealSegmentOnRotation() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8)).join();
+            log.append("second".getBytes(StandardCharsets.UTF_8)).join();
+
+            WriteAheadLog.Rotation rotation = log.rotate().join();
+            assertEquals(2, rotation.lastSequence());
+            assertEquals(List.of(directory.resolve("alerts.wal.000001").toAbsolutePath()), rotation.segments());
+
+            assertEquals(3L, log.append("third".getBytes(StandardCharsets.UTF_8)).join());
+            assertTrue(Files.exists(directory.resolve("alerts.wal.000002")));
+
+            List<String> sealed = new ArrayList<>();
+            WriteAheadLog.replay(rotation.segments(), 1, (sequence, payload) -> sealed.add(sequence + ":"
+                    + new String(payload, StandardCharsets.UTF_8)));
+            assertEquals(List.of("2:second"), sealed);
+
+            Files.delete(rotation.segments().get(0));
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("3:third"), replay(log));
+            assertEquals(3, log.lastSequence());
+        }
+    }
+
+    @Test
+    public void shouldGoOnFromSealedSequencesOnceDeleted() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8)).join();
+            log.append("second".getBytes(StandardCharsets.UTF_8)).join();
+
+            Files.delete(log.rotate().join().segments().get(0));
+        }
+
+        // Only the new segment is left, without any record
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of(), replay(log));
+            assertEquals(2, log.lastSequence());
+            assertEquals(3L, log.append("third".getBytes(StandardCharsets.UTF_8)).join());
+        }
+    }
+
+    @Test
+    public void shouldRecreateLastSegmentLeftWithoutFullHeader() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            log.append("first".getBytes(StandardCharsets.UTF_8)).join();
+            log.append("second".getBytes(StandardCharsets.UTF_8)).join();
+            log.rotate().join();
+        }
+
+        // Crash while the header of the new segment was written in place
+        Path segment = directory.resolve("alerts.wal.000002");
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, 12));
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("1:first", "2:second"), replay(log));
+            assertEquals(2, log.lastSequence());
+            assertEquals(3L, log.append("third".getBytes(StandardCharsets.UTF_8)).join());
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            assertEquals(List.of("1:first", "2:second", "3:third"), replay(log));
+        }
+    }
+
+    @Test
+    public void shouldReplayOnlyRecordsAfterSequence() throws IOException {
+        Path path = directory.resolve("alerts.wal");
+        try (WriteAheadLog log = open(path)) {
+            for (int i = 0; i < 5; i++) {
+                log.append(new byte[]{(byte) i}).join();
+            }
+        }
+
+        try (WriteAheadLog log = open(path)) {
+            List<Long> sequences = new ArrayList<>();
+            assertEquals(2, log.replay(3, (sequence, payload) -> sequences.add(sequence)));
+            assertEquals(List.of(4L, 5L), sequences);
+        }
+    }
+
+    @Test
+    public void shouldRejectAppendsOnceClosed() throws IOException {
+        WriteAheadLog log = open(directory.resolve("alerts.wal"));
+        log.close();
+
+        assertTrue(log.append(new byte[1]).isCompletedExceptionally());
+    }
+
+    @Test
+    public void shouldRejectFileWhichIsNotALog() throws IOException {
+        Files.writeString(directory.resolve("alerts.wal.000001"), "not a log");
+
+        assertThrows(IOException.class, () -> open(directory.resolve("alerts.wal")));
+    }
+}
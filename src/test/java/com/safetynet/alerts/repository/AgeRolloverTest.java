@@ -0,0 +1,148 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeRolloverTest {
+
+    private static final int NAMES = 200;
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final FirestationRepository firestationRepository =
+            new FirestationRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+    private final StationViewRepository stationViewRepository = new StationViewRepository(store);
+    private final HouseholdRepository householdRepository = new HouseholdRepository(store);
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void shouldCountAsMajorFromTheNineteenthBirthday() {
+        LocalDate today = LocalDate.ofEpochDay(store.current().day());
+        firestationRepository.save(firestation("Address 0", 1));
+        personRepository.save(person(0, "Address 0"));
+        personRepository.save(person(1, "Address 0"));
+        medicalrecordRepository.save(medicalrecord(0, today.plusDays(1).minusYears(19)));
+        medicalrecordRepository.save(medicalrecord(1, LocalDate.of(1980, 1, 1)));
+        assertEquals(1, stationViewRepository.findByStation(1).minors());
+        assertTrue(householdRepository.findByAddress("Address 0").isMinor(person(0, "Address 0")));
+
+        new AgeRollover(store, clockOn(today)).rollOver();
+        assertEquals(1, stationViewRepository.findByStation(1).minors());
+
+        new AgeRollover(store, clockOn(today.plusDays(1))).rollOver();
+
+        StationView view = stationViewRepository.findByStation(1);
+        Household household = householdRepository.findByAddress("Address 0");
+        assertEquals(0, view.minors());
+        assertEquals(2, view.majors());
+        assertFalse(household.hasChildren());
+        assertFalse(household.isMinor(person(0, "Address 0")));
+        assertEquals(today.plusDays(1).toEpochDay(), store.current().day());
+    }
+
+    @Test
+    public void shouldStartOnTheDayOfTheClockOfTheStore() {
+        LocalDate day = LocalDate.of(2020, 6, 1);
+        DataStore dated = new DataStore(clockOn(day));
+        try {
+            assertEquals(day.toEpochDay(), dated.current().day());
+
+            new AgeRollover(dated).rollOverAtStartup();
+            assertEquals(day.toEpochDay(), dated.current().day());
+        } finally {
+            dated.close();
+        }
+    }
+
+    @Test
+    public void shouldMatchRebuildAfterRollingOverSeveralYears() {
+        Random random = new Random(19);
+        LocalDate today = LocalDate.ofEpochDay(store.current().day());
+        for (int a = 0; a < 10; a++) {
+            firestationRepository.save(firestation("Address " + a, a % 3));
+        }
+        for (int name = 0; name < NAMES; name++) {
+            personRepository.save(person(name, "Address " + name % 10));
+            if (name % 20 != 0) {
+                medicalrecordRepository.save(medicalrecord(name, today.minusDays(random.nextInt(30 * 365))));
+            }
+        }
+
+        // Forward day by day over a few weeks, then a jump of years, then back in time
+        for (int days = 1; days <= 40; days++) {
+            new AgeRollover(store, clockOn(today.plusDays(days))).rollOver();
+        }
+        assertViewsMatchRebuild();
+
+        new AgeRollover(store, clockOn(today.plusYears(5))).rollOver();
+        assertViewsMatchRebuild();
+
+        new AgeRollover(store, clockOn(today)).rollOver();
+        assertViewsMatchRebuild();
+    }
+
+    private void assertViewsMatchRebuild() {
+        DataSnapshot snapshot = store.current();
+        CoverageViews coverage = CoverageViews.build(snapshot);
+        HouseholdViews households = HouseholdViews.build(snapshot);
+
+        for (int station = 0; station < 3; station++) {
+            assertEquals(coverage.station(station).minors(), snapshot.coverage().station(station).minors());
+            assertEquals(coverage.station(station).majors(), snapshot.coverage().station(station).majors());
+        }
+        for (int a = 0; a < 10; a++) {
+            assertEquals(households.household("Address " + a).minors(),
+                    snapshot.households().household("Address " + a).minors());
+        }
+    }
+
+    private static Clock clockOn(LocalDate day) {
+        return Clock.fixed(day.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+    }
+
+    private static Person person(int name, String address) {
+        Person person = new Person();
+        person.setFirstName("First" + name);
+        person.setLastName("Last" + name);
+        person.setAddress(address);
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("first" + name + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static Medicalrecord medicalrecord(int name, LocalDate birthdate) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + name);
+        medicalrecord.setLastName("Last" + name);
+        medicalrecord.setBirthdate(birthdate);
+        medicalrecord.setMedications(List.of());
+        medicalrecord.setAllergies(List.of());
+        return medicalrecord;
+    }
+}
@@ -0,0 +1,103 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import com.safetynet.alerts.util.Ages;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BirthdateColumnTest {
+
+    private static final int[] AGE_GROUPS = {10, 19, 40, 65};
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void shouldCountAgesLikePerPersonComputation() {
+        Random random = new Random(11);
+        LocalDate today = LocalDate.ofEpochDay(store.current().day());
+        List<Person> persons = new ArrayList<>();
+        List<Medicalrecord> medicalrecords = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            persons.add(person(i, "City" + i % 7));
+            // One person in ten without medicalrecord, one birthday in ten falling today
+            if (i % 10 != 0) {
+                LocalDate birthdate = i % 10 == 1
+                        ? today.minusYears(AGE_GROUPS[random.nextInt(AGE_GROUPS.length)])
+                        : today.minusDays(random.nextInt(90 * 365));
+                medicalrecords.add(medicalrecord(i, birthdate));
+            }
+        }
+        personRepository.loadAll(persons);
+        medicalrecordRepository.loadAll(medicalrecords);
+
+        BirthdateColumn column = medicalrecordRepository.findBirthdates();
+
+        for (String city : new String[]{"City0", "City3", null}) {
+            int[] expected = new int[AGE_GROUPS.length + 1];
+            for (Person person : persons) {
+                if (city == null || city.equals(person.getCity())) {
+                    int age = Ages.age(medicalrecordRepository.findByName(person.getLastName(), person.getFirstName())
+                            .orElse(null), today);
+                    int group = 0;
+                    while (group < AGE_GROUPS.length && age >= AGE_GROUPS[group]) {
+                        group++;
+                    }
+                    expected[group]++;
+                }
+            }
+            assertArrayEquals(expected, column.countByAge(city, AGE_GROUPS));
+        }
+        assertEquals(5_000, column.size(null));
+        assertEquals(0, column.size("Nowhere"));
+    }
+
+    @Test
+    public void shouldBeRebuiltAfterChange() {
+        personRepository.save(person(0, "Culver"));
+        assertEquals(1, medicalrecordRepository.findBirthdates().countByAge("Culver", 19)[0]);
+
+        medicalrecordRepository.save(medicalrecord(0, LocalDate.of(1970, 1, 1)));
+        int[] counts = medicalrecordRepository.findBirthdates().countByAge("Culver", 19);
+
+        assertEquals(0, counts[0]);
+        assertEquals(1, counts[1]);
+    }
+
+    private static Person person(int name, String city) {
+        Person person = new Person();
+        person.setFirstName("First" + name);
+        person.setLastName("Last" + name);
+        person.setAddress("Address " + name % 100);
+        person.setCity(city);
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("first" + name + "@email.com");
+        return person;
+    }
+
+    private static Medicalrecord medicalrecord(int name, LocalDate birthdate) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + name);
+        medicalrecord.setLastName("Last" + name);
+        medicalrecord.setBirthdate(birthdate);
+        medicalrecord.setMedications(List.of());
+        medicalrecord.setAllergies(List.of());
+        return medicalrecord;
+    }
+}
@@ -0,0 +1,144 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLoaderTest {
+
+    private PersonRepository personRepository;
+    private FirestationRepository firestationRepository;
+    private MedicalrecordRepository medicalrecordRepository;
+
+    @BeforeEach
+    public void setUp() {
+        personRepository = new PersonRepository();
+        firestationRepository = new FirestationRepository();
+        medicalrecordRepository = new MedicalrecordRepository();
+    }
+
+    private DataLoader loaderFor(String dataSource) {
+        CustomProperties properties = new CustomProperties();
+        properties.setDataSource(dataSource);
+        return new DataLoader(properties, personRepository, firestationRepository, medicalrecordRepository,
+                MutationJournal.disabled());
+    }
+
+    private DataLoader parallelLoader(int threads, int batchSize) {
+        CustomProperties properties = new CustomProperties();
+        properties.setLoaderThreads(threads);
+        properties.setLoaderBatchSize(batchSize);
+        return new DataLoader(properties, personRepository, firestationRepository, medicalrecordRepository,
+                MutationJournal.disabled());
+    }
+
+    private static InputStream generatedPersons(int count) {
+        StringBuilder json = new StringBuilder("{\"persons\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"firstName\":\"First").append(i)
+                    .append("\",\"lastName\":\"Last\",\"address\":\"").append(i % 10)
+                    .append(" Main St\",\"city\":\"Culver\",\"zip\":\"97451\",\"phone\":\"841-874-0000\",")
+                    // every 10th person has a blank email and must be rejected
+                    .append("\"email\":\"").append(i % 10 == 0 ? "" : "p@mail.com").append("\"}");
+        }
+        json.append("],\"firestations\":[{\"address\":\"1 Main St\",\"station\":\"1\"}]}");
+        return new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldLoadEverySectionInOnePass() {
+        loaderFor("data/data.json").load();
+
+        assertTrue(personRepository.findByName("Boyd", "John").isPresent());
+        assertEquals(6, personRepository.findByAddress("1509 Culver St").size());
+        assertEquals(3, firestationRepository.findByStation(1).size());
+        assertNotNull(medicalrecordRepository.findByName("Boyd", "John").orElseThrow().getBirthdate());
+    }
+
+    @Test
+    public void shouldLeaveRepositoriesEmptyWhenDataSourceIsMissing() {
+        assertDoesNotThrow(() -> loaderFor("data/missing.json").load());
+
+        assertFalse(personRepository.findAll().iterator().hasNext());
+        assertFalse(firestationRepository.findAll().iterator().hasNext());
+        assertFalse(medicalrecordRepository.findAll().iterator().hasNext());
+    }
+
+    @Test
+    public void shouldLoadBatchesWithSeveralWorkers() throws IOException {
+        parallelLoader(4, 100).load(generatedPersons(10_000));
+
+        long persons = StreamSupport.stream(personRepository.findAll().spliterator(), false).count();
+        assertEquals(9_000, persons);
+        assertEquals(1000, personRepository.findByAddress("1 Main St").size());
+        assertTrue(personRepository.findByName("Last", "First1").isPresent());
+        assertTrue(personRepository.findByName("Last", "First10").isEmpty());
+        assertEquals(1, firestationRepository.findByStation(1).size());
+    }
+
+    @Test
+    public void shouldKeepFileOrderWithASingleWorker() throws IOException {
+        parallelLoader(1, 7).load(generatedPersons(100));
+
+        assertEquals("First1", personRepository.findAll().iterator().next().getFirstName());
+    }
+
+    @Test
+    public void shouldReplayLoggedChangesOnTopOfDataSource(@TempDir Path directory) {
+        CustomProperties properties = new CustomProperties();
+        properties.setDataSource("data/data.json");
+        properties.setWalFile(directory.resolve("alerts.wal").toString());
+
+        MutationJournal journal = new MutationJournal(properties);
+        PersonRepository persons = new PersonRepository(journal);
+        FirestationRepository firestations = new FirestationRepository(journal);
+        MedicalrecordRepository medicalrecords = new MedicalrecordRepository(journal);
+        new DataLoader(properties, persons, firestations, medicalrecords, journal).load();
+
+        Person moved = persons.findByName("Boyd", "John").orElseThrow();
+        Person update = new Person();
+        update.setFirstName("John");
+        update.setLastName("Boyd");
+        update.setAddress("29 15th St");
+        update.setCity("Culver");
+        update.setZip(97451);
+        update.setPhone(moved.getPhone());
+        update.setEmail(moved.getEmail());
+        persons.update("Boyd", "John", update);
+
+        Firestation firestation = new Firestation();
+        firestation.setAddress("29 15th St");
+        firestation.setStation(9);
+        firestations.save(firestation);
+
+        medicalrecords.delete("Boyd", "Jacob");
+        persons.delete("Boyd", "Jacob");
+        journal.close();
+
+        // Restart
+        MutationJournal restarted = new MutationJournal(properties);
+        new DataLoader(properties, personRepository, firestationRepository, medicalrecordRepository, restarted).load();
+        restarted.close();
+
+        assertEquals("29 15th St", personRepository.findByName("Boyd", "John").orElseThrow().getAddress());
+        assertEquals(4, personRepository.findByAddress("1509 Culver St").size());
+        assertTrue(personRepository.findByName("Boyd", "Jacob").isEmpty());
+        assertTrue(medicalrecordRepository.findByName("Boyd", "Jacob").isEmpty());
+        assertEquals(1, firestationRepository.findByStation(9).size());
+    }
+}
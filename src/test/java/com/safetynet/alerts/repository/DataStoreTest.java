@@ -0,0 +1,141 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataStoreTest {
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+
+    @Test
+    public void shouldIncrementVersionOnEachChange() {
+        long version = store.current().version();
+
+        personRepository.save(person("John", "Boyd"));
+        medicalrecordRepository.save(medicalrecord("John", "Boyd"));
+
+        assertEquals(version + 2, store.current().version());
+    }
+
+    @Test
+    public void shouldReadPinnedSnapshotWhileChangesArePublished() {
+        personRepository.save(person("John", "Boyd"));
+        medicalrecordRepository.save(medicalrecord("John", "Boyd"));
+
+        boolean consistent = store.read(() -> {
+            // A concurrent CrossService.deletePersonByName, published in the middle of the query
+            medicalrecordRepository.delete("Boyd", "John");
+            personRepository.delete("Boyd", "John");
+
+            return personRepository.findByName("Boyd", "John").isPresent()
+                    && medicalrecordRepository.findByName("Boyd", "John").isPresent();
+        });
+
+        assertTrue(consistent);
+        assertTrue(personRepository.findByName("Boyd", "John").isEmpty());
+        assertTrue(medicalrecordRepository.findByName("Boyd", "John").isEmpty());
+    }
+
+    @Test
+    public void shouldKeepNestedQueryOnOuterSnapshot() {
+        personRepository.save(person("John", "Boyd"));
+
+        long outer = store.read(() -> {
+            personRepository.save(person("Jacob", "Boyd"));
+            long inner = store.read(() -> store.current().version());
+            assertEquals(store.current().version(), inner);
+            return (long) personRepository.findByAddress("1509 Culver St").size();
+        });
+
+        assertEquals(1, outer);
+        assertEquals(2, personRepository.findByAddress("1509 Culver St").size());
+    }
+
+    @Test
+    public void shouldPublishQueuedChangesAsOneVersion() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread blocker = new Thread(() -> store.write(snapshot -> {
+            writerBusy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return new DataStore.Update<>(snapshot, null);
+        }));
+        blocker.start();
+        writerBusy.await();
+        long version = store.current().version();
+
+        // Queued while the writer thread is busy, then applied together
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Person person = person("First" + i, "Boyd");
+            Thread writer = new Thread(() -> personRepository.save(person));
+            writers.add(writer);
+            writer.start();
+        }
+        // Waiting for their change to be published, not for the queue lock
+        while (!allWaiting(writers) || !pause() || !allWaiting(writers)) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        blocker.join();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(10, personRepository.findByAddress("1509 Culver St").size());
+        assertEquals(version + 1, store.current().version());
+    }
+
+    @Test
+    public void shouldRejectChangesOnceClosed() {
+        store.close();
+
+        assertThrows(IllegalStateException.class, () -> personRepository.save(person("John", "Boyd")));
+    }
+
+    private static boolean allWaiting(List<Thread> threads) {
+        return threads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING);
+    }
+
+    private static boolean pause() throws InterruptedException {
+        Thread.sleep(50);
+        return true;
+    }
+
+    private static Person person(String firstName, String lastName) {
+        Person person = new Person();
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setAddress("1509 Culver St");
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("jaboyd@email.com");
+        return person;
+    }
+
+    private static Medicalrecord medicalrecord(String firstName, String lastName) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName(firstName);
+        medicalrecord.setLastName(lastName);
+        medicalrecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        medicalrecord.setMedications(List.of());
+        medicalrecord.setAllergies(List.of());
+        return medicalrecord;
+    }
+}
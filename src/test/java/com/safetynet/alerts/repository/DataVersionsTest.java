@@ -0,0 +1,115 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataVersionsTest {
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final FirestationRepository firestationRepository =
+            new FirestationRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    private DataVersions versions() {
+        return store.current().versions();
+    }
+
+    @Test
+    public void shouldBumpOnlyScopesOfChangedPerson() {
+        firestationRepository.loadAll(List.of(firestation("Address 0", 1), firestation("Address 1", 2)));
+        DataVersions before = versions();
+
+        personRepository.save(person(0, "Address 0", "City 0"));
+        DataVersions after = versions();
+
+        assertEquals(before.station(1) + 1, after.station(1));
+        assertEquals(before.address("Address 0") + 1, after.address("Address 0"));
+        assertEquals(before.city("City 0") + 1, after.city("City 0"));
+        assertEquals(before.station(2), after.station(2));
+        assertEquals(before.address("Address 1"), after.address("Address 1"));
+    }
+
+    @Test
+    public void shouldBumpBothAddressesOfMovedPerson() {
+        firestationRepository.loadAll(List.of(firestation("Address 0", 1), firestation("Address 1", 2)));
+        personRepository.save(person(0, "Address 0", "City 0"));
+        DataVersions before = versions();
+
+        personRepository.update("Last0", "First0", person(0, "Address 1", "City 1"));
+        DataVersions after = versions();
+
+        assertTrue(after.station(1) > before.station(1));
+        assertTrue(after.station(2) > before.station(2));
+        assertTrue(after.address("Address 0") > before.address("Address 0"));
+        assertTrue(after.city("City 1") > before.city("City 1"));
+    }
+
+    @Test
+    public void shouldBumpStationAndAddressOfMapping() {
+        firestationRepository.loadAll(List.of(firestation("Address 0", 1)));
+        DataVersions before = versions();
+
+        firestationRepository.save(firestation("Address 1", 2));
+        DataVersions after = versions();
+
+        assertEquals(before.station(2) + 1, after.station(2));
+        assertEquals(before.address("Address 1") + 1, after.address("Address 1"));
+        assertEquals(before.station(1), after.station(1));
+    }
+
+    @Test
+    public void shouldBumpResidenceOfChangedMedicalrecord() {
+        firestationRepository.loadAll(List.of(firestation("Address 0", 1), firestation("Address 1", 2)));
+        personRepository.save(person(0, "Address 0", "City 0"));
+        DataVersions before = versions();
+
+        medicalrecordRepository.save(medicalrecord(0));
+        DataVersions after = versions();
+
+        assertEquals(before.station(1) + 1, after.station(1));
+        assertEquals(before.address("Address 0") + 1, after.address("Address 0"));
+        assertEquals(before.city("City 0"), after.city("City 0"));
+        assertEquals(before.station(2), after.station(2));
+    }
+
+    private static Person person(int i, String address, String city) {
+        Person person = new Person();
+        person.setFirstName("First" + i);
+        person.setLastName("Last" + i);
+        person.setAddress(address);
+        person.setCity(city);
+        person.setPhone("555-" + i);
+        person.setEmail("person" + i + "@mail.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static Medicalrecord medicalrecord(int i) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + i);
+        medicalrecord.setLastName("Last" + i);
+        medicalrecord.setBirthdate(LocalDate.of(1980, 5, 1));
+        return medicalrecord;
+    }
+}
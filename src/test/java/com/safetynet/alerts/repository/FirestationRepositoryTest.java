@@ -104,4 +104,35 @@ class FirestationRepositoryTest {
 
         assertTrue(nfe.getMessage().contains("Firestation not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldMoveFirestationToNewStationOnUpdate() {
+        Firestation firestation = new Firestation();
+        firestation.setAddress("10 Index Road");
+        firestation.setStation(42);
+        firestationRepository.save(firestation);
+
+        Firestation moved = new Firestation();
+        moved.setAddress("10 Index Road");
+        moved.setStation(43);
+        firestationRepository.update("10 Index Road", 42, moved);
+
+        assertTrue(firestationRepository.findByStation(42).isEmpty());
+        assertEquals(1, firestationRepository.findByStation(43).size());
+        assertTrue(firestationRepository.find("10 Index Road", 43).isPresent());
+        assertTrue(firestationRepository.find("10 Index Road", 42).isEmpty());
+    }
+
+    @Test
+    public void shouldRemoveFirestationFromIndexesOnDelete() {
+        Firestation firestation = new Firestation();
+        firestation.setAddress("20 Index Road");
+        firestation.setStation(44);
+        firestationRepository.save(firestation);
+
+        firestationRepository.delete("20 Index Road", 44);
+
+        assertTrue(firestationRepository.findByStation(44).isEmpty());
+        assertTrue(firestationRepository.findByAddress("20 Index Road").isEmpty());
+    }
+}
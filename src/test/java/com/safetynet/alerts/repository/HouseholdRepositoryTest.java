@@ -0,0 +1,156 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HouseholdRepositoryTest {
+
+    private static final int ADDRESSES = 6;
+    private static final int NAMES = 25;
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final FirestationRepository firestationRepository =
+            new FirestationRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+    private final HouseholdRepository householdRepository = new HouseholdRepository(store);
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void shouldGatherResidentsMinorsAndStations() {
+        personRepository.loadAll(List.of(person(0, "Address 0"), person(1, "Address 0")));
+        medicalrecordRepository.loadAll(List.of(medicalrecord(0, LocalDate.of(2016, 5, 1)),
+                medicalrecord(1, LocalDate.of(1975, 5, 1))));
+        firestationRepository.loadAll(List.of(firestation("Address 0", 2), firestation("Address 0", 3)));
+
+        Household household = householdRepository.findByAddress("Address 0");
+
+        assertEquals(2, household.residents().size());
+        assertEquals(1, household.minors());
+        assertTrue(household.hasChildren());
+        assertEquals(Set.of(2, 3), household.stations());
+        assertHouseholdsMatchRecompute();
+    }
+
+    @Test
+    public void shouldFollowResidentsAndMedicalrecords() {
+        medicalrecordRepository.save(medicalrecord(0, LocalDate.of(2016, 5, 1)));
+        personRepository.save(person(0, "Address 0"));
+        assertTrue(householdRepository.findByAddress("Address 0").hasChildren());
+
+        medicalrecordRepository.update("Last0", "First0", medicalrecord(0, LocalDate.of(1960, 5, 1)));
+        assertFalse(householdRepository.findByAddress("Address 0").hasChildren());
+
+        personRepository.update("Last0", "First0", person(0, "Address 1"));
+        assertTrue(householdRepository.findByAddress("Address 0").residents().isEmpty());
+        assertEquals(1, householdRepository.findByAddress("Address 1").residents().size());
+
+        personRepository.delete("Last0", "First0");
+        Household household = householdRepository.findByAddress("Address 1");
+        assertTrue(household.residents().isEmpty());
+        assertEquals(0, household.minors());
+        assertTrue(household.stations().isEmpty());
+        assertHouseholdsMatchRecompute();
+    }
+
+    @Test
+    public void shouldFollowFirestationMappings() {
+        firestationRepository.save(firestation("Address 0", 1));
+        assertEquals(Set.of(1), householdRepository.findByAddress("Address 0").stations());
+
+        firestationRepository.update("Address 0", 1, firestation("Address 2", 4));
+        assertTrue(householdRepository.findByAddress("Address 0").stations().isEmpty());
+        assertEquals(Set.of(4), householdRepository.findByAddress("Address 2").stations());
+        assertHouseholdsMatchRecompute();
+    }
+
+    @Test
+    public void shouldMatchRecomputeAfterRandomChanges() {
+        Random random = new Random(7);
+
+        for (int i = 0; i < 3_000; i++) {
+            int name = random.nextInt(NAMES);
+            String address = "Address " + random.nextInt(ADDRESSES);
+            int station = random.nextInt(3);
+            try {
+                switch (random.nextInt(8)) {
+                    case 0 -> personRepository.save(person(name, address));
+                    case 1 -> personRepository.update("Last" + name, "First" + name, person(name, address));
+                    case 2 -> personRepository.delete("Last" + name, "First" + name);
+                    case 3 -> firestationRepository.save(firestation(address, station));
+                    case 4 -> firestationRepository.delete(address, station);
+                    case 5 -> medicalrecordRepository.save(medicalrecord(name,
+                            LocalDate.now().minusYears(random.nextInt(40))));
+                    case 6 -> medicalrecordRepository.update("Last" + name, "First" + name,
+                            medicalrecord(name, LocalDate.now().minusYears(random.nextInt(40))));
+                    default -> medicalrecordRepository.delete("Last" + name, "First" + name);
+                }
+            } catch (RuntimeException expected) {
+                // Missing or duplicate key
+            }
+        }
+
+        assertHouseholdsMatchRecompute();
+    }
+
+    /**
+     * Compares the incrementally maintained households with households computed from scratch
+     */
+    private void assertHouseholdsMatchRecompute() {
+        DataSnapshot snapshot = store.current();
+        HouseholdViews recomputed = HouseholdViews.build(snapshot);
+
+        for (int a = 0; a < ADDRESSES; a++) {
+            Household household = snapshot.households().household("Address " + a);
+            Household expected = recomputed.household("Address " + a);
+
+            assertEquals(expected.residents(), household.residents());
+            assertEquals(expected.minors(), household.minors());
+            assertEquals(expected.stations(), household.stations());
+        }
+    }
+
+    private static Person person(int name, String address) {
+        Person person = new Person();
+        person.setFirstName("First" + name);
+        person.setLastName("Last" + name);
+        person.setAddress(address);
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("first" + name + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static Medicalrecord medicalrecord(int name, LocalDate birthdate) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + name);
+        medicalrecord.setLastName("Last" + name);
+        medicalrecord.setBirthdate(birthdate);
+        medicalrecord.setMedications(List.of());
+        medicalrecord.setAllergies(List.of());
+        return medicalrecord;
+    }
+}
@@ -3,6 +3,7 @@ package com.safetynet.alerts.repository;
 import com.safetynet.alerts.exception.AlreadyExistsException;
 import com.safetynet.alerts.exception.NotFoundException;
 import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.util.CodedList;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +15,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -122,4 +124,136 @@ class MedicalrecordRepositoryTest {
 
         assertTrue(aee.getMessage().contains("Medicalrecord already exists"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRemoveMedicalrecordFromNameIndexOnDelete() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("Jane");
+        medicalrecord.setLastName("Indexed");
+        medicalrecord.setBirthdate(LocalDate.now());
+        medicalrecordRepository.save(medicalrecord);
+
+        assertTrue(medicalrecordRepository.findByName("Indexed", "Jane").isPresent());
+
+        medicalrecordRepository.delete("Indexed", "Jane");
+
+        assertTrue(medicalrecordRepository.findByName("Indexed", "Jane").isEmpty());
+    }
+
+    @Test
+    public void shouldStoreMedicalListsAsVocabularyCodes() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("Jane");
+        medicalrecord.setLastName("Coded");
+        medicalrecord.setBirthdate(LocalDate.of(1990, 1, 1));
+        medicalrecord.setMedications(new ArrayList<>(List.of("hydrapermazol:100mg", "aznol:350mg")));
+        medicalrecord.setAllergies(new ArrayList<>(List.of("nillacilan")));
+        medicalrecordRepository.save(medicalrecord);
+
+        Medicalrecord stored = medicalrecordRepository.findByName("Coded", "Jane").orElseThrow();
+        Medicalrecord john = medicalrecordRepository.findByName("Boyd", "John").orElseThrow();
+        CodedList medications = assertInstanceOf(CodedList.class, stored.getMedications());
+        CodedList johnMedications = assertInstanceOf(CodedList.class, john.getMedications());
+
+        assertEquals(List.of("hydrapermazol:100mg", "aznol:350mg"), medications);
+        assertEquals(johnMedications.code(0), medications.code(1));
+        assertTrue(johnMedications.containsCode(medications.code(0)));
+        assertSame(john.getAllergies().get(0), stored.getAllergies().get(0));
+
+        medicalrecordRepository.delete("Coded", "Jane");
+    }
+
+    @Test
+    public void shouldMaintainMedicationAndAllergyIndexes() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("Jane");
+        medicalrecord.setLastName("Inverted");
+        medicalrecord.setBirthdate(LocalDate.of(1990, 1, 1));
+        medicalrecord.setMedications(new ArrayList<>(List.of("indexazol:100mg", "aznol:350mg")));
+        medicalrecord.setAllergies(new ArrayList<>(List.of("indexgen")));
+        medicalrecordRepository.save(medicalrecord);
+
+        assertEquals(List.of(medicalrecord), medicalrecordRepository.findByMedication("indexazol"));
+        assertEquals(List.of(medicalrecord), medicalrecordRepository.findByMedication("indexazol:5mg"));
+        assertEquals(List.of(medicalrecord), medicalrecordRepository.findByAllergy("indexgen"));
+        assertTrue(medicalrecordRepository.findByMedication("aznol").contains(medicalrecord));
+
+        Medicalrecord changed = new Medicalrecord();
+        changed.setFirstName("Jane");
+        changed.setLastName("Inverted");
+        changed.setBirthdate(LocalDate.of(1990, 1, 1));
+        changed.setMedications(new ArrayList<>(List.of("reindexazol:100mg")));
+        changed.setAllergies(new ArrayList<>());
+        Medicalrecord updated = medicalrecordRepository.update("Inverted", "Jane", changed);
+
+        assertTrue(medicalrecordRepository.findByMedication("indexazol").isEmpty());
+        assertTrue(medicalrecordRepository.findByAllergy("indexgen").isEmpty());
+        assertEquals(List.of(updated), medicalrecordRepository.findByMedication("reindexazol"));
+
+        medicalrecordRepository.delete("Inverted", "Jane");
+
+        assertTrue(medicalrecordRepository.findByMedication("reindexazol").isEmpty());
+        assertFalse(medicalrecordRepository.findByMedication("aznol").isEmpty());
+    }
+
+    @Test
+    public void shouldFindMedicalrecordsByAgeRange() {
+        LocalDate today = LocalDate.now();
+        Medicalrecord seventyFive = new Medicalrecord();
+        seventyFive.setFirstName("Jane");
+        seventyFive.setLastName("Ranged");
+        seventyFive.setBirthdate(today.minusYears(75));
+        medicalrecordRepository.save(seventyFive);
+        Medicalrecord seventyFour = new Medicalrecord();
+        seventyFour.setFirstName("John");
+        seventyFour.setLastName("Ranged");
+        seventyFour.setBirthdate(today.minusYears(75).plusDays(1));
+        medicalrecordRepository.save(seventyFour);
+
+        List<Medicalrecord> found = medicalrecordRepository.findByAge(75, 75);
+        List<Medicalrecord> younger = medicalrecordRepository.findByAge(74, 74);
+
+        assertTrue(found.contains(seventyFive));
+        assertFalse(found.contains(seventyFour));
+        assertTrue(younger.contains(seventyFour));
+        assertFalse(younger.contains(seventyFive));
+
+        List<Medicalrecord> everyone = medicalrecordRepository.findByAge(0, Integer.MAX_VALUE);
+        for (int i = 1; i < everyone.size(); i++) {
+            assertFalse(everyone.get(i).getBirthdate().isBefore(everyone.get(i - 1).getBirthdate()));
+        }
+
+        medicalrecordRepository.delete("Ranged", "Jane");
+        medicalrecordRepository.delete("Ranged", "John");
+
+        assertTrue(medicalrecordRepository.findByAge(75, 75).stream()
+                .noneMatch(medicalrecord -> medicalrecord.getLastName().equals("Ranged")));
+    }
+
+    @Test
+    public void shouldSkipDuplicateMedicalrecordsOnLoad() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("Jane");
+        medicalrecord.setLastName("Twice");
+        medicalrecord.setBirthdate(LocalDate.of(1990, 1, 1));
+        medicalrecord.setMedications(new ArrayList<>(List.of("onceazol:100mg")));
+        medicalrecord.setAllergies(new ArrayList<>());
+        Medicalrecord duplicate = new Medicalrecord();
+        duplicate.setFirstName("Jane");
+        duplicate.setLastName("Twice");
+        duplicate.setBirthdate(LocalDate.of(1991, 1, 1));
+        duplicate.setMedications(new ArrayList<>(List.of("twiceazol:100mg")));
+        duplicate.setAllergies(new ArrayList<>());
+
+        medicalrecordRepository.loadAll(List.of(medicalrecord, duplicate));
+
+        assertEquals(List.of(medicalrecord), medicalrecordRepository.findByMedication("onceazol"));
+        assertTrue(medicalrecordRepository.findByMedication("twiceazol").isEmpty());
+
+        medicalrecordRepository.delete("Twice", "Jane");
+
+        for (Medicalrecord remaining : medicalrecordRepository.findAll()) {
+            assertNotEquals("Twice", remaining.getLastName());
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
 import java.rmi.AlreadyBoundException;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -136,4 +137,124 @@ class PersonRepositoryTest {
 
         assertTrue(aee.getMessage().contains("Person already exists"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldFindPersonsByAddress() {
+        List<Person> toCheck = personRepository.findByAddress("892 Downing Ct");
+
+        assertEquals(3, toCheck.size());
+        assertTrue(toCheck.stream().allMatch(p -> p.getAddress().equals("892 Downing Ct")));
+    }
+
+    @Test
+    public void shouldNotFindPersonsByMissingAddress() {
+        assertTrue(personRepository.findByAddress("Missing street").isEmpty());
+    }
+
+    @Test
+    public void shouldFindPersonsByCity() {
+        assertFalse(personRepository.findByCity("Culver").isEmpty());
+        assertTrue(personRepository.findByCity("Nowhere city").isEmpty());
+    }
+
+    @Test
+    public void shouldMovePersonToNewAddressOnUpdate() {
+        Person person = new Person();
+        person.setFirstName("Jane");
+        person.setLastName("Moving");
+        person.setAddress("1 Old Street");
+        person.setCity("Oldtown");
+        person.setZip(11111);
+        person.setPhone("XXX-XXXXX");
+        person.setEmail("jmoving@mail.com");
+        personRepository.save(person);
+
+        Person moved = new Person();
+        moved.setFirstName("Jane");
+        moved.setLastName("Moving");
+        moved.setAddress("2 New Street");
+        moved.setCity("Newtown");
+        moved.setZip(22222);
+        moved.setPhone("XXX-XXXXX");
+        moved.setEmail("jmoving@mail.com");
+        personRepository.update("Moving", "Jane", moved);
+
+        assertTrue(personRepository.findByAddress("1 Old Street").isEmpty());
+        assertTrue(personRepository.findByCity("Oldtown").isEmpty());
+        assertEquals(1, personRepository.findByAddress("2 New Street").size());
+        assertEquals(1, personRepository.findByCity("Newtown").size());
+    }
+
+    @Test
+    public void shouldRemovePersonFromIndexesOnDelete() {
+        Person person = new Person();
+        person.setFirstName("Jane");
+        person.setLastName("Leaving");
+        person.setAddress("3 Leaving Street");
+        person.setCity("Leavetown");
+        person.setZip(33333);
+        person.setPhone("XXX-XXXXX");
+        person.setEmail("jleaving@mail.com");
+        personRepository.save(person);
+
+        personRepository.delete("Leaving", "Jane");
+
+        assertTrue(personRepository.findByName("Leaving", "Jane").isEmpty());
+        assertTrue(personRepository.findByAddress("3 Leaving Street").isEmpty());
+        assertTrue(personRepository.findByCity("Leavetown").isEmpty());
+    }
+
+    @Test
+    public void shouldShareRepeatedValuesWithResidentsAndMappings() {
+        Person person = new Person();
+        person.setFirstName("Jane");
+        person.setLastName("Sharing");
+        // Equal to the address and city of the data file, in distinct instances
+        person.setAddress(new String("1509 Culver St"));
+        person.setCity(new String("Culver"));
+        person.setZip(97451);
+        person.setPhone(new String("841-874-6512"));
+        person.setEmail("jsharing@mail.com");
+        personRepository.save(person);
+
+        Person stored = personRepository.findByName("Sharing", "Jane").orElseThrow();
+        Person resident = personRepository.findByName("Boyd", "John").orElseThrow();
+        assertSame(resident.getAddress(), stored.getAddress());
+        assertSame(resident.getCity(), stored.getCity());
+        assertSame(resident.getPhone(), stored.getPhone());
+
+        personRepository.delete("Sharing", "Jane");
+    }
+
+    @Test
+    public void shouldSkipDuplicatePersonsOnLoad() {
+        Person person = new Person();
+        person.setFirstName("Jane");
+        person.setLastName("Twice");
+        person.setAddress("2 Twice Street");
+        person.setCity("Twicetown");
+        Person duplicate = new Person();
+        duplicate.setFirstName("Jane");
+        duplicate.setLastName("Twice");
+        duplicate.setAddress("2 Other Street");
+        duplicate.setCity("Twicetown");
+        Person stored = new Person();
+        stored.setFirstName("John");
+        stored.setLastName("Boyd");
+        stored.setAddress("2 Twice Street");
+        stored.setCity("Twicetown");
+
+        personRepository.loadAll(List.of(person, duplicate, stored));
+
+        assertEquals(List.of(person), personRepository.findByCity("Twicetown"));
+        assertTrue(personRepository.findByAddress("2 Other Street").isEmpty());
+
+        personRepository.delete("Twice", "Jane");
+
+        assertTrue(personRepository.findByAddress("2 Twice Street").isEmpty());
+        assertTrue(personRepository.findByCity("Twicetown").isEmpty());
+        for (Person remaining : personRepository.findAll()) {
+            assertNotEquals("Twice", remaining.getLastName());
+        }
+    }
+}
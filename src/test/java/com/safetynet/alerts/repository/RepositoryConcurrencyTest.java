@@ -0,0 +1,181 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.exception.AlreadyExistsException;
+import com.safetynet.alerts.exception.NotFoundException;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepositoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5_000;
+    private static final int NAMES = 200;
+    private static final int ADDRESSES = 20;
+
+    private final PersonRepository personRepository = new PersonRepository();
+    private final FirestationRepository firestationRepository = new FirestationRepository();
+    private final MedicalrecordRepository medicalrecordRepository = new MedicalrecordRepository();
+
+    @Test
+    public void shouldKeepIndexesConsistentUnderMixedReadsAndWrites() throws Exception {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    try {
+                        operate(random);
+                    } catch (NotFoundException | AlreadyExistsException | IllegalStateException expected) {
+                        // Lost race against another writer of the same key
+                    } catch (Throwable throwable) {
+                        failures.add(throwable);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures : " + failures);
+        assertPersonIndexesConsistent();
+        assertFirestationIndexesConsistent();
+        assertMedicalrecordIndexesConsistent();
+    }
+
+    private void operate(ThreadLocalRandom random) {
+        int name = random.nextInt(NAMES);
+        String address = "Address " + random.nextInt(ADDRESSES);
+        int station = random.nextInt(4);
+
+        switch (random.nextInt(12)) {
+            case 0 -> personRepository.save(person(name, address));
+            case 1 -> personRepository.update("Last" + name, "First" + name, person(name, address));
+            case 2 -> personRepository.delete("Last" + name, "First" + name);
+            case 3 -> firestationRepository.save(firestation(address, station));
+            case 4 -> firestationRepository.update(address, station, firestation(address, random.nextInt(4)));
+            case 5 -> firestationRepository.delete(address, station);
+            case 6 -> medicalrecordRepository.save(medicalrecord(name));
+            case 7 -> medicalrecordRepository.update("Last" + name, "First" + name, medicalrecord(name));
+            case 8 -> medicalrecordRepository.delete("Last" + name, "First" + name);
+            case 9 -> {
+                for (Person person : personRepository.findByAddress(address)) {
+                    assertEquals(address, person.getAddress());
+                }
+                personRepository.findAll().forEach(Person::getFirstName);
+            }
+            case 10 -> {
+                for (Firestation firestation : firestationRepository.findByStation(station)) {
+                    assertEquals(station, firestation.getStation());
+                }
+                firestationRepository.findAddressesByStation(station);
+            }
+            default -> {
+                Optional<Medicalrecord> medicalrecord = medicalrecordRepository.findByName("Last" + name, "First" + name);
+                medicalrecord.ifPresent(found -> assertEquals("First" + name, found.getFirstName()));
+            }
+        }
+    }
+
+    private void assertPersonIndexesConsistent() {
+        Set<Person> all = new HashSet<>();
+        personRepository.findAll().forEach(all::add);
+
+        int byAddress = 0;
+        for (int a = 0; a < ADDRESSES; a++) {
+            for (Person person : personRepository.findByAddress("Address " + a)) {
+                assertTrue(all.contains(person));
+                byAddress++;
+            }
+        }
+        assertEquals(all.size(), byAddress);
+        assertEquals(all.size(), personRepository.findByCity("Culver").size());
+
+        for (Person person : all) {
+            assertSame(person, personRepository.findByName(person.getLastName(), person.getFirstName()).orElseThrow());
+        }
+    }
+
+    private void assertFirestationIndexesConsistent() {
+        Set<Firestation> all = new HashSet<>();
+        firestationRepository.findAll().forEach(all::add);
+
+        int byStation = 0;
+        for (int station = 0; station < 4; station++) {
+            for (Firestation firestation : firestationRepository.findByStation(station)) {
+                assertTrue(all.contains(firestation));
+                byStation++;
+            }
+        }
+        assertEquals(all.size(), byStation);
+
+        int byAddress = 0;
+        for (int a = 0; a < ADDRESSES; a++) {
+            byAddress += firestationRepository.findByAddress("Address " + a).size();
+        }
+        assertEquals(all.size(), byAddress);
+    }
+
+    private void assertMedicalrecordIndexesConsistent() {
+        for (Medicalrecord medicalrecord : medicalrecordRepository.findAll()) {
+            assertSame(medicalrecord, medicalrecordRepository
+                    .findByName(medicalrecord.getLastName(), medicalrecord.getFirstName()).orElseThrow());
+        }
+    }
+
+    private static Person person(int name, String address) {
+        Person person = new Person();
+        person.setFirstName("First" + name);
+        person.setLastName("Last" + name);
+        person.setAddress(address);
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone("841-874-6512");
+        person.setEmail("first" + name + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static Medicalrecord medicalrecord(int name) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + name);
+        medicalrecord.setLastName("Last" + name);
+        medicalrecord.setBirthdate(LocalDate.of(1984, 3, 6));
+        medicalrecord.setMedications(List.of("aznol:350mg"));
+        medicalrecord.setAllergies(List.of("nillacilan"));
+        return medicalrecord;
+    }
+}
@@ -0,0 +1,155 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.config.CustomProperties;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.persistence.Snapshot;
+import com.safetynet.alerts.persistence.SnapshotFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCompactorTest {
+
+    @TempDir
+    Path directory;
+
+    private CustomProperties properties() {
+        CustomProperties properties = new CustomProperties();
+        properties.setDataSource("data/data.json");
+        properties.setSnapshotFile(directory.resolve("alerts.snapshot").toString());
+        properties.setWalFile(directory.resolve("alerts.wal").toString());
+        properties.setCompactionThresholdBytes(0);
+        return properties;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    @Test
+    public void shouldFoldLogIntoSnapshot() {
+        CustomProperties properties = properties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        MutationJournal journal = new MutationJournal(properties);
+        PersonRepository persons = new PersonRepository(journal);
+        FirestationRepository firestations = new FirestationRepository(journal);
+        MedicalrecordRepository medicalrecords = new MedicalrecordRepository(journal);
+        new DataLoader(properties, persons, firestations, medicalrecords, journal).load();
+        SnapshotCompactor compactor = new SnapshotCompactor(properties, journal, meterRegistry);
+
+        firestations.save(firestation("1 Compacted St", 9));
+        medicalrecords.delete("Boyd", "Jacob");
+        persons.delete("Boyd", "Jacob");
+
+        long reclaimed = compactor.compact();
+
+        // Logged after the compaction, so only in the new log segment
+        firestations.save(firestation("2 Logged St", 9));
+        journal.close();
+
+        assertTrue(reclaimed > 0);
+        assertFalse(Files.exists(directory.resolve("alerts.wal.000001")));
+        assertEquals(3, SnapshotFile.read(directory.resolve("alerts.snapshot")).map(Snapshot::lastSequence).orElseThrow());
+        assertEquals(1, meterRegistry.get("alerts.compaction.duration").timer().count());
+        assertEquals(reclaimed, (long) meterRegistry.get("alerts.compaction.reclaimed").counter().count());
+
+        // Restart : compacted snapshot, then the records logged after it
+        MutationJournal restarted = new MutationJournal(properties);
+        PersonRepository restartedPersons = new PersonRepository(restarted);
+        FirestationRepository restartedFirestations = new FirestationRepository(restarted);
+        new DataLoader(properties, restartedPersons, restartedFirestations, new MedicalrecordRepository(restarted),
+                restarted).load();
+        restarted.close();
+
+        assertTrue(restartedPersons.findByName("Boyd", "Jacob").isEmpty());
+        assertEquals(2, restartedFirestations.findByStation(9).size());
+    }
+
+    @Test
+    public void shouldKeepAcceptingChangesDuringCompaction() throws Exception {
+        CustomProperties properties = properties();
+
+        MutationJournal journal = new MutationJournal(properties);
+        FirestationRepository firestations = new FirestationRepository(journal);
+        new DataLoader(properties, new PersonRepository(journal), firestations, new MedicalrecordRepository(journal),
+                journal).load();
+        SnapshotCompactor compactor = new SnapshotCompactor(properties, journal, new SimpleMeterRegistry());
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                firestations.save(firestation(i + " Busy St", 8));
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 5; i++) {
+            compactor.compact();
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        writer.join();
+        journal.close();
+
+        MutationJournal restarted = new MutationJournal(properties);
+        FirestationRepository restartedFirestations = new FirestationRepository(restarted);
+        new DataLoader(properties, new PersonRepository(restarted), restartedFirestations,
+                new MedicalrecordRepository(restarted), restarted).load();
+        restarted.close();
+
+        assertEquals(200, restartedFirestations.findByStation(8).size());
+    }
+
+    @Test
+    public void shouldKeepChangesLoggedAfterRestartingOnCompactedLog() {
+        CustomProperties properties = properties();
+
+        MutationJournal journal = new MutationJournal(properties);
+        FirestationRepository firestations = new FirestationRepository(journal);
+        new DataLoader(properties, new PersonRepository(journal), firestations, new MedicalrecordRepository(journal),
+                journal).load();
+        firestations.save(firestation("1 Compacted St", 7));
+        firestations.save(firestation("2 Compacted St", 7));
+        new SnapshotCompactor(properties, journal, new SimpleMeterRegistry()).compact();
+        journal.close();
+
+        // Restart on the compacted snapshot and an empty log segment, then log a change
+        MutationJournal restarted = new MutationJournal(properties);
+        FirestationRepository restartedFirestations = new FirestationRepository(restarted);
+        new DataLoader(properties, new PersonRepository(restarted), restartedFirestations,
+                new MedicalrecordRepository(restarted), restarted).load();
+        restartedFirestations.save(firestation("3 Logged St", 7));
+        restarted.close();
+
+        MutationJournal reopened = new MutationJournal(properties);
+        FirestationRepository reopenedFirestations = new FirestationRepository(reopened);
+        new DataLoader(properties, new PersonRepository(reopened), reopenedFirestations,
+                new MedicalrecordRepository(reopened), reopened).load();
+        SnapshotCompactor compactor = new SnapshotCompactor(properties, reopened, new SimpleMeterRegistry());
+        compactor.compact();
+        reopened.close();
+
+        assertEquals(3, reopenedFirestations.findByStation(7).size());
+        assertEquals(3, SnapshotFile.read(directory.resolve("alerts.snapshot"))
+                .map(Snapshot::dataset).orElseThrow().firestations().stream()
+                .filter(firestation -> firestation.getStation() == 7).count());
+    }
+
+    @Test
+    public void shouldNotCompactWithoutLog() {
+        CustomProperties properties = properties();
+        properties.setWalFile(null);
+
+        SnapshotCompactor compactor = new SnapshotCompactor(properties, MutationJournal.disabled(),
+                new SimpleMeterRegistry());
+
+        assertEquals(-1, compactor.compact());
+    }
+}
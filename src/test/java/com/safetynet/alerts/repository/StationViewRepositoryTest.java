@@ -0,0 +1,193 @@
+package com.safetynet.alerts.repository;
+
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationViewRepositoryTest {
+
+    private static final int STATIONS = 4;
+    private static final int ADDRESSES = 8;
+    private static final int NAMES = 30;
+
+    private final DataStore store = new DataStore();
+    private final PersonRepository personRepository = new PersonRepository(store, MutationJournal.disabled());
+    private final FirestationRepository firestationRepository =
+            new FirestationRepository(store, MutationJournal.disabled());
+    private final MedicalrecordRepository medicalrecordRepository =
+            new MedicalrecordRepository(store, MutationJournal.disabled());
+    private final StationViewRepository stationViewRepository = new StationViewRepository(store);
+
+    @AfterEach
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void shouldCountResidentsWhateverTheLoadOrder() {
+        medicalrecordRepository.loadAll(List.of(medicalrecord(0, LocalDate.of(2015, 1, 1)),
+                medicalrecord(1, LocalDate.of(1980, 1, 1))));
+        personRepository.loadAll(List.of(person(0, "Address 0", "111"), person(1, "Address 0", "222"),
+                person(2, "Address 1", "222")));
+        firestationRepository.loadAll(List.of(firestation("Address 0", 1), firestation("Address 1", 1)));
+
+        StationView view = stationViewRepository.findByStation(1);
+
+        // Person 2 has no medicalrecord : age 0, counted as minor
+        assertEquals(2, view.minors());
+        assertEquals(1, view.majors());
+        assertEquals(List.of("Address 0", "Address 1"), view.addresses());
+        assertEquals(List.of("First0", "First1", "First2"),
+                view.persons().stream().map(Person::getFirstName).toList());
+        assertEquals(Set.of("111", "222"), view.phones());
+        assertViewsMatchRecompute();
+    }
+
+    @Test
+    public void shouldMovePersonBetweenStationsOnAddressChange() {
+        firestationRepository.save(firestation("Address 0", 1));
+        firestationRepository.save(firestation("Address 1", 2));
+        medicalrecordRepository.save(medicalrecord(0, LocalDate.of(1980, 1, 1)));
+        personRepository.save(person(0, "Address 0", "111"));
+
+        personRepository.update("Last0", "First0", person(0, "Address 1", "333"));
+
+        StationView first = stationViewRepository.findByStation(1);
+        StationView second = stationViewRepository.findByStation(2);
+        assertEquals(0, first.majors());
+        assertTrue(first.persons().isEmpty());
+        assertTrue(first.phones().isEmpty());
+        assertEquals(1, second.majors());
+        assertEquals(Set.of("333"), second.phones());
+        assertViewsMatchRecompute();
+    }
+
+    @Test
+    public void shouldFollowFirestationMappingChanges() {
+        personRepository.save(person(0, "Address 0", "111"));
+        personRepository.save(person(1, "Address 0", "111"));
+
+        firestationRepository.save(firestation("Address 0", 1));
+        assertEquals(2, stationViewRepository.findByStation(1).persons().size());
+        assertEquals(Set.of("111"), stationViewRepository.findByStation(1).phones());
+
+        firestationRepository.update("Address 0", 1, firestation("Address 0", 3));
+        assertTrue(stationViewRepository.findByStation(1).persons().isEmpty());
+        assertEquals(2, stationViewRepository.findByStation(3).minors());
+
+        firestationRepository.delete("Address 0", 3);
+        StationView view = stationViewRepository.findByStation(3);
+        assertEquals(0, view.minors());
+        assertTrue(view.addresses().isEmpty());
+        assertViewsMatchRecompute();
+    }
+
+    @Test
+    public void shouldReclassifyOnBirthdateChange() {
+        firestationRepository.save(firestation("Address 0", 1));
+        personRepository.save(person(0, "Address 0", "111"));
+        medicalrecordRepository.save(medicalrecord(0, LocalDate.of(2015, 1, 1)));
+        assertEquals(1, stationViewRepository.findByStation(1).minors());
+
+        medicalrecordRepository.update("Last0", "First0", medicalrecord(0, LocalDate.of(1970, 1, 1)));
+        StationView view = stationViewRepository.findByStation(1);
+        assertEquals(0, view.minors());
+        assertEquals(1, view.majors());
+
+        medicalrecordRepository.delete("Last0", "First0");
+        assertEquals(1, stationViewRepository.findByStation(1).minors());
+        assertViewsMatchRecompute();
+    }
+
+    @Test
+    public void shouldMatchRecomputeAfterRandomChanges() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 3_000; i++) {
+            int name = random.nextInt(NAMES);
+            String address = "Address " + random.nextInt(ADDRESSES);
+            int station = random.nextInt(STATIONS);
+            try {
+                switch (random.nextInt(9)) {
+                    case 0 -> personRepository.save(person(name, address, "555-" + random.nextInt(5)));
+                    case 1 -> personRepository.update("Last" + name, "First" + name,
+                            person(name, address, "555-" + random.nextInt(5)));
+                    case 2 -> personRepository.delete("Last" + name, "First" + name);
+                    case 3 -> firestationRepository.save(firestation(address, station));
+                    case 4 -> firestationRepository.update(address, station,
+                            firestation("Address " + random.nextInt(ADDRESSES), random.nextInt(STATIONS)));
+                    case 5 -> firestationRepository.delete(address, station);
+                    case 6 -> medicalrecordRepository.save(medicalrecord(name, birthdate(random)));
+                    case 7 -> medicalrecordRepository.update("Last" + name, "First" + name,
+                            medicalrecord(name, birthdate(random)));
+                    default -> medicalrecordRepository.delete("Last" + name, "First" + name);
+                }
+            } catch (RuntimeException expected) {
+                // Missing or duplicate key
+            }
+        }
+
+        assertViewsMatchRecompute();
+    }
+
+    /**
+     * Compares the incrementally maintained views with views computed from scratch
+     */
+    private void assertViewsMatchRecompute() {
+        DataSnapshot snapshot = store.current();
+        CoverageViews recomputed = CoverageViews.build(snapshot);
+
+        for (int station = 0; station < STATIONS; station++) {
+            StationView view = snapshot.coverage().station(station);
+            StationView expected = recomputed.station(station);
+
+            assertEquals(expected.addresses(), view.addresses());
+            assertEquals(expected.persons(), view.persons());
+            assertEquals(expected.minors(), view.minors());
+            assertEquals(expected.majors(), view.majors());
+            assertEquals(expected.phones(), view.phones());
+        }
+    }
+
+    private static LocalDate birthdate(Random random) {
+        return LocalDate.now().minusYears(random.nextInt(40)).minusDays(random.nextInt(365));
+    }
+
+    private static Person person(int name, String address, String phone) {
+        Person person = new Person();
+        person.setFirstName("First" + name);
+        person.setLastName("Last" + name);
+        person.setAddress(address);
+        person.setCity("Culver");
+        person.setZip(97451);
+        person.setPhone(phone);
+        person.setEmail("first" + name + "@email.com");
+        return person;
+    }
+
+    private static Firestation firestation(String address, int station) {
+        Firestation firestation = new Firestation();
+        firestation.setAddress(address);
+        firestation.setStation(station);
+        return firestation;
+    }
+
+    private static Medicalrecord medicalrecord(int name, LocalDate birthdate) {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setFirstName("First" + name);
+        medicalrecord.setLastName("Last" + name);
+        medicalrecord.setBirthdate(birthdate);
+        medicalrecord.setMedications(List.of());
+        medicalrecord.setAllergies(List.of());
+        return medicalrecord;
+    }
+}
@@ -112,6 +112,7 @@ class MedicalrecordServiceTest {
         medicalrecord.setBirthdate(LocalDate.now().minusYears(20));
 
         when(medicalrecordRepository.findByName(anyString(), anyString())).thenReturn(Optional.of(medicalrecord));
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.now());
 
         int toCheck = medicalrecordService.getAge("Doe", "John");
 
@@ -124,6 +125,7 @@ class MedicalrecordServiceTest {
         medicalrecord.setBirthdate(LocalDate.now().minusYears(20));
 
         when(medicalrecordRepository.findByName(anyString(), anyString())).thenReturn(Optional.of(medicalrecord));
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.now());
 
         boolean toCheck = medicalrecordService.isMinor("Doe", "John");
 
@@ -136,9 +138,42 @@ class MedicalrecordServiceTest {
         medicalrecord.setBirthdate(LocalDate.now().minusYears(16));
 
         when(medicalrecordRepository.findByName(anyString(), anyString())).thenReturn(Optional.of(medicalrecord));
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.now());
 
         boolean toCheck = medicalrecordService.isMinor("Doe", "John");
 
         assertTrue(toCheck);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGetAgeFromResolvedMedicalrecord() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setBirthdate(LocalDate.now().minusYears(30));
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.now());
+
+        assertEquals(30, medicalrecordService.getAge(medicalrecord));
+        assertFalse(medicalrecordService.isMinor(medicalrecord));
+        verify(medicalrecordRepository, never()).findByName(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldComputeAgeForDayOfSnapshot() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setBirthdate(LocalDate.of(2001, 6, 1));
+
+        // Before the midnight rollover, the snapshot is still on the day before the 19th birthday
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.of(2020, 5, 31));
+        assertEquals(18, medicalrecordService.getAge(medicalrecord));
+        assertTrue(medicalrecordService.isMinor(medicalrecord));
+
+        // Major on the 19th birthday itself
+        when(medicalrecordRepository.currentDay()).thenReturn(LocalDate.of(2020, 6, 1));
+        assertEquals(19, medicalrecordService.getAge(medicalrecord));
+        assertFalse(medicalrecordService.isMinor(medicalrecord));
+    }
+
+    @Test
+    public void shouldGetZeroAgeWithoutMedicalrecord() {
+        assertEquals(0, medicalrecordService.getAge(null));
+    }
+}
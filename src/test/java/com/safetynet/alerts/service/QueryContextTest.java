@@ -0,0 +1,112 @@
+package com.safetynet.alerts.service;
+
+import com.safetynet.alerts.dto.ResidentDetails;
+import com.safetynet.alerts.model.Firestation;
+import com.safetynet.alerts.model.Medicalrecord;
+import com.safetynet.alerts.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueryContextTest {
+
+    @Mock
+    private IMedicalrecordService medicalrecordService;
+
+    @Mock
+    private IFirestationService firestationService;
+
+    private static final LocalDate DAY = LocalDate.of(2022, 1, 1);
+
+    @Test
+    public void shouldResolveEachPersonOnce() {
+        Person person = person("John");
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setLastName("Doe");
+        medicalrecord.setFirstName("John");
+        medicalrecord.setBirthdate(LocalDate.of(1980, 1, 1));
+        when(medicalrecordService.getMedicalrecord("Doe", "John")).thenReturn(medicalrecord);
+        QueryContext context = new QueryContext(medicalrecordService, firestationService, DAY);
+
+        ResidentDetails details = context.residentDetails(person);
+        assertFalse(context.isMinor(person));
+        assertSame(medicalrecord, context.medicalrecordOf(person("John")));
+        assertEquals(details, context.residentDetails(person));
+
+        assertEquals(42, details.age());
+        verify(medicalrecordService, times(1)).getMedicalrecord("Doe", "John");
+    }
+
+    @Test
+    public void shouldComputeAgesForDayOfSnapshot() {
+        Person person = person("John");
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setLastName("Doe");
+        medicalrecord.setFirstName("John");
+        // 19 on the day after the snapshot day : still minor until the rollover, whatever the clock
+        medicalrecord.setBirthdate(DAY.plusDays(1).minusYears(19));
+        QueryContext context = new QueryContext(medicalrecordService, firestationService, DAY);
+        context.resolved(medicalrecord);
+
+        assertEquals(18, context.ageOf(person));
+        assertTrue(context.isMinor(person));
+        verify(medicalrecordService, never()).getAge(any(Medicalrecord.class));
+    }
+
+    @Test
+    public void shouldRememberMissingMedicalrecord() {
+        Person person = person("Jane");
+        when(medicalrecordService.getMedicalrecord("Doe", "Jane")).thenReturn(null);
+        QueryContext context = new QueryContext(medicalrecordService, firestationService, DAY);
+
+        assertNull(context.medicalrecordOf(person));
+        assertNull(context.medicalrecordOf(person));
+        assertTrue(context.isMinor(person));
+
+        verify(medicalrecordService, times(1)).getMedicalrecord("Doe", "Jane");
+    }
+
+    @Test
+    public void shouldUseResolvedMedicalrecord() {
+        Medicalrecord medicalrecord = new Medicalrecord();
+        medicalrecord.setLastName("Doe");
+        medicalrecord.setFirstName("John");
+        QueryContext context = new QueryContext(medicalrecordService, firestationService, DAY);
+
+        context.resolved(medicalrecord);
+
+        assertSame(medicalrecord, context.medicalrecordOf(person("John")));
+        verify(medicalrecordService, never()).getMedicalrecord(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldResolveEachAddressCoverageOnce() {
+        Firestation firestation = new Firestation();
+        firestation.setAddress("1509 Culver St");
+        firestation.setStation(3);
+        when(firestationService.getFirestationByAddress("1509 Culver St")).thenReturn(List.of(firestation));
+        QueryContext context = new QueryContext(medicalrecordService, firestationService, DAY);
+
+        assertEquals(Set.of(3), context.stationsOf("1509 Culver St"));
+        assertEquals(Set.of(3), context.stationsOf("1509 Culver St"));
+
+        verify(firestationService, times(1)).getFirestationByAddress("1509 Culver St");
+    }
+
+    private static Person person(String firstName) {
+        Person person = new Person();
+        person.setLastName("Doe");
+        person.setFirstName(firstName);
+        person.setAddress("1509 Culver St");
+        return person;
+    }
+}
@@ -0,0 +1,61 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CodedListTest {
+
+    @Test
+    public void shouldReadLikeTheEncodedList() {
+        StringDictionary dictionary = new StringDictionary();
+        List<String> values = List.of("aznol:350mg", "hydrapermazol:100mg", "aznol:350mg");
+
+        List<String> coded = CodedList.encode(dictionary, new ArrayList<>(values));
+
+        assertEquals(values, coded);
+        assertEquals(values.hashCode(), coded.hashCode());
+        assertEquals(2, dictionary.size());
+        assertTrue(coded.contains("hydrapermazol:100mg"));
+        assertFalse(coded.contains("terazine:10mg"));
+        assertThrows(UnsupportedOperationException.class, () -> coded.add("terazine:10mg"));
+    }
+
+    @Test
+    public void shouldShareCodesAcrossLists() {
+        StringDictionary dictionary = new StringDictionary();
+
+        CodedList first = (CodedList) CodedList.encode(dictionary, List.of("peanut", "shellfish"));
+        CodedList second = (CodedList) CodedList.encode(dictionary, List.of(new String("shellfish")));
+
+        assertEquals(first.code(1), second.code(0));
+        assertTrue(first.containsCode(second.code(0)));
+        assertFalse(second.containsCode(first.code(0)));
+        assertSame(first, CodedList.encode(dictionary, first));
+    }
+
+    @Test
+    public void shouldKeepNullAndEmptyLists() {
+        StringDictionary dictionary = new StringDictionary();
+
+        assertNull(CodedList.encode(dictionary, null));
+        assertTrue(CodedList.encode(dictionary, List.of()).isEmpty());
+    }
+
+    @Test
+    public void shouldDecodeValuesAddedAfterGrowth() {
+        StringDictionary dictionary = new StringDictionary();
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            values.add("medication" + i + ":10mg");
+        }
+
+        List<String> coded = CodedList.encode(dictionary, values);
+
+        assertEquals(values, coded);
+        assertEquals(1_000, dictionary.size());
+    }
+}
@@ -0,0 +1,41 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntColumnsTest {
+
+    @Test
+    public void shouldCountValuesAboveBound() {
+        int[] column = {5, -3, 8, 5, 0, 12};
+
+        assertEquals(2, IntColumns.countAbove(column, 0, column.length, 5));
+        assertEquals(1, IntColumns.countAbove(column, 1, 4, 5));
+        assertEquals(0, IntColumns.countAbove(column, 2, 2, -10));
+    }
+
+    @Test
+    public void shouldBucketLikeNaiveCount() {
+        Random random = new Random(3);
+        int[] column = new int[10_000];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = random.nextInt(2_000_000) - 1_000_000;
+        }
+        int[] bounds = {-500_000, -1, 0, 250_000, 999_999};
+
+        int[] counts = IntColumns.histogram(column, 100, 9_000, bounds);
+
+        int[] expected = new int[bounds.length + 1];
+        for (int i = 100; i < 9_000; i++) {
+            int bucket = 0;
+            while (bucket < bounds.length && column[i] > bounds[bucket]) {
+                bucket++;
+            }
+            expected[bucket]++;
+        }
+        assertArrayEquals(expected, counts);
+    }
+}
@@ -0,0 +1,97 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    public void shouldPutAndGetValues() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "one");
+        map.put(3, "three");
+
+        assertEquals("one", map.get(1));
+        assertEquals("three", map.get(3));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void shouldReplaceExistingValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "one");
+
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldRemoveValues() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "one");
+
+        assertEquals("one", map.remove(1));
+        assertNull(map.remove(1));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void shouldComputeMissingValueOnce() {
+        IntObjectMap<StringBuilder> map = new IntObjectMap<>();
+        map.computeIfAbsent(7, k -> new StringBuilder()).append("a");
+        map.computeIfAbsent(7, k -> new StringBuilder()).append("b");
+
+        assertEquals("ab", map.get(7).toString());
+    }
+
+    @Test
+    public void shouldRejectNullValues() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+
+        assertThrows(IllegalArgumentException.class, () -> map.put(1, null));
+    }
+
+    @Test
+    public void shouldBehaveLikeHashMapUnderRandomOperations() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        Map<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(500) - 50;
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(reference.put(key, i), map.put(key, i));
+                case 1 -> assertEquals(reference.remove(key), map.remove(key));
+                default -> assertEquals(reference.get(key), map.get(key));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(reference.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void shouldCopyIndependently() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "one");
+
+        IntObjectMap<String> copy = map.copy();
+        copy.put(2, "two");
+        copy.remove(1);
+
+        assertEquals("one", map.get(1));
+        assertNull(map.get(2));
+        assertEquals("two", copy.get(2));
+        assertNull(copy.get(1));
+    }
+}
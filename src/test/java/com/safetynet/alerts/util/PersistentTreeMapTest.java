@@ -0,0 +1,95 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentTreeMapTest {
+
+    @Test
+    public void shouldPutAndGetValues() {
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.<Integer, String>empty()
+                .plus(3, "three")
+                .plus(1, "one");
+
+        assertEquals("one", map.get(1));
+        assertEquals("three", map.get(3));
+        assertNull(map.get(2));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void shouldLeaveOriginalUnchanged() {
+        PersistentTreeMap<Integer, String> original = PersistentTreeMap.<Integer, String>empty().plus(1, "one");
+
+        PersistentTreeMap<Integer, String> changed = original.plus(1, "uno").plus(2, "two").minus(1);
+
+        assertEquals("one", original.get(1));
+        assertEquals(1, original.size());
+        assertNull(changed.get(1));
+        assertEquals("two", changed.get(2));
+    }
+
+    @Test
+    public void shouldReturnSameMapWhenNothingChanges() {
+        String one = "one";
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.<Integer, String>empty().plus(1, one);
+
+        assertSame(map, map.plus(1, one));
+        assertSame(map, map.minus(2));
+    }
+
+    @Test
+    public void shouldIterateValuesInKeyOrder() {
+        PersistentTreeMap<String, String> map = PersistentTreeMap.<String, String>empty(Comparator.reverseOrder())
+                .plus("a", "A")
+                .plus("c", "C")
+                .plus("b", "B");
+
+        assertEquals(List.of("C", "B", "A"), map.values());
+    }
+
+    @Test
+    public void shouldRejectNullValues() {
+        PersistentTreeMap<Integer, String> map = PersistentTreeMap.empty();
+
+        assertThrows(IllegalArgumentException.class, () -> map.plus(1, null));
+    }
+
+    @Test
+    public void shouldBehaveLikeTreeMapOnRandomOperations() {
+        Random random = new Random(42);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        PersistentTreeMap<Integer, Integer> map = PersistentTreeMap.empty();
+
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        for (int key = 0; key < 2_000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        for (int from = 0; from < 2_000; from += 97) {
+            int to = from + random.nextInt(300);
+            List<Integer> range = new ArrayList<>();
+            map.forEach(from, to, (key, value) -> range.add(value));
+            assertEquals(new ArrayList<>(expected.subMap(from, to).values()), range);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    private static final int THREADS = 8;
+
+    private long now;
+    private final AtomicInteger computations = new AtomicInteger();
+
+    private String compute() {
+        return "result " + computations.incrementAndGet();
+    }
+
+    @Test
+    public void shouldReuseResultForSameVersions() {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, true);
+
+        assertEquals("result 1", cache.get("query", new long[]{1, 2}, this::compute));
+        assertEquals("result 1", cache.get("query", new long[]{1, 2}, this::compute));
+
+        ResultCache.Statistics statistics = cache.statistics();
+        assertEquals(1, statistics.hits());
+        assertEquals(1, statistics.misses());
+        assertEquals(1, statistics.size());
+    }
+
+    @Test
+    public void shouldRecomputeWhenVersionsChange() {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, true);
+        cache.get("query", new long[]{1, 2}, this::compute);
+
+        assertEquals("result 2", cache.get("query", new long[]{1, 3}, this::compute));
+        assertEquals("result 2", cache.get("query", new long[]{1, 3}, this::compute));
+        assertEquals(1, cache.statistics().invalidations());
+    }
+
+    @Test
+    public void shouldExpireResultAfterTimeToLive() {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, true);
+        cache.get("query", new long[]{1}, this::compute);
+
+        now += 999;
+        assertEquals("result 1", cache.get("query", new long[]{1}, this::compute));
+        now += 1;
+        assertEquals("result 2", cache.get("query", new long[]{1}, this::compute));
+        assertEquals(1, cache.statistics().expirations());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResult() {
+        ResultCache<String, String> cache = new ResultCache<>(2, 1000, () -> now, true);
+        cache.get("a", new long[]{1}, this::compute);
+        cache.get("b", new long[]{1}, this::compute);
+        cache.get("a", new long[]{1}, this::compute);
+        cache.get("c", new long[]{1}, this::compute);
+
+        assertEquals("result 1", cache.get("a", new long[]{1}, this::compute));
+        assertEquals("result 4", cache.get("b", new long[]{1}, this::compute));
+        assertEquals(2, cache.statistics().evictions());
+        assertEquals(2, cache.statistics().size());
+    }
+
+    @Test
+    public void shouldAlwaysComputeWhenDisabled() {
+        ResultCache<String, String> cache = new ResultCache<>(0, 1000, () -> now, true);
+
+        assertEquals("result 1", cache.get("query", new long[]{1}, this::compute));
+        assertEquals("result 2", cache.get("query", new long[]{1}, this::compute));
+        assertEquals(0, cache.statistics().size());
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentIdenticalMisses() throws Exception {
+        ResultCache<String, String> cache = new ResultCache<>(0, 1000, () -> now, true);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("query", new long[]{1}, () -> blocked(release)));
+            awaitComputations(1);
+            List<Future<String>> others = new ArrayList<>();
+            for (int i = 1; i < THREADS; i++) {
+                others.add(executor.submit(() -> cache.get("query", new long[]{1}, this::compute)));
+            }
+            awaitCoalesced(cache, THREADS - 1);
+            release.countDown();
+
+            assertEquals("result 1", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> other : others) {
+                assertEquals("result 1", other.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(1, cache.statistics().misses());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldShareFailureOfCoalescedComputation() throws Exception {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, true);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> cache.get("query", new long[]{1}, () -> {
+                blocked(release);
+                throw new IllegalStateException("failed");
+            }));
+            awaitComputations(1);
+            Future<String> second = executor.submit(() -> cache.get("query", new long[]{1}, this::compute));
+            awaitCoalesced(cache, 1);
+            release.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> second.get(5, TimeUnit.SECONDS));
+            assertEquals(IllegalStateException.class, failure.getCause().getClass());
+            assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertEquals("result 2", cache.get("query", new long[]{1}, this::compute));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotShareComputationOfOtherVersions() throws Exception {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, true);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> cache.get("query", new long[]{1}, () -> blocked(release)));
+            awaitComputations(1);
+
+            assertEquals("result 2", cache.get("query", new long[]{2}, this::compute));
+            release.countDown();
+            assertEquals("result 1", first.get(5, TimeUnit.SECONDS));
+            assertEquals(0, cache.statistics().coalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldComputeConcurrentMissesWhenNotCoalescing() throws Exception {
+        ResultCache<String, String> cache = new ResultCache<>(4, 1000, () -> now, false);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> cache.get("query", new long[]{1}, () -> blocked(release)));
+            awaitComputations(1);
+
+            assertEquals("result 2", cache.get("query", new long[]{1}, this::compute));
+            release.countDown();
+            assertEquals("result 1", first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String blocked(CountDownLatch release) {
+        String result = compute();
+        try {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private void awaitComputations(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (computations.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, computations.get());
+    }
+
+    private static void awaitCoalesced(ResultCache<?, ?> cache, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.statistics().coalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, cache.statistics().coalesced());
+    }
+}
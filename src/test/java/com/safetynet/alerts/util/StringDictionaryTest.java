@@ -0,0 +1,44 @@
+package com.safetynet.alerts.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringDictionaryTest {
+
+    @Test
+    public void shouldGiveOneCodePerDistinctValue() {
+        StringDictionary dictionary = new StringDictionary();
+
+        int culver = dictionary.encode("Culver");
+        int other = dictionary.encode("Springfield");
+
+        assertEquals(culver, dictionary.encode(new String("Culver")));
+        assertNotEquals(culver, other);
+        assertEquals("Springfield", dictionary.decode(other));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    public void shouldReturnFirstInstanceAndCountReplacedCopies() {
+        StringDictionary dictionary = new StringDictionary();
+        String first = new String("1509 Culver St");
+        String copy = new String("1509 Culver St");
+
+        assertSame(first, dictionary.canonical(first));
+        assertSame(first, dictionary.canonical(copy));
+        assertSame(first, dictionary.canonical(first));
+        assertNull(dictionary.canonical(null));
+
+        assertEquals(3, dictionary.references());
+        assertEquals(StringDictionary.sizeOf(copy), dictionary.savedBytes());
+    }
+
+    @Test
+    public void shouldEstimateStringSize() {
+        // 24 bytes of String, and a byte array of 16 + 14 bytes aligned on 8
+        assertEquals(56, StringDictionary.sizeOf("1509 Culver St"));
+        // UTF16 : 2 bytes per char
+        assertEquals(48, StringDictionary.sizeOf("\u0100\u0101\u0102\u0103"));
+    }
+}